@@ -0,0 +1,272 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.rsocket.Payload;
+import io.rsocket.exceptions.ApplicationException;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.flow.ConnectionRateLimiter;
+import org.springframework.cloud.reactive.socket.flow.DrainGate;
+import org.springframework.cloud.reactive.socket.flow.FairOutboundScheduler;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.cloud.reactive.socket.flow.ServerLoad;
+import org.springframework.cloud.reactive.socket.metrics.ConnectionRegistry;
+
+/**
+ * The {@link io.rsocket.RSocket} handed to a single connection. It carries the identity of the client and the per
+ * connection limits, and delegates to the shared {@link DispatcherHandler} with the metadata it already parsed.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ConnectionRSocket extends RSocketProxy {
+
+	private final DispatcherHandler handler;
+
+	private final String clientId;
+
+	private final ConnectionRateLimiter rateLimiter;
+
+	private final ServerLoad load;
+
+	private FairOutboundScheduler outboundScheduler;
+
+	private String listener;
+
+	private DrainGate drainGate;
+
+	private ConnectionRegistry.Connection connection;
+
+	public ConnectionRSocket(DispatcherHandler handler, String clientId, ConnectionRateLimiter rateLimiter) {
+		this(handler, clientId, rateLimiter, null);
+	}
+
+	/**
+	 * @param handler the shared dispatcher
+	 * @param clientId identity of the client, may be null
+	 * @param rateLimiter rate limits of this connection, may be null
+	 * @param load server load updated with the requests of this connection, may be null
+	 */
+	public ConnectionRSocket(DispatcherHandler handler, String clientId, ConnectionRateLimiter rateLimiter, ServerLoad load) {
+		super(handler);
+		this.handler = handler;
+		this.clientId = clientId;
+		this.rateLimiter = rateLimiter;
+		this.load = load;
+	}
+
+	/**
+	 * Interleaves the payloads of the streams of this connection fairly. Request/response replies are single frames
+	 * and are not held back.
+	 * @param outboundScheduler a scheduler owned by this connection
+	 */
+	public void setOutboundScheduler(FairOutboundScheduler outboundScheduler) {
+		this.outboundScheduler = outboundScheduler;
+	}
+
+	/**
+	 * Restricts this connection to the endpoints exposed on a listener, other endpoints are reported as not found.
+	 * @param listener name of the listener that accepted the connection
+	 */
+	public void setListener(String listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Counts the requests of this connection in the drain of the server.
+	 * @param drainGate the gate of the server
+	 */
+	public void setDrainGate(DrainGate drainGate) {
+		this.drainGate = drainGate;
+	}
+
+	/**
+	 * Counts the traffic and streams of this connection.
+	 * @param connection the entry of this connection in the {@link ConnectionRegistry}
+	 */
+	public void setConnection(ConnectionRegistry.Connection connection) {
+		this.connection = connection;
+	}
+
+	@Override
+	public Mono<Void> fireAndForget(Payload payload) {
+		inbound(payload);
+		ApplicationException oversized = handler.oversized("fireAndForget", payload);
+		if(oversized != null){
+			return Mono.error(oversized);
+		}
+		boolean sampled = handler.sampleStages();
+		JsonNode metadata = handler.readMetadata(payload, sampled);
+		if(!exposed(metadata)){
+			return Mono.error(notFound());
+		}
+		if(!admit(metadata, payload)){
+			return Mono.error(Rejections.rateLimited(metadata.path("PATH").asText(), clientId));
+		}
+		return inFlight(gated(metadata.path("PATH").asText(), tracked(handler.fireAndForget(metadata, payload, sampled))));
+	}
+
+	@Override
+	public Mono<Payload> requestResponse(Payload payload) {
+		inbound(payload);
+		ApplicationException oversized = handler.oversized("requestResponse", payload);
+		if(oversized != null){
+			return Mono.error(oversized);
+		}
+		boolean sampled = handler.sampleStages();
+		JsonNode metadata = handler.readMetadata(payload, sampled);
+		if(!exposed(metadata)){
+			return Mono.error(notFound());
+		}
+		if(!admit(metadata, payload)){
+			return Mono.error(Rejections.rateLimited(metadata.path("PATH").asText(), clientId));
+		}
+		return counted(gated(metadata.path("PATH").asText(), tracked(handler.requestResponse(metadata, payload, sampled))));
+	}
+
+	@Override
+	public Flux<Payload> requestStream(Payload payload) {
+		inbound(payload);
+		ApplicationException oversized = handler.oversized("requestStream", payload);
+		if(oversized != null){
+			return Flux.error(oversized);
+		}
+		boolean sampled = handler.sampleStages();
+		JsonNode metadata = handler.readMetadata(payload, sampled);
+		if(!exposed(metadata)){
+			return Flux.error(notFound());
+		}
+		if(!admit(metadata, payload)){
+			return Flux.error(Rejections.rateLimited(metadata.path("PATH").asText(), clientId));
+		}
+		return counted(gated(metadata.path("PATH").asText(), tracked(outbound(metadata.path("PATH").asText(null), handler.requestStream(metadata, payload, sampled)))));
+	}
+
+	/**
+	 * Channels are only counted against the connection request limit, the route is only known after the first frame.
+	 */
+	@Override
+	public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+		if(rateLimiter != null && !rateLimiter.tryAcquire(null, 0)){
+			return Flux.error(Rejections.rateLimited("channel", clientId));
+		}
+		Publisher<Payload> inbound = (connection != null) ? Flux.from(payloads).doOnNext(this::inbound) : payloads;
+		return counted(gated("channel", outbound(null, handler.requestChannel(listener, inbound))));
+	}
+
+	private void inbound(Payload payload) {
+		if(connection != null){
+			connection.inbound(payload);
+		}
+	}
+
+	private Mono<Payload> counted(Mono<Payload> result) {
+		return (connection != null) ? inFlight(result.doOnNext(connection::outbound)) : result;
+	}
+
+	/**
+	 * Single requests count as in flight on the connection until they complete, so a slow one does not leave the
+	 * connection looking idle.
+	 */
+	private <T> Mono<T> inFlight(Mono<T> result) {
+		if(connection == null){
+			return result;
+		}
+		return Mono.defer(() -> {
+			connection.requestStarted();
+			return result.doFinally(signal -> connection.requestFinished());
+		});
+	}
+
+	/**
+	 * Streams and channels count as active streams of the connection while open.
+	 */
+	private Flux<Payload> counted(Flux<Payload> result) {
+		if(connection == null){
+			return result;
+		}
+		return Flux.defer(() -> {
+			connection.streamStarted();
+			return result.doOnNext(connection::outbound).doFinally(signal -> connection.streamFinished());
+		});
+	}
+
+	private Flux<Payload> outbound(String path, Flux<Payload> payloads) {
+		return (outboundScheduler != null) ? outboundScheduler.schedule(path, payloads) : payloads;
+	}
+
+	private <T> Mono<T> gated(String path, Mono<T> result) {
+		return (drainGate != null) ? drainGate.track(path, result) : result;
+	}
+
+	private <T> Flux<T> gated(String path, Flux<T> result) {
+		return (drainGate != null) ? drainGate.trackMany(path, result) : result;
+	}
+
+	private <T> Mono<T> tracked(Mono<T> result) {
+		if(load == null){
+			return result;
+		}
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			load.requestStarted();
+			return result.doFinally(signal -> load.requestFinished(System.nanoTime() - start));
+		});
+	}
+
+	/**
+	 * Streams count as in flight while open, their duration says nothing about the latency of the server.
+	 */
+	private <T> Flux<T> tracked(Flux<T> result) {
+		if(load == null){
+			return result;
+		}
+		return Flux.defer(() -> {
+			load.requestStarted();
+			return result.doFinally(signal -> load.requestFinished());
+		});
+	}
+
+	private boolean exposed(JsonNode metadata) {
+		return handler.isExposed(metadata.path("PATH").asText(), listener);
+	}
+
+	/**
+	 * Endpoints of other listeners are indistinguishable from missing ones.
+	 */
+	private ApplicationException notFound() {
+		return new ApplicationException("No handler found");
+	}
+
+	private boolean admit(JsonNode metadata, Payload payload) {
+		return rateLimiter == null
+				|| rateLimiter.tryAcquire(metadata.path("PATH").asText(null), payload.getData().remaining() + payload.getMetadata().remaining());
+	}
+
+	public String getClientId() {
+		return clientId;
+	}
+
+	public String getListener() {
+		return listener;
+	}
+}
@@ -17,6 +17,12 @@
 
 package org.springframework.cloud.reactive.socket;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.rsocket.ConnectionSetupPayload;
 import io.rsocket.RSocket;
 import io.rsocket.SocketAcceptor;
@@ -24,26 +30,134 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
+import org.springframework.cloud.reactive.socket.flow.ConnectionRateLimiter;
+import org.springframework.cloud.reactive.socket.flow.DrainGate;
+import org.springframework.cloud.reactive.socket.flow.FairOutboundScheduler;
+import org.springframework.cloud.reactive.socket.flow.LeaseGranter;
+import org.springframework.cloud.reactive.socket.flow.RateLimitPolicy;
+import org.springframework.cloud.reactive.socket.metrics.ConnectionRegistry;
+import org.springframework.util.StringUtils;
+
 /**
  * @author Vinicius Carvalho
  *
  * A {@link io.rsocket.SocketAcceptor} that delegates to a {@link DispatcherHandler} to route requests to the appropriate
- * service class.
+ * service class. Each connection gets its own {@link ConnectionRSocket}, identified by the {@code CLIENT_ID} entry of the
+ * setup payload metadata.
  */
 public class DispatchSocketAcceptor implements SocketAcceptor{
 
 	private DispatcherHandler handler;
 
+	private RateLimitPolicy rateLimitPolicy;
+
+	private LeaseGranter leaseGranter;
+
+	private int outboundQuantum;
+
+	private Map<String, Integer> outboundWeights = Collections.emptyMap();
+
+	private String listener;
+
+	private DrainGate drainGate;
+
+	private ConnectionRegistry connectionRegistry;
+
+	private ObjectMapper mapper = new ObjectMapper();
+
 	private Logger logger = LoggerFactory.getLogger(SocketAcceptor.class);
 
 	public DispatchSocketAcceptor(DispatcherHandler handler) {
 		this.handler = handler;
 	}
 
+	public void setRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+		this.rateLimitPolicy = rateLimitPolicy;
+	}
+
+	/**
+	 * Enables leases: every accepted connection is registered with the granter and counts towards the server load.
+	 * @param leaseGranter the granter of the server
+	 */
+	public void setLeaseGranter(LeaseGranter leaseGranter) {
+		this.leaseGranter = leaseGranter;
+	}
+
+	/**
+	 * Gives every connection a {@link FairOutboundScheduler} interleaving its streams.
+	 * @param quantum bytes a stream of weight 1 may send per turn
+	 * @param weights weight of each endpoint path, endpoints not listed have a weight of 1
+	 */
+	public void setOutboundScheduling(int quantum, Map<String, Integer> weights) {
+		this.outboundQuantum = quantum;
+		this.outboundWeights = weights;
+	}
+
+	/**
+	 * Restricts the connections accepted to the endpoints exposed on a listener, see
+	 * {@link org.springframework.cloud.reactive.socket.annotation.Listener}. Without a listener every endpoint is
+	 * reachable.
+	 * @param listener name of the listener this acceptor serves
+	 */
+	public void setListener(String listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Registers every accepted connection with the gate, so it is told to go away and drained on shutdown.
+	 * @param drainGate the gate of the server
+	 */
+	public void setDrainGate(DrainGate drainGate) {
+		this.drainGate = drainGate;
+	}
+
+	/**
+	 * Registers every accepted connection with the registry, which counts its traffic and may close it when idle.
+	 * @param connectionRegistry the registry of the server
+	 */
+	public void setConnectionRegistry(ConnectionRegistry connectionRegistry) {
+		this.connectionRegistry = connectionRegistry;
+	}
+
 	@Override
 	public Mono<RSocket> accept(ConnectionSetupPayload connectionSetupPayload, RSocket rSocket) {
-		logger.info("Receiving connection");
-		return Mono.just(handler);
+		String clientId = readClientId(connectionSetupPayload);
+		logger.info("Receiving connection from client {} on listener {}", clientId, listener);
+		ConnectionRateLimiter rateLimiter = (rateLimitPolicy != null) ? rateLimitPolicy.forClient(clientId) : null;
+		ConnectionRSocket connection;
+		if(leaseGranter != null){
+			leaseGranter.register(rSocket);
+			connection = new ConnectionRSocket(handler, clientId, rateLimiter, leaseGranter.getLoad());
+		}else{
+			connection = new ConnectionRSocket(handler, clientId, rateLimiter);
+		}
+		connection.setListener(listener);
+		if(drainGate != null){
+			drainGate.register(rSocket);
+			connection.setDrainGate(drainGate);
+		}
+		if(connectionRegistry != null){
+			connection.setConnection(connectionRegistry.register(clientId, listener, rSocket));
+		}
+		if(outboundQuantum > 0){
+			connection.setOutboundScheduler(new FairOutboundScheduler(outboundQuantum, outboundWeights));
+		}
+		return Mono.just(connection);
+	}
+
+	private String readClientId(ConnectionSetupPayload setupPayload) {
+		String metadata = setupPayload.getMetadataUtf8();
+		if(!StringUtils.hasText(metadata)){
+			return null;
+		}
+		try {
+			JsonNode node = mapper.readValue(metadata, JsonNode.class);
+			return node.path("CLIENT_ID").asText(null);
+		}
+		catch (IOException e) {
+			logger.debug("Could not read setup metadata", e);
+			return null;
+		}
 	}
 
 }
@@ -20,11 +20,22 @@ package org.springframework.cloud.reactive.socket;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.rsocket.AbstractRSocket;
 import io.rsocket.Payload;
 import io.rsocket.exceptions.ApplicationException;
@@ -34,14 +45,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.cloud.reactive.socket.annotation.ReactiveSocket;
 import org.springframework.cloud.reactive.socket.converter.Converter;
 import org.springframework.cloud.reactive.socket.converter.JacksonConverter;
 import org.springframework.cloud.reactive.socket.converter.SerializableConverter;
+import org.springframework.cloud.reactive.socket.flow.ConcurrencyLimiter;
+import org.springframework.cloud.reactive.socket.flow.Deadline;
+import org.springframework.cloud.reactive.socket.flow.IngestionQueue;
+import org.springframework.cloud.reactive.socket.flow.OverflowPolicy;
+import org.springframework.cloud.reactive.socket.flow.PriorityClass;
+import org.springframework.cloud.reactive.socket.flow.PriorityScheduler;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.cloud.reactive.socket.jfr.DispatchRecording;
+import org.springframework.cloud.reactive.socket.jfr.FlightRecorderEvents;
+import org.springframework.cloud.reactive.socket.metrics.EndpointMetrics;
+import org.springframework.cloud.reactive.socket.metrics.StageMetrics;
+import org.springframework.cloud.reactive.socket.metrics.StageMetrics.Stage;
+import org.springframework.cloud.reactive.socket.resume.ResumeSessions;
+import org.springframework.cloud.reactive.socket.util.Chunks;
 import org.springframework.cloud.reactive.socket.util.ServiceUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -54,18 +83,66 @@ import static org.springframework.cloud.reactive.socket.util.ServiceUtils.getAct
 /**
  * @author Vinicius Carvalho
  */
-public class DispatcherHandler extends AbstractRSocket implements ApplicationContextAware, InitializingBean {
+public class DispatcherHandler extends AbstractRSocket implements ApplicationContextAware, InitializingBean, DisposableBean {
 
 	private ApplicationContext applicationContext;
 
 	private List<MethodHandler> mappingHandlers = new LinkedList<>();
 
+	private Map<String, Set<String>> endpointListeners = new HashMap<>();
+
 	private ObjectMapper mapper = new ObjectMapper();
 
 	private Logger logger = LoggerFactory.getLogger(getClass());
 
 	private List<Converter> converters = new LinkedList<>();
 
+	private Map<MethodHandler, IngestionQueue> ingestionQueues = new HashMap<>();
+
+	private Scheduler ingestionScheduler;
+
+	private int ingestionCapacity = 0;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+	private int overflowSampleRate = 10;
+
+	private int ingestionWorkers = Runtime.getRuntime().availableProcessors();
+
+	private Map<MethodHandler, ConcurrencyLimiter> limiters = new HashMap<>();
+
+	private Supplier<ConcurrencyLimiter> limiterFactory;
+
+	private MeterRegistry meterRegistry;
+
+	private boolean endpointMetricsEnabled = true;
+
+	private double[] latencyPercentiles = {0.5, 0.95, 0.99};
+
+	private boolean latencyHistogram = false;
+
+	private Map<MethodHandler, EndpointMetrics> endpointMetrics = new HashMap<>();
+
+	private int stageSampleRate = 0;
+
+	private boolean flightRecorderEnabled = true;
+
+	private StageMetrics stageMetrics;
+
+	private Map<MethodHandler, StageMetrics.Endpoint> endpointStages = new HashMap<>();
+
+	private int offloadWorkers = 0;
+
+	private int offloadCapacity = 1024;
+
+	private PriorityScheduler priorityScheduler;
+
+	private ResumeSessions resumeSessions;
+
+	private int maxPayloadSize = 0;
+
+	private int chunkSize = Chunks.DEFAULT_CHUNK_SIZE;
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		this.applicationContext = applicationContext;
@@ -76,6 +153,155 @@ public class DispatcherHandler extends AbstractRSocket implements ApplicationCon
 		this.converters.add(new SerializableConverter());
 	}
 
+	/**
+	 * Bounds the number of pending invocations of each one way endpoint, a value of 0 (the default) invokes one way
+	 * handlers directly on the transport thread.
+	 * @param ingestionCapacity capacity of each endpoint's ingestion queue
+	 */
+	public void setIngestionCapacity(int ingestionCapacity) {
+		this.ingestionCapacity = ingestionCapacity;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public void setOverflowSampleRate(int overflowSampleRate) {
+		this.overflowSampleRate = overflowSampleRate;
+	}
+
+	public void setIngestionWorkers(int ingestionWorkers) {
+		this.ingestionWorkers = ingestionWorkers;
+	}
+
+	/**
+	 * Wraps every request/response and stream endpoint with its own adaptive concurrency limiter. Requests over the
+	 * limit are rejected right away, see {@link Rejections}.
+	 * @param limiterFactory creates one limiter per endpoint
+	 */
+	public void setConcurrencyLimiterFactory(Supplier<ConcurrencyLimiter> limiterFactory) {
+		this.limiterFactory = limiterFactory;
+	}
+
+	/**
+	 * Offloads request/response and stream invocations from the transport threads to a pool of workers that run the
+	 * most important requests first and shed the least important ones when the queue fills up. A value of 0 (the
+	 * default) invokes handlers directly on the transport thread.
+	 * @param offloadWorkers number of worker threads
+	 */
+	public void setOffloadWorkers(int offloadWorkers) {
+		this.offloadWorkers = offloadWorkers;
+	}
+
+	public void setOffloadCapacity(int offloadCapacity) {
+		this.offloadCapacity = offloadCapacity;
+	}
+
+	public PriorityScheduler getPriorityScheduler() {
+		return priorityScheduler;
+	}
+
+	/**
+	 * Rejects requests whose data and metadata exceed the given size before they are decoded. A value of 0 (the
+	 * default) accepts any size.
+	 * @param maxPayloadSize maximum size in bytes of an inbound payload
+	 */
+	public void setMaxPayloadSize(int maxPayloadSize) {
+		this.maxPayloadSize = maxPayloadSize;
+	}
+
+	/**
+	 * @param chunkSize maximum size of the chunks a file, resource or buffer returned by a request many or request
+	 * stream method is split in
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Lets clients resume streams that carry a {@code RESUME_TOKEN} after their connection is lost.
+	 * @param resumeSessions keeps the detached streams
+	 */
+	public void setResumeSessions(ResumeSessions resumeSessions) {
+		this.resumeSessions = resumeSessions;
+	}
+
+	public void setMeterRegistry(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	/**
+	 * Records per endpoint meters when a {@link MeterRegistry} is set, see {@link EndpointMetrics}. Switched off,
+	 * requests go through no instrumentation at all.
+	 * @param endpointMetricsEnabled true by default
+	 */
+	public void setEndpointMetricsEnabled(boolean endpointMetricsEnabled) {
+		this.endpointMetricsEnabled = endpointMetricsEnabled;
+	}
+
+	/**
+	 * @param latencyPercentiles percentiles of the request latency published by every endpoint
+	 * @param latencyHistogram publish the latency histogram buckets as well
+	 */
+	public void setLatencyPercentiles(double[] latencyPercentiles, boolean latencyHistogram) {
+		this.latencyPercentiles = latencyPercentiles;
+		this.latencyHistogram = latencyHistogram;
+	}
+
+	/**
+	 * Times the stages of the dispatch of one request in every {@code sampleRate}, see {@link StageMetrics}. Needs a
+	 * {@link MeterRegistry}. A value of 0 (the default) disables stage timing.
+	 * @param stageSampleRate one request in this many is timed
+	 */
+	public void setStageSampleRate(int stageSampleRate) {
+		this.stageSampleRate = stageSampleRate;
+	}
+
+	/**
+	 * Emits a flight recorder event for every remote request slower than the threshold of the recording, see
+	 * {@link FlightRecorderEvents}. Requests are only instrumented while a recording enables the event.
+	 * @param flightRecorderEnabled false to never emit events
+	 */
+	public void setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+		this.flightRecorderEnabled = flightRecorderEnabled;
+	}
+
+	public EndpointMetrics getEndpointMetrics(String path){
+		return this.endpointMetrics.entrySet()
+				.stream()
+				.filter(entry -> entry.getKey().getInfo().getMappingInfo().getPath().equals(path))
+				.map(Map.Entry::getValue)
+				.findFirst()
+				.orElse(null);
+	}
+
+	public ConcurrencyLimiter getConcurrencyLimiter(String path){
+		return this.limiters.entrySet()
+				.stream()
+				.filter(entry -> entry.getKey().getInfo().getMappingInfo().getPath().equals(path))
+				.map(Map.Entry::getValue)
+				.findFirst()
+				.orElse(null);
+	}
+
+	public IngestionQueue getIngestionQueue(String path){
+		return this.ingestionQueues.values()
+				.stream()
+				.filter(queue -> queue.getPath().equals(path))
+				.findFirst()
+				.orElse(null);
+	}
+
+	/**
+	 * @return the number of one way calls waiting in the ingestion queues of all endpoints
+	 */
+	public int getQueueDepth(){
+		return this.ingestionQueues.values()
+				.stream()
+				.mapToInt(IngestionQueue::size)
+				.sum();
+	}
+
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
@@ -90,32 +316,172 @@ public class DispatcherHandler extends AbstractRSocket implements ApplicationCon
 						logger.info("Registering remote endpoint at path {}, exchange {} for method {}", info.getMappingInfo().getPath(), info.getMappingInfo().getExchangeMode(), method);
 						MethodHandler methodHandler = new MethodHandler(applicationContext.getBean(beanName), info);
 						mappingHandlers.add(methodHandler);
+						if(!info.getListeners().isEmpty()){
+							endpointListeners.put(info.getMappingInfo().getPath(), info.getListeners());
+						}
 					}
 				});
 			}
 		}
 		initDefaultConverters();
+		initIngestionQueues();
+		initLimiters();
+		initEndpointMetrics();
+		initStageMetrics();
+		if(this.offloadWorkers > 0){
+			this.priorityScheduler = new PriorityScheduler(this.offloadWorkers, this.offloadCapacity);
+		}
+	}
+
+	private void initLimiters() {
+		if(this.limiterFactory == null){
+			return;
+		}
+		for(MethodHandler handler : this.mappingHandlers){
+			if(ExchangeMode.ONE_WAY.equals(handler.getInfo().getMappingInfo().getExchangeMode())){
+				continue;
+			}
+			ConcurrencyLimiter limiter = this.limiterFactory.get();
+			this.limiters.put(handler, limiter);
+			if(this.meterRegistry != null){
+				String path = handler.getInfo().getMappingInfo().getPath();
+				Gauge.builder("reactive.socket.limiter.limit", limiter, ConcurrencyLimiter::getLimit)
+						.tag("path", path)
+						.register(this.meterRegistry);
+				Gauge.builder("reactive.socket.limiter.inflight", limiter, ConcurrencyLimiter::getInFlight)
+						.tag("path", path)
+						.register(this.meterRegistry);
+				FunctionCounter.builder("reactive.socket.limiter.rejected", limiter, ConcurrencyLimiter::getRejectedCount)
+						.tag("path", path)
+						.register(this.meterRegistry);
+			}
+		}
+	}
+
+	private void initEndpointMetrics() {
+		if(this.meterRegistry == null || !this.endpointMetricsEnabled){
+			return;
+		}
+		for(MethodHandler handler : this.mappingHandlers){
+			ServiceMappingInfo mappingInfo = handler.getInfo().getMappingInfo();
+			this.endpointMetrics.put(handler, new EndpointMetrics(this.meterRegistry, mappingInfo.getPath(), mappingInfo.getExchangeMode(),
+					this.latencyPercentiles, this.latencyHistogram));
+		}
+	}
+
+	private void initStageMetrics() {
+		if(this.meterRegistry == null || this.stageSampleRate <= 0){
+			return;
+		}
+		this.stageMetrics = new StageMetrics(this.meterRegistry, this.stageSampleRate);
+		for(MethodHandler handler : this.mappingHandlers){
+			this.endpointStages.put(handler, this.stageMetrics.forEndpoint(handler.getInfo().getMappingInfo().getPath()));
+		}
+	}
+
+	private void initIngestionQueues() {
+		if(this.ingestionCapacity <= 0){
+			return;
+		}
+		this.ingestionScheduler = Schedulers.newParallel("one-way-ingestion", this.ingestionWorkers);
+		for(MethodHandler handler : this.mappingHandlers){
+			if(ExchangeMode.ONE_WAY.equals(handler.getInfo().getMappingInfo().getExchangeMode())){
+				String path = handler.getInfo().getMappingInfo().getPath();
+				IngestionQueue queue = new IngestionQueue(path, this.ingestionCapacity, this.overflowPolicy, this.overflowSampleRate, this.ingestionScheduler);
+				this.ingestionQueues.put(handler, queue);
+				if(this.meterRegistry != null){
+					Gauge.builder("reactive.socket.ingestion.size", queue, IngestionQueue::size)
+							.tag("path", path)
+							.register(this.meterRegistry);
+					FunctionCounter.builder("reactive.socket.ingestion.dropped", queue, IngestionQueue::getDroppedCount)
+							.tag("path", path)
+							.register(this.meterRegistry);
+					FunctionCounter.builder("reactive.socket.ingestion.expired", queue, IngestionQueue::getExpiredCount)
+							.tag("path", path)
+							.register(this.meterRegistry);
+				}
+			}
+		}
 	}
 
-	private JsonNode readConnectionMetadata(String metadata){
+	@Override
+	public void destroy() throws Exception {
+		this.ingestionQueues.values().forEach(IngestionQueue::dispose);
+		if(this.ingestionScheduler != null){
+			this.ingestionScheduler.dispose();
+		}
+		if(this.priorityScheduler != null){
+			this.priorityScheduler.dispose();
+		}
+	}
+
+	private JsonNode readConnectionMetadata(String metadata, boolean sampled){
+		long start = startStage(sampled);
 		try {
 			return mapper.readValue(metadata, JsonNode.class);
 		}
 		catch (IOException e) {
 			throw new IllegalStateException("Could not read metadata from client");
 		}
+		finally {
+			stopStage(Stage.METADATA, start);
+		}
+	}
+
+	/**
+	 * @param path route of the request
+	 * @param listener name of the listener that accepted the connection, null when the connection does not come
+	 * through a named listener
+	 * @return true if the endpoint may be reached from the listener
+	 */
+	boolean isExposed(String path, String listener){
+		Set<String> listeners = this.endpointListeners.get(path);
+		return listener == null || listeners == null || listeners.contains(listener);
+	}
+
+	/**
+	 * @return true if the stages of the next request are to be timed, the decision is made once per request and
+	 * passed to every stage
+	 */
+	boolean sampleStages(){
+		return this.stageMetrics != null && this.stageMetrics.sample();
+	}
+
+	JsonNode readMetadata(Payload payload, boolean sampled){
+		return readConnectionMetadata(payload.getMetadataUtf8(), sampled);
+	}
+
+	/**
+	 * Checked on the raw frame, before its metadata is parsed or any limit is charged for it.
+	 * @param route the path of the request, or its exchange while the path is not read yet
+	 * @return the rejection of a payload over the maximum size, null if the payload is accepted
+	 */
+	ApplicationException oversized(String route, Payload payload){
+		if(this.maxPayloadSize <= 0){
+			return null;
+		}
+		int size = payload.getData().remaining() + payload.getMetadata().remaining();
+		return (size > this.maxPayloadSize) ? Rejections.payloadTooLarge(route, size, this.maxPayloadSize) : null;
 	}
 
 	@Override
 	public Mono<Void> fireAndForget(Payload payload) {
-		JsonNode metadata = readConnectionMetadata(payload.getMetadataUtf8());
-
+		ApplicationException oversized = oversized("fireAndForget", payload);
+		if(oversized != null){
+			return Mono.error(oversized);
+		}
+		boolean sampled = sampleStages();
+		return fireAndForget(readMetadata(payload, sampled), payload, sampled);
+	}
 
+	Mono<Void> fireAndForget(JsonNode metadata, Payload payload, boolean sampled) {
 		try{
-			MethodHandler handler = handlerFor(metadata);
-			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()));
-			Object converted = converter.read(ServiceUtils.toByteArray(payload.getData()), getActualType(handler.getInfo().getParameterType()));
-			handler.invoke(handler.getInfo().buildInvocationArguments(converted, null));
+			MethodHandler handler = handlerFor(metadata, sampled);
+			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()), sampled);
+			byte[] data = ServiceUtils.toByteArray(payload.getData());
+			List<byte[]> batch = metadata.has("BATCH") ? ServiceUtils.decodeBatch(ByteBuffer.wrap(data)) : null;
+			DispatchRecording recording = startRecording(handler);
+			dispatchOneWay(metadata, handler, recordedOneWay(recording, () -> invokeOneWay(handler, converter, data, batch, recording, sampled)));
 			return Mono.empty();
 		}catch (Exception e){
 			return Mono.error(e);
@@ -123,45 +489,121 @@ public class DispatcherHandler extends AbstractRSocket implements ApplicationCon
 
 	}
 
+	private void dispatchOneWay(JsonNode metadata, MethodHandler handler, Runnable invocation){
+		Deadline deadline = deadlineOf(metadata);
+		IngestionQueue queue = this.ingestionQueues.get(handler);
+		EndpointMetrics metrics = this.endpointMetrics.get(handler);
+		Runnable metered = (metrics != null) ? metrics.recordOneWay(invocation) : invocation;
+		if(queue != null){
+			queue.offer(metered, deadline);
+		}else if(!deadline.isExpired()){
+			metered.run();
+		}
+	}
+
+	/**
+	 * @param batch the elements of a batch frame, already split when the frame was received, null for a single payload
+	 */
+	private void invokeOneWay(MethodHandler handler, Converter converter, byte[] data, List<byte[]> batch, DispatchRecording recording, boolean sampled){
+		if(batch != null){
+			invokeBatch(handler, converter, batch, recording, sampled);
+		}else{
+			invoke(handler, decode(handler, converter, data, getActualType(handler.getInfo().getParameterType()), recording, sampled), sampled);
+		}
+	}
+
+	private void invokeBatch(MethodHandler handler, Converter converter, List<byte[]> batch, DispatchRecording recording, boolean sampled){
+		if(handler.getInfo().isBatchConsumer()){
+			Class<?> elementType = handler.getInfo().getParameterType().getGeneric(0).resolve(Object.class);
+			List<Object> elements = new ArrayList<>(batch.size());
+			for(byte[] element : batch){
+				elements.add(decode(handler, converter, element, elementType, recording, sampled));
+			}
+			invoke(handler, elements, sampled);
+		}else{
+			Class<?> elementType = getActualType(handler.getInfo().getParameterType());
+			for(byte[] element : batch){
+				invoke(handler, decode(handler, converter, element, elementType, recording, sampled), sampled);
+			}
+		}
+	}
+
 	@Override
 	public Mono<Payload> requestResponse(Payload payload) {
-		JsonNode metadata = readConnectionMetadata(payload.getMetadataUtf8());
+		ApplicationException oversized = oversized("requestResponse", payload);
+		if(oversized != null){
+			return Mono.error(oversized);
+		}
+		boolean sampled = sampleStages();
+		return requestResponse(readMetadata(payload, sampled), payload, sampled);
+	}
+
+	Mono<Payload> requestResponse(JsonNode metadata, Payload payload, boolean sampled) {
 		try {
-			MethodHandler handler = handlerFor(metadata);
-			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()));
-			Object converted = converter.read(ServiceUtils.toByteArray(payload.getData()), getActualType(handler.getInfo().getParameterType()));
-			Object result = handler.invoke(handler.getInfo().buildInvocationArguments(converted, null));
-			Mono monoResult = monoOF(result);
-			return monoResult.map(o -> {
-				byte[] data = converter.write(o);
-				return new PayloadImpl(data);
-			});
+			MethodHandler handler = handlerFor(metadata, sampled);
+			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()), sampled);
+			byte[] data = ServiceUtils.toByteArray(payload.getData());
+			DispatchRecording recording = startRecording(handler);
+			return recorded(recording, dispatchOne(metadata, handler, () -> decode(handler, converter, data, getActualType(handler.getInfo().getParameterType()), recording, sampled), sampled)
+					.map(o -> new PayloadImpl(encode(handler, converter, o, recording, sampled))));
 
 		}catch (Exception e){
 			return Mono.error(e);
 		}
 	}
 
+	private Mono<Object> dispatchOne(JsonNode metadata, MethodHandler handler, Supplier<Object> argument, boolean sampled){
+		String path = handler.getInfo().getMappingInfo().getPath();
+		return metered(handler, deadlineOf(metadata).bound(offload(metadata, handler, limited(handler, () -> {
+			Object result = invoke(handler, argument.get(), sampled);
+			return (Mono<Object>) monoOF(result);
+		})), () -> Rejections.deadlineExceeded(path)));
+	}
+
 	@Override
 	public Flux<Payload> requestStream(Payload payload) {
-		JsonNode metadata = readConnectionMetadata(payload.getMetadataUtf8());
+		ApplicationException oversized = oversized("requestStream", payload);
+		if(oversized != null){
+			return Flux.error(oversized);
+		}
+		boolean sampled = sampleStages();
+		return requestStream(readMetadata(payload, sampled), payload, sampled);
+	}
+
+	Flux<Payload> requestStream(JsonNode metadata, Payload payload, boolean sampled) {
 		try {
-			MethodHandler handler = handlerFor(metadata);
-			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()));
-			Object converted = converter.read(ServiceUtils.toByteArray(payload.getData()), getActualType(handler.getInfo().getParameterType()));
-			Flux result = (Flux)handler.invoke(handler.getInfo().buildInvocationArguments(converted, null));
-			return result.map(o ->
-				new PayloadImpl(converter.write(o))
-			);
+			MethodHandler handler = handlerFor(metadata, sampled);
+			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()), sampled);
+			byte[] data = ServiceUtils.toByteArray(payload.getData());
+			DispatchRecording recording = startRecording(handler);
+			return resumable(metadata, recordedMany(recording, dispatchMany(metadata, handler, () -> decode(handler, converter, data, getActualType(handler.getInfo().getParameterType()), recording, sampled), sampled)
+					.concatMap(o -> encodeMany(handler, converter, o, recording, sampled))));
 
 		} catch (Exception e){
 			return Flux.error(new ApplicationException("No path found for " + metadata.get("PATH").asText()));
 		}
 	}
 
+	/**
+	 * Files and buffers are sent as raw chunks, one payload each, anything else as a single converted payload.
+	 */
+	private Flux<Payload> encodeMany(MethodHandler handler, Converter converter, Object value, DispatchRecording recording, boolean sampled){
+		if(Chunks.isChunked(value)){
+			return Chunks.read(value, this.chunkSize).map(chunk -> new PayloadImpl(chunk));
+		}
+		return Flux.just(new PayloadImpl(encode(handler, converter, value, recording, sampled)));
+	}
+
+	private Flux<Object> dispatchMany(JsonNode metadata, MethodHandler handler, Supplier<Object> argument, boolean sampled){
+		String path = handler.getInfo().getMappingInfo().getPath();
+		return meteredMany(handler, deadlineOf(metadata).bound(offloadMany(metadata, handler, limitedMany(handler, () ->
+			(Flux<Object>) invoke(handler, argument.get(), sampled)
+		)), () -> Rejections.deadlineExceeded(path)));
+	}
+
 	private Mono monoOF(Object argument){
 
-		if(argument.getClass().isAssignableFrom(Mono.class)){
+		if(Mono.class.isAssignableFrom(argument.getClass())){
 			return (Mono)argument;
 		}else{
 			return Mono.just(argument);
@@ -171,43 +613,342 @@ public class DispatcherHandler extends AbstractRSocket implements ApplicationCon
 
 	@Override
 	public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+		return requestChannel(null, payloads);
+	}
+
+	/**
+	 * The route of a channel is only known once its first frame is read, that is when the listener is checked.
+	 */
+	Flux<Payload> requestChannel(String listener, Publisher<Payload> payloads) {
 		Flux<Payload> flux = Flux.from(payloads);
 		Payload headerPayload = flux.take(1).next().block();
-		JsonNode metadata = readConnectionMetadata(headerPayload.getMetadataUtf8());
+		ApplicationException oversizedHeader = oversized("channel", headerPayload);
+		if(oversizedHeader != null){
+			return Flux.error(oversizedHeader);
+		}
+		boolean sampled = sampleStages();
+		JsonNode metadata = readConnectionMetadata(headerPayload.getMetadataUtf8(), sampled);
+		if(!isExposed(metadata.path("PATH").asText(), listener)){
+			return Flux.error(new ApplicationException("No handler found"));
+		}
 		try{
-			MethodHandler handler = handlerFor(metadata);
-			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()));
+			MethodHandler handler = handlerFor(metadata, sampled);
+			Converter converter = converterFor(MimeType.valueOf(metadata.get("MIME_TYPE").textValue()), sampled);
+			DispatchRecording recording = startRecording(handler);
 			Flux converted = flux.repeat().map(payload -> {
-				return converter.read(ServiceUtils.toByteArray(payload.getData()), getActualType( handler.getInfo().getParameterType()));
+				ApplicationException oversized = oversized(metadata.path("PATH").asText(), payload);
+				if(oversized != null){
+					throw oversized;
+				}
+				return decode(handler, converter, ServiceUtils.toByteArray(payload.getData()), getActualType( handler.getInfo().getParameterType()), recording, sampled);
 			});
-			Flux result = (Flux)handler.invoke(handler.getInfo().buildInvocationArguments(converted, null));
-			return result.map(o ->
-					new PayloadImpl(converter.write(o))
-			);
+			return recordedMany(recording, dispatchChannel(metadata, handler, converted, sampled)
+					.concatMap(o -> encodeMany(handler, converter, o, recording, sampled)));
 		}catch (Exception e){
 			return Flux.error(e);
 		}
 	}
 
+	private Flux<Object> dispatchChannel(JsonNode metadata, MethodHandler handler, Flux<?> arguments, boolean sampled){
+		String path = handler.getInfo().getMappingInfo().getPath();
+		return meteredMany(handler, deadlineOf(metadata).bound(limitedMany(handler, () ->
+			(Flux<Object>) invoke(handler, arguments, sampled)
+		), () -> Rejections.deadlineExceeded(path)));
+	}
 
+	/**
+	 * In process one way call: the argument is passed by reference, limits, deadlines and ingestion queues apply as
+	 * they do for remote calls.
+	 * @param metadata the metadata a remote client would send
+	 * @param argument the argument of the service method
+	 */
+	public Mono<Void> localFireAndForget(Map<String, String> metadata, Object argument) {
+		try{
+			JsonNode node = mapper.valueToTree(metadata);
+			boolean sampled = sampleStages();
+			MethodHandler handler = handlerFor(node, sampled);
+			dispatchOneWay(node, handler, () -> invoke(handler, argument, sampled));
+			return Mono.empty();
+		}catch (Exception e){
+			return Mono.error(e);
+		}
+	}
 
-	private Converter converterFor(MimeType mimeType){
-		return this.converters
-				.stream()
-				.filter(binaryConverter -> binaryConverter.accept(mimeType))
-				.findFirst()
-				.orElseThrow(IllegalStateException::new);
+	/**
+	 * In process request one call, the result is passed by reference.
+	 */
+	public Mono<Object> localRequestResponse(Map<String, String> metadata, Object argument) {
+		try{
+			JsonNode node = mapper.valueToTree(metadata);
+			boolean sampled = sampleStages();
+			return dispatchOne(node, handlerFor(node, sampled), () -> argument, sampled);
+		}catch (Exception e){
+			return Mono.error(e);
+		}
 	}
 
-	private MethodHandler handlerFor(JsonNode metadata){
-		return this.mappingHandlers
-				.stream()
-				.filter(methodHandler -> { return methodHandler
-						.getInfo()
-						.getMappingInfo()
-						.getPath().equals(metadata.get("PATH").asText()); })
-				.findFirst()
-				.orElseThrow(() -> { return new ApplicationException("No handler found");} );
+	/**
+	 * In process request many call, the elements are passed by reference and the demand of the caller reaches the
+	 * service unchanged.
+	 */
+	public Flux<Object> localRequestStream(Map<String, String> metadata, Object argument) {
+		try{
+			JsonNode node = mapper.valueToTree(metadata);
+			boolean sampled = sampleStages();
+			return dispatchMany(node, handlerFor(node, sampled), () -> argument, sampled);
+		}catch (Exception e){
+			return Flux.error(e);
+		}
+	}
+
+	/**
+	 * In process request stream call, both streams are passed through.
+	 */
+	public Flux<Object> localRequestChannel(Map<String, String> metadata, Publisher<?> arguments) {
+		try{
+			JsonNode node = mapper.valueToTree(metadata);
+			boolean sampled = sampleStages();
+			return dispatchChannel(node, handlerFor(node, sampled), Flux.from(arguments), sampled);
+		}catch (Exception e){
+			return Flux.error(e);
+		}
+	}
+
+
+
+	private <T> Mono<T> metered(MethodHandler handler, Mono<T> invocation){
+		EndpointMetrics metrics = this.endpointMetrics.get(handler);
+		return (metrics != null) ? metrics.record(invocation) : invocation;
+	}
+
+	private <T> Flux<T> meteredMany(MethodHandler handler, Flux<T> invocation){
+		EndpointMetrics metrics = this.endpointMetrics.get(handler);
+		return (metrics != null) ? metrics.recordMany(invocation) : invocation;
+	}
+
+	/**
+	 * Subscribes to the invocation on an offload worker, once the request made it through the priority queue.
+	 */
+	private <T> Mono<T> offload(JsonNode metadata, MethodHandler handler, Mono<T> invocation){
+		if(this.priorityScheduler == null){
+			return invocation;
+		}
+		return this.priorityScheduler.admit(priorityOf(metadata, handler), handler.getInfo().getMappingInfo().getPath())
+				.then(invocation);
+	}
+
+	private <T> Flux<T> offloadMany(JsonNode metadata, MethodHandler handler, Flux<T> invocation){
+		if(this.priorityScheduler == null){
+			return invocation;
+		}
+		return this.priorityScheduler.admit(priorityOf(metadata, handler), handler.getInfo().getMappingInfo().getPath())
+				.thenMany(invocation);
+	}
+
+	/**
+	 * The priority sent by the client takes precedence over the one declared on the endpoint.
+	 */
+	private PriorityClass priorityOf(JsonNode metadata, MethodHandler handler){
+		String requested = metadata.path("PRIORITY").asText(null);
+		if(requested != null){
+			try{
+				return PriorityClass.valueOf(requested);
+			}catch (IllegalArgumentException e){
+				logger.debug("Ignoring unknown priority {}", requested);
+			}
+		}
+		return (handler.getInfo().getPriority() != null) ? handler.getInfo().getPriority() : PriorityClass.NORMAL;
+	}
+
+	private <T> Mono<T> limited(MethodHandler handler, Supplier<Mono<T>> invocation){
+		ConcurrencyLimiter limiter = this.limiters.get(handler);
+		if(limiter == null){
+			return Mono.defer(invocation);
+		}
+		return Mono.defer(() -> acquire(handler, limiter, invocation));
+	}
+
+	private <T> Mono<T> acquire(MethodHandler handler, ConcurrencyLimiter limiter, Supplier<Mono<T>> invocation){
+		if(!limiter.tryAcquire()){
+			return Mono.error(Rejections.concurrencyLimitExceeded(handler.getInfo().getMappingInfo().getPath(), limiter.getLimit()));
+		}
+		long start = System.nanoTime();
+		try{
+			return invocation.get()
+					.doFinally(signal -> limiter.release(System.nanoTime() - start, SignalType.CANCEL.equals(signal)));
+		}catch (RuntimeException e){
+			limiter.release(System.nanoTime() - start, false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Streams hold their permit until they terminate, the latency fed to the limiter is the time to the first element.
+	 */
+	private <T> Flux<T> limitedMany(MethodHandler handler, Supplier<Flux<T>> invocation){
+		ConcurrencyLimiter limiter = this.limiters.get(handler);
+		if(limiter == null){
+			return Flux.defer(invocation);
+		}
+		return Flux.defer(() -> acquireMany(handler, limiter, invocation));
+	}
+
+	private <T> Flux<T> acquireMany(MethodHandler handler, ConcurrencyLimiter limiter, Supplier<Flux<T>> invocation){
+		if(!limiter.tryAcquire()){
+			return Flux.error(Rejections.concurrencyLimitExceeded(handler.getInfo().getMappingInfo().getPath(), limiter.getLimit()));
+		}
+		long start = System.nanoTime();
+		AtomicLong firstElement = new AtomicLong();
+		try{
+			return invocation.get()
+					.doOnNext(o -> firstElement.compareAndSet(0, System.nanoTime()))
+					.doFinally(signal -> {
+						long end = (firstElement.get() != 0) ? firstElement.get() : System.nanoTime();
+						limiter.release(end - start, SignalType.CANCEL.equals(signal) && firstElement.get() == 0);
+					});
+		}catch (RuntimeException e){
+			limiter.release(System.nanoTime() - start, false);
+			throw e;
+		}
+	}
+
+	/**
+	 * A stream requested again with a known token is served from its session, the new invocation is never subscribed.
+	 */
+	private Flux<Payload> resumable(JsonNode metadata, Flux<Payload> stream){
+		if(this.resumeSessions == null || !metadata.hasNonNull("RESUME_TOKEN")){
+			return stream;
+		}
+		return this.resumeSessions.attach(metadata.get("RESUME_TOKEN").asText(), metadata.path("RESUME_POSITION").asLong(0), stream);
+	}
+
+	/**
+	 * The budget is relative, the deadline starts when the request is read.
+	 */
+	private Deadline deadlineOf(JsonNode metadata){
+		if(!metadata.hasNonNull("TIMEOUT")){
+			return Deadline.NONE;
+		}
+		return Deadline.after(Duration.ofMillis(metadata.get("TIMEOUT").asLong()));
+	}
+
+	private Object decode(MethodHandler handler, Converter converter, byte[] data, Class<?> type, DispatchRecording recording, boolean sampled){
+		StageMetrics.Endpoint stages = this.endpointStages.get(handler);
+		if(stages == null && recording == null){
+			return converter.read(data, type);
+		}
+		long stageStart = (stages != null) ? stages.start(sampled) : StageMetrics.NOT_SAMPLED;
+		long start = System.nanoTime();
+		Object decoded = converter.read(data, type);
+		if(stages != null){
+			stages.stopDecode(stageStart, data.length);
+		}
+		if(recording != null){
+			recording.decoded(System.nanoTime() - start, data.length);
+		}
+		return decoded;
+	}
+
+	private Object invoke(MethodHandler handler, Object argument, boolean sampled){
+		StageMetrics.Endpoint stages = this.endpointStages.get(handler);
+		long start = (stages != null) ? stages.start(sampled) : StageMetrics.NOT_SAMPLED;
+		try{
+			return handler.invoke(handler.getInfo().buildInvocationArguments(argument, null));
+		}finally {
+			if(stages != null){
+				stages.stop(Stage.INVOKE, start);
+			}
+		}
+	}
+
+	private byte[] encode(MethodHandler handler, Converter converter, Object value, DispatchRecording recording, boolean sampled){
+		StageMetrics.Endpoint stages = this.endpointStages.get(handler);
+		if(stages == null && recording == null){
+			return converter.write(value);
+		}
+		long stageStart = (stages != null) ? stages.start(sampled) : StageMetrics.NOT_SAMPLED;
+		long start = System.nanoTime();
+		byte[] encoded = converter.write(value);
+		if(stages != null){
+			stages.stopEncode(stageStart, encoded.length);
+		}
+		if(recording != null){
+			recording.encoded(System.nanoTime() - start, encoded.length);
+		}
+		return encoded;
+	}
+
+	/**
+	 * @return the flight recorder event of a request to the handler, null unless a recording enables it
+	 */
+	private DispatchRecording startRecording(MethodHandler handler){
+		if(!this.flightRecorderEnabled){
+			return null;
+		}
+		return FlightRecorderEvents.startDispatch(handler.getInfo().getMappingInfo().getPath(), handler.getInfo().getMappingInfo().getExchangeMode().name());
+	}
+
+	private Runnable recordedOneWay(DispatchRecording recording, Runnable invocation){
+		if(recording == null){
+			return invocation;
+		}
+		return () -> {
+			try{
+				invocation.run();
+			}catch (RuntimeException e){
+				recording.failed(e);
+				throw e;
+			}finally {
+				recording.finish();
+			}
+		};
+	}
+
+	private <T> Mono<T> recorded(DispatchRecording recording, Mono<T> result){
+		return (recording != null) ? result.doOnError(recording::failed).doFinally(signal -> recording.finish()) : result;
+	}
+
+	private <T> Flux<T> recordedMany(DispatchRecording recording, Flux<T> result){
+		return (recording != null) ? result.doOnError(recording::failed).doFinally(signal -> recording.finish()) : result;
+	}
+
+	private long startStage(boolean sampled){
+		return (this.stageMetrics != null) ? this.stageMetrics.start(sampled) : StageMetrics.NOT_SAMPLED;
+	}
+
+	private void stopStage(Stage stage, long start){
+		if(this.stageMetrics != null){
+			this.stageMetrics.stop(stage, start);
+		}
+	}
+
+	private Converter converterFor(MimeType mimeType, boolean sampled){
+		long start = startStage(sampled);
+		try{
+			return this.converters
+					.stream()
+					.filter(binaryConverter -> binaryConverter.accept(mimeType))
+					.findFirst()
+					.orElseThrow(IllegalStateException::new);
+		}finally {
+			stopStage(Stage.CONVERTER, start);
+		}
+	}
+
+	private MethodHandler handlerFor(JsonNode metadata, boolean sampled){
+		long start = startStage(sampled);
+		try{
+			return this.mappingHandlers
+					.stream()
+					.filter(methodHandler -> { return methodHandler
+							.getInfo()
+							.getMappingInfo()
+							.getPath().equals(metadata.get("PATH").asText()); })
+					.findFirst()
+					.orElseThrow(() -> { return new ApplicationException("No handler found");} );
+		}finally {
+			stopStage(Stage.ROUTE, start);
+		}
 	}
 
 }
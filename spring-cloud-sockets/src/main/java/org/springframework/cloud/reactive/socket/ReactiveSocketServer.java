@@ -17,6 +17,10 @@
 
 package org.springframework.cloud.reactive.socket;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -26,20 +30,41 @@ import io.rsocket.transport.ServerTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
 
+import org.springframework.cloud.reactive.socket.flow.DrainGate;
+import org.springframework.cloud.reactive.socket.flow.LeaseGranter;
+import org.springframework.cloud.reactive.socket.metrics.ConnectionRegistry;
 import org.springframework.context.SmartLifecycle;
 
 /**
+ * Binds one or more listeners, each one made of its own transports and acceptor. Besides the default listener, named
+ * listeners let an application accept connections on several ports, for instance an internal port for critical
+ * traffic next to a public one, each served by its own event loops.
+ *
  * @author Vinicius Carvalho
  */
 public class ReactiveSocketServer implements SmartLifecycle{
 
-	private ServerTransport transport;
+	public static final String DEFAULT_LISTENER = "default";
+
+	private final List<Listener> listeners = new ArrayList<>();
+
+	private LeaseGranter leaseGranter;
+
+	private int fragmentSize = 0;
+
+	private DrainGate drainGate;
 
-	private SocketAcceptor acceptor;
+	private Duration drainTimeout = Duration.ofSeconds(30);
+
+	private ConnectionRegistry connectionRegistry;
 
 	private Disposable disposable;
 
+	private Mono<Void> stopping;
+
 	private Lock lifecycleMonitor = new ReentrantLock();
 
 	private volatile boolean running = false;
@@ -47,8 +72,63 @@ public class ReactiveSocketServer implements SmartLifecycle{
 	private Logger logger = LoggerFactory.getLogger(getClass());
 
 	public ReactiveSocketServer(ServerTransport transport, SocketAcceptor acceptor) {
-		this.transport = transport;
-		this.acceptor = acceptor;
+		this.listeners.add(new Listener(DEFAULT_LISTENER, Collections.singletonList(transport), acceptor));
+	}
+
+	/**
+	 * @param transports transports bound when the server starts, for instance several acceptors sharing a port
+	 * with SO_REUSEPORT
+	 * @param acceptor accepts the connections of all the transports
+	 */
+	public ReactiveSocketServer(List<? extends ServerTransport> transports, SocketAcceptor acceptor) {
+		this.listeners.add(new Listener(DEFAULT_LISTENER, transports, acceptor));
+	}
+
+	/**
+	 * Adds a listener bound when the server starts. Must be called before the server is started.
+	 * @param name name of the listener, endpoints are assigned to it with
+	 * {@link org.springframework.cloud.reactive.socket.annotation.Listener}
+	 * @param transports transports of the listener, usually with their own event loops
+	 * @param acceptor accepts the connections of the listener
+	 */
+	public void addListener(String name, List<? extends ServerTransport> transports, SocketAcceptor acceptor) {
+		this.listeners.add(new Listener(name, transports, acceptor));
+	}
+
+	/**
+	 * Leases are granted while the server is running.
+	 * @param leaseGranter the granter shared with the {@link DispatchSocketAcceptor}
+	 */
+	public void setLeaseGranter(LeaseGranter leaseGranter) {
+		this.leaseGranter = leaseGranter;
+	}
+
+	/**
+	 * Splits outbound payloads in frames of at most the given size, so a large response does not hold the connection
+	 * for the time of a single huge write. A value of 0 (the default) sends every payload as a single frame.
+	 * @param fragmentSize maximum frame size in bytes
+	 */
+	public void setFragmentSize(int fragmentSize) {
+		this.fragmentSize = fragmentSize;
+	}
+
+	/**
+	 * Drains the server when it stops: listeners stop accepting connections, leases are revoked, clients are told to
+	 * go away and requests in flight may complete until the drain timeout.
+	 * @param drainGate the gate shared with the {@link DispatchSocketAcceptor} of every listener
+	 * @param drainTimeout how long requests in flight may take to complete
+	 */
+	public void setDrainGate(DrainGate drainGate, Duration drainTimeout) {
+		this.drainGate = drainGate;
+		this.drainTimeout = drainTimeout;
+	}
+
+	/**
+	 * Idle connections are closed while the server is running.
+	 * @param connectionRegistry the registry shared with the {@link DispatchSocketAcceptor} of every listener
+	 */
+	public void setConnectionRegistry(ConnectionRegistry connectionRegistry) {
+		this.connectionRegistry = connectionRegistry;
 	}
 
 	@Override
@@ -56,15 +136,16 @@ public class ReactiveSocketServer implements SmartLifecycle{
 		return true;
 	}
 
+	/**
+	 * Stops accepting connections right away and runs the callback once the requests in flight are drained, without
+	 * holding up the shutdown of the other beans of the phase.
+	 */
 	@Override
 	public void stop(Runnable runnable) {
-		try{
-			this.lifecycleMonitor.lock();
-			this.stop();
+		stopping().subscribe(null, throwable -> {
+			logger.warn("Drain failed", throwable);
 			runnable.run();
-		} finally {
-			this.lifecycleMonitor.unlock();
-		}
+		}, runnable);
 	}
 
 	@Override
@@ -72,12 +153,32 @@ public class ReactiveSocketServer implements SmartLifecycle{
 		try{
 			this.lifecycleMonitor.lock();
 			if(!running){
-				logger.info("Starting RSocket server using transport: {} ", this.transport.getClass().getName());
-				this.disposable = RSocketFactory.receive()
-						.acceptor(acceptor)
-						.transport(transport)
-						.start()
-						.subscribe();
+				Disposable.Composite servers = Disposables.composite();
+				for(Listener listener : this.listeners){
+					for(ServerTransport transport : listener.transports){
+						logger.info("Starting RSocket server listener {} using transport: {} ", listener.name, transport.getClass().getName());
+						RSocketFactory.ServerRSocketFactory factory = RSocketFactory.receive();
+						if(fragmentSize > 0){
+							factory.fragment(fragmentSize);
+						}
+						servers.add(factory
+								.acceptor(listener.acceptor)
+								.transport(transport)
+								.start()
+								.subscribe(servers::add));
+					}
+				}
+				this.disposable = servers;
+				this.stopping = null;
+				if(drainGate != null){
+					drainGate.open();
+				}
+				if(leaseGranter != null){
+					leaseGranter.start();
+				}
+				if(connectionRegistry != null){
+					connectionRegistry.start();
+				}
 				running = true;
 			}
 		}finally {
@@ -87,10 +188,31 @@ public class ReactiveSocketServer implements SmartLifecycle{
 
 	@Override
 	public void stop() {
+		stopping().block();
+	}
+
+	/**
+	 * @return a Mono completing once the server is drained, shared by concurrent calls to stop
+	 */
+	private Mono<Void> stopping() {
 		try{
 			this.lifecycleMonitor.lock();
-			this.disposable.dispose();
-			this.running = false;
+			if(!running){
+				return Mono.empty();
+			}
+			if(this.stopping == null){
+				this.disposable.dispose();
+				if(connectionRegistry != null){
+					connectionRegistry.stop();
+				}
+				if(leaseGranter != null){
+					leaseGranter.revokeAll();
+					leaseGranter.stop();
+				}
+				Mono<Void> drained = (drainGate != null) ? drainGate.drain(drainTimeout) : Mono.empty();
+				this.stopping = drained.doFinally(signal -> this.running = false).cache();
+			}
+			return this.stopping;
 		} finally {
 			this.lifecycleMonitor.unlock();
 		}
@@ -105,4 +227,19 @@ public class ReactiveSocketServer implements SmartLifecycle{
 	public int getPhase() {
 		return 0;
 	}
+
+	private static class Listener {
+
+		private final String name;
+
+		private final List<ServerTransport> transports;
+
+		private final SocketAcceptor acceptor;
+
+		Listener(String name, List<? extends ServerTransport> transports, SocketAcceptor acceptor) {
+			this.name = name;
+			this.transports = new ArrayList<>(transports);
+			this.acceptor = acceptor;
+		}
+	}
 }
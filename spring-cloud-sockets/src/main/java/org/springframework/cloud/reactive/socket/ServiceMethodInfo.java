@@ -19,11 +19,20 @@ package org.springframework.cloud.reactive.socket;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import reactor.core.publisher.Flux;
 
+import org.springframework.cloud.reactive.socket.annotation.Idempotent;
+import org.springframework.cloud.reactive.socket.annotation.Listener;
 import org.springframework.cloud.reactive.socket.annotation.Payload;
+import org.springframework.cloud.reactive.socket.annotation.Priority;
 import org.springframework.cloud.reactive.socket.annotation.ReactiveSocket;
+import org.springframework.cloud.reactive.socket.flow.PriorityClass;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotatedElementUtils;
@@ -46,6 +55,12 @@ public class ServiceMethodInfo {
 
 	MethodParameter metadataParameter;
 
+	private final boolean idempotent;
+
+	private final PriorityClass priority;
+
+	private final Set<String> listeners;
+
 	public ServiceMethodInfo(Method method) {
 		this.method = method;
 		ReactiveSocket annotated = AnnotatedElementUtils.findMergedAnnotation(method, ReactiveSocket.class);
@@ -54,6 +69,16 @@ public class ServiceMethodInfo {
 		}
 		this.mappingInfo = new ServiceMappingInfo(annotated.value(), annotated.mimeType(), annotated.exchangeMode());
 		this.returnType = ResolvableType.forMethodReturnType(method);
+		this.idempotent = AnnotatedElementUtils.hasAnnotation(method, Idempotent.class);
+		Priority priorityAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, Priority.class);
+		this.priority = (priorityAnnotation != null) ? priorityAnnotation.value() : null;
+		Listener listenerAnnotation = AnnotatedElementUtils.findMergedAnnotation(method, Listener.class);
+		if(listenerAnnotation == null){
+			listenerAnnotation = AnnotatedElementUtils.findMergedAnnotation(method.getDeclaringClass(), Listener.class);
+		}
+		this.listeners = (listenerAnnotation != null)
+				? Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(listenerAnnotation.value())))
+				: Collections.emptySet();
 		findPayloadParameter();
 		validate();
 
@@ -128,6 +153,32 @@ public class ServiceMethodInfo {
 		return mappingInfo;
 	}
 
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	/**
+	 * @return the priority class declared with {@link Priority}, or null if the method has none
+	 */
+	public PriorityClass getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return the listeners declared with {@link Listener}, empty if the endpoint is exposed on every listener
+	 */
+	public Set<String> getListeners() {
+		return listeners;
+	}
+
+	/**
+	 * @return true if this is a one way method whose payload is a {@link List}, so batched frames are delivered in a
+	 * single invocation
+	 */
+	public boolean isBatchConsumer() {
+		return ExchangeMode.ONE_WAY.equals(this.mappingInfo.getExchangeMode()) && List.class.isAssignableFrom(this.payloadType.resolve());
+	}
+
 	public Object[] buildInvocationArguments(Object payload, Object metadata){
 		Object[] args = new Object[method.getParameterCount()];
 		for(int i=0; i<args.length; i++){
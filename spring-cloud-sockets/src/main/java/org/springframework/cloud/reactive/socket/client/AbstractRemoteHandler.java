@@ -18,14 +18,21 @@
 package org.springframework.cloud.reactive.socket.client;
 
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantLock;
 
 import io.rsocket.RSocket;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
 import org.springframework.cloud.reactive.socket.converter.Converter;
+import org.springframework.cloud.reactive.socket.flow.Deadline;
+import org.springframework.cloud.reactive.socket.jfr.ClientCallRecording;
+import org.springframework.cloud.reactive.socket.jfr.FlightRecorderEvents;
 
 /**
  * @author Vinicius Carvalho
@@ -41,6 +48,12 @@ public abstract class AbstractRemoteHandler {
 
 	protected Converter metadataConverter;
 
+	protected Duration timeout;
+
+	protected ResiliencePolicy resiliencePolicy;
+
+	private boolean flightRecorderEnabled = true;
+
 	private ByteBuffer metadata;
 
 	private ReentrantLock lock = new ReentrantLock();
@@ -53,6 +66,32 @@ public abstract class AbstractRemoteHandler {
 		this.metadataConverter = converter;
 	}
 
+	/**
+	 * Bounds every call: the remaining budget is sent to the server and the call fails on the client once it elapses.
+	 * @param timeout the budget of each call, null for unbounded calls
+	 */
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Retries failed calls and fails fast while the endpoint is unhealthy. Applies to request one and request many
+	 * calls.
+	 * @param resiliencePolicy the policy, null to disable
+	 */
+	public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+		this.resiliencePolicy = resiliencePolicy;
+	}
+
+	/**
+	 * Emits a flight recorder event for every call slower than the threshold of the recording, see
+	 * {@link FlightRecorderEvents}. Calls are only instrumented while a recording enables the event.
+	 * @param flightRecorderEnabled false to never emit events
+	 */
+	public void setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+		this.flightRecorderEnabled = flightRecorderEnabled;
+	}
+
 	public AbstractRemoteHandler(RSocket socket, ServiceMethodInfo info) {
 		this.socket = socket;
 		this.info = info;
@@ -73,16 +112,78 @@ public abstract class AbstractRemoteHandler {
 		return this.metadata;
 	}
 
+	/**
+	 * @param deadline the deadline of the call
+	 * @return the metadata of the call, with the remaining budget if the deadline is bounded
+	 */
+	public ByteBuffer getMetadata(Deadline deadline) {
+		if(!deadline.isBounded()){
+			return getMetadata();
+		}
+		return ByteBuffer.wrap(metadataConverter.write(metadataMap(deadline)));
+	}
+
+	protected Deadline newDeadline() {
+		return (timeout != null) ? Deadline.after(timeout) : Deadline.NONE;
+	}
+
+	protected TimeoutException deadlineExceeded() {
+		return new TimeoutException("Did not complete " + info.getMappingInfo().getPath() + " within " + timeout.toMillis() + "ms");
+	}
+
 	private ByteBuffer initMetadata(){
+		return ByteBuffer.wrap(metadataConverter.write(metadataMap()));
+	}
+
+	protected Map<String,String> metadataMap(Deadline deadline){
+		Map<String,String> metadataMap = metadataMap();
+		if(deadline.isBounded()){
+			metadataMap.put("TIMEOUT", String.valueOf(deadline.remaining().toMillis()));
+		}
+		return metadataMap;
+	}
+
+	protected Map<String,String> metadataMap(){
 		Map<String,String> metadataMap = new HashMap<>();
 		metadataMap.put("PATH", info.getMappingInfo().getPath());
 		metadataMap.put("MIME_TYPE", info.getMappingInfo().getMimeType().toString());
-		return ByteBuffer.wrap(metadataConverter.write(metadataMap));
+		if(info.getPriority() != null){
+			metadataMap.put("PRIORITY", info.getPriority().name());
+		}
+		return metadataMap;
 	}
 
 
 	public Object invoke(Object argument){
-		return doInvoke(argument);
+		ClientCallRecording recording = flightRecorderEnabled
+				? FlightRecorderEvents.startClientCall(info.getMappingInfo().getPath(), info.getMappingInfo().getExchangeMode().name())
+				: null;
+		if(recording == null){
+			return doInvoke(argument);
+		}
+		try{
+			return recorded(recording, doInvoke(argument));
+		}catch (RuntimeException e){
+			recording.failed(e);
+			recording.finish();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reactive results are recorded until they terminate, blocking calls and one way calls once they return.
+	 */
+	private Object recorded(ClientCallRecording recording, Object result){
+		if(result instanceof Mono){
+			return ((Mono<?>) result).doOnError(recording::failed).doFinally(signal -> recording.finish());
+		}
+		if(result instanceof Flux){
+			return ((Flux<?>) result).doOnNext(element -> recording.received())
+					.doOnError(recording::failed)
+					.doFinally(signal -> recording.finish());
+		}
+		recording.finish();
+		return result;
 	}
 
 	public abstract Object doInvoke(Object argument);
@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.RSocketProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * Go away signal sent by a draining server, see {@link org.springframework.cloud.reactive.socket.flow.DrainGate}. The
+ * {@link #responder(RSocket)} receives it and {@link #wrap(RSocket)} returns a socket that reports itself unavailable
+ * from then on, so pools and load balancers send new requests to other connections while the requests in flight
+ * complete.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ClientGoAway {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private volatile boolean received;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param next responder of the other metadata pushed by the server, such as leases
+	 * @return the client side responder handling the go away signal
+	 */
+	public RSocket responder(RSocket next) {
+		return new RSocketProxy(next) {
+			@Override
+			public Mono<Void> metadataPush(Payload payload) {
+				return isGoAway(payload.getMetadataUtf8()) ? Mono.fromRunnable(ClientGoAway.this::onGoAway) : next.metadataPush(payload);
+			}
+		};
+	}
+
+	public RSocket wrap(RSocket socket) {
+		return new RSocketProxy(socket) {
+			@Override
+			public double availability() {
+				return received ? 0.0 : socket.availability();
+			}
+		};
+	}
+
+	public boolean isReceived() {
+		return received;
+	}
+
+	private void onGoAway() {
+		logger.info("Server is going away, no new requests are sent on this connection");
+		this.received = true;
+	}
+
+	private boolean isGoAway(String metadata) {
+		try {
+			JsonNode node = mapper.readValue(metadata, JsonNode.class);
+			return node.path("GOAWAY").asBoolean(false);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.ReplayProcessor;
+
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+
+/**
+ * Lease granted by the server to a connection. The {@link #responder()} receives the leases pushed by the server and
+ * {@link #wrap(RSocket)} returns a socket that only sends a request when it holds a permit. Requests wait for the next
+ * lease when none is available, and fail with a {@link Rejections#NO_LEASE} rejection if it does not come in time.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ClientLease {
+
+	private final Duration maxWait;
+
+	private final ReplayProcessor<Grant> grants = ReplayProcessor.cacheLast();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private volatile Grant current;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param maxWait how long a request waits for a permit before failing
+	 */
+	public ClientLease(Duration maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * @return the client side responder handling the leases pushed by the server
+	 */
+	public RSocket responder() {
+		return new AbstractRSocket() {
+			@Override
+			public Mono<Void> metadataPush(Payload payload) {
+				return Mono.fromRunnable(() -> onLease(payload.getMetadataUtf8()));
+			}
+		};
+	}
+
+	/**
+	 * @param socket the socket connected to the server that grants the leases
+	 * @return a socket that respects the leases
+	 */
+	public RSocket wrap(RSocket socket) {
+		return new LeasedRSocket(socket);
+	}
+
+	/**
+	 * Replaces the current lease, unused permits of the previous one are lost.
+	 * @param permits number of requests allowed
+	 * @param ttl time the lease is valid for
+	 */
+	public void grant(int permits, Duration ttl) {
+		Grant grant = new Grant(permits, System.currentTimeMillis() + ttl.toMillis());
+		this.current = grant;
+		this.grants.onNext(grant);
+	}
+
+	/**
+	 * @return the permits left on the current lease, 0 if it expired
+	 */
+	public int getAvailablePermits() {
+		Grant grant = this.current;
+		return (grant == null || grant.isExpired()) ? 0 : grant.permits.get();
+	}
+
+	boolean tryAcquire() {
+		Grant grant = this.current;
+		return grant != null && grant.tryAcquire();
+	}
+
+	private Mono<Void> acquire() {
+		if(tryAcquire()){
+			return Mono.empty();
+		}
+		return grants.filter(grant -> tryAcquire())
+				.next()
+				.timeout(maxWait, Mono.error(Rejections.noLease(maxWait)))
+				.then();
+	}
+
+	private void onLease(String metadata) {
+		try {
+			JsonNode lease = mapper.readValue(metadata, JsonNode.class);
+			grant(lease.path("LEASE_PERMITS").asInt(0), Duration.ofMillis(lease.path("LEASE_TTL").asLong(0)));
+		}
+		catch (IOException e) {
+			logger.debug("Ignoring unreadable lease {}", metadata, e);
+		}
+	}
+
+	private static class Grant {
+
+		private final AtomicInteger permits;
+
+		private final long expiresAt;
+
+		Grant(int permits, long expiresAt) {
+			this.permits = new AtomicInteger(permits);
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() >= expiresAt;
+		}
+
+		boolean tryAcquire() {
+			if(isExpired()){
+				return false;
+			}
+			int available;
+			do{
+				available = permits.get();
+				if(available <= 0){
+					return false;
+				}
+			}while(!permits.compareAndSet(available, available - 1));
+			return true;
+		}
+	}
+
+	private class LeasedRSocket extends RSocketProxy {
+
+		private final RSocket delegate;
+
+		LeasedRSocket(RSocket delegate) {
+			super(delegate);
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Mono<Void> fireAndForget(Payload payload) {
+			return Mono.defer(ClientLease.this::acquire).then(Mono.defer(() -> delegate.fireAndForget(payload)));
+		}
+
+		@Override
+		public Mono<Payload> requestResponse(Payload payload) {
+			return Mono.defer(ClientLease.this::acquire).then(Mono.defer(() -> delegate.requestResponse(payload)));
+		}
+
+		@Override
+		public Flux<Payload> requestStream(Payload payload) {
+			return Mono.defer(ClientLease.this::acquire).thenMany(Flux.defer(() -> delegate.requestStream(payload)));
+		}
+
+		@Override
+		public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+			return Mono.defer(ClientLease.this::acquire).thenMany(Flux.defer(() -> delegate.requestChannel(payloads)));
+		}
+	}
+}
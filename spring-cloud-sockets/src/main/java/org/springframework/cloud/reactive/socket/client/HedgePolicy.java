@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Hedging for {@link org.springframework.cloud.reactive.socket.annotation.Idempotent} request one methods. When a
+ * request has not answered within a percentile of the recent latencies of its path, a backup request is sent and the
+ * first response wins, the other request is cancelled. Over a pooled or load balanced socket the backup is routed on
+ * its own, so it usually lands on another connection or instance.
+ *
+ * Hedges are paid from a budget: every request adds {@code budget} of a token and a hedge costs a whole one, so hedges
+ * never add more than that share of extra load. No request is hedged until a path has enough latency samples.
+ * Primaries cancelled because their backup answered first, or that failed, are sampled with the time they were
+ * observed for, so slow requests keep weighing on the percentile instead of only the ones that won.
+ *
+ * @author Vinicius Carvalho
+ */
+public class HedgePolicy {
+
+	private static final int WINDOW = 1024;
+
+	private static final int MIN_SAMPLES = 32;
+
+	private static final int RECOMPUTE_EVERY = 64;
+
+	private static final long TOKEN = 1000;
+
+	private static final long MAX_BALANCE = 10 * TOKEN;
+
+	private final double percentile;
+
+	private final long deposit;
+
+	private final long minDelay;
+
+	private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+	private final LongAdder hedges = new LongAdder();
+
+	private final LongAdder wins = new LongAdder();
+
+	/**
+	 * @param percentile latency percentile after which a backup is sent, such as 0.95
+	 * @param budget maximum share of extra requests, such as 0.05
+	 * @param minDelay lower bound of the delay before a backup is sent
+	 */
+	public HedgePolicy(double percentile, double budget, Duration minDelay) {
+		this.percentile = percentile;
+		this.deposit = (long) (budget * TOKEN);
+		this.minDelay = minDelay.toNanos();
+	}
+
+	/**
+	 * @param path route of the request, latencies are tracked per route
+	 * @param request sends the request every time it is called
+	 * @return the first response
+	 */
+	public <T> Mono<T> hedge(String path, Supplier<Mono<T>> request) {
+		return Mono.defer(() -> {
+			Route route = routes.computeIfAbsent(path, key -> new Route());
+			route.deposit();
+			long start = System.nanoTime();
+			Mono<T> primary = request.get().doFinally(signal -> route.record(System.nanoTime() - start));
+			long delay = route.delay;
+			Mono<T> backup = (delay > 0) ? Mono.delay(Duration.ofNanos(delay)).flatMap(tick -> backup(route, request)) : Mono.never();
+			return Mono.first(primary, backup);
+		});
+	}
+
+	/**
+	 * @return the number of backup requests sent
+	 */
+	public long getHedgeCount() {
+		return hedges.sum();
+	}
+
+	/**
+	 * @return the number of backup requests that answered first
+	 */
+	public long getWinCount() {
+		return wins.sum();
+	}
+
+	/**
+	 * @return the current delay before a request to the path is hedged, null while there are not enough samples
+	 */
+	public Duration getDelay(String path) {
+		Route route = routes.get(path);
+		return (route != null && route.delay > 0) ? Duration.ofNanos(route.delay) : null;
+	}
+
+	private <T> Mono<T> backup(Route route, Supplier<Mono<T>> request) {
+		if(!route.withdraw()){
+			return Mono.never();
+		}
+		hedges.increment();
+		return request.get().doOnSuccess(value -> wins.increment());
+	}
+
+	/**
+	 * Keeps the last latencies of a path in a ring. Writes race without locks, the percentile is an estimate anyway.
+	 */
+	private class Route {
+
+		private final long[] samples = new long[WINDOW];
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong balance = new AtomicLong();
+
+		private volatile long delay = -1;
+
+		void record(long nanos) {
+			long n = count.getAndIncrement() + 1;
+			samples[(int) ((n - 1) % WINDOW)] = nanos;
+			if(n == MIN_SAMPLES || (n > MIN_SAMPLES && n % RECOMPUTE_EVERY == 0)){
+				long[] sorted = Arrays.copyOf(samples, (int) Math.min(n, WINDOW));
+				Arrays.sort(sorted);
+				int index = Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1));
+				delay = Math.max(sorted[index], minDelay);
+			}
+		}
+
+		void deposit() {
+			long current;
+			do{
+				current = balance.get();
+			}while(current < MAX_BALANCE && !balance.compareAndSet(current, Math.min(MAX_BALANCE, current + deposit)));
+		}
+
+		boolean withdraw() {
+			long current;
+			do{
+				current = balance.get();
+				if(current < TOKEN){
+					return false;
+				}
+			}while(!balance.compareAndSet(current, current - TOKEN));
+			return true;
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.reactive.socket.flow.Ewma;
+
+/**
+ * Spreads requests across the instances of a service. For each request two open connections are picked at random and
+ * the one with the lowest cost wins, the cost being the moving average of its latency times its outstanding requests
+ * plus one (power of two choices). A connection without latency samples yet is given the highest latency measured on
+ * the other connections, so a new instance is not flooded before its first response. Connections are opened as
+ * addresses appear; connections to removed addresses stop receiving requests and are closed once their outstanding
+ * requests complete.
+ *
+ * @author Vinicius Carvalho
+ */
+public class LoadBalancedRSocket extends AbstractRSocket {
+
+	private final Function<InetSocketAddress, Mono<RSocket>> connector;
+
+	private final Map<InetSocketAddress, Member> members = new ConcurrentHashMap<>();
+
+	private Duration reconnectDelay = Duration.ofSeconds(1);
+
+	private volatile boolean disposed;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param connector opens a connection to an address every time it is subscribed to
+	 */
+	public LoadBalancedRSocket(Function<InetSocketAddress, Mono<RSocket>> connector) {
+		this.connector = connector;
+	}
+
+	public void setReconnectDelay(Duration reconnectDelay) {
+		this.reconnectDelay = reconnectDelay;
+	}
+
+	/**
+	 * Replaces the set of instances: connections are opened to new addresses and drained from removed ones.
+	 * @param addresses the current instances of the service
+	 */
+	public synchronized void setAddresses(Collection<InetSocketAddress> addresses) {
+		if(disposed){
+			return;
+		}
+		Set<InetSocketAddress> current = new HashSet<>(addresses);
+		for(InetSocketAddress address : current){
+			if(!members.containsKey(address)){
+				Member member = new Member(address);
+				members.put(address, member);
+				connect(member);
+			}
+		}
+		for(Member member : new ArrayList<>(members.values())){
+			if(!current.contains(member.address)){
+				drain(member);
+			}
+		}
+	}
+
+	/**
+	 * Follows a source of instances, such as a discovery client polled periodically.
+	 * @param addresses every element is the complete set of instances at that time
+	 * @return a disposable to stop following the source
+	 */
+	public Disposable watch(Publisher<? extends Collection<InetSocketAddress>> addresses) {
+		return Flux.from(addresses).subscribe(this::setAddresses, throwable -> logger.warn("Address source failed", throwable));
+	}
+
+	@Override
+	public Mono<Void> fireAndForget(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.fireAndForget(payload)));
+	}
+
+	@Override
+	public Mono<Payload> requestResponse(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.requestResponse(payload)));
+	}
+
+	@Override
+	public Flux<Payload> requestStream(Payload payload) {
+		return Flux.defer(() -> routeMany(socket -> socket.requestStream(payload)));
+	}
+
+	@Override
+	public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+		return Flux.defer(() -> routeMany(socket -> socket.requestChannel(payloads)));
+	}
+
+	@Override
+	public Mono<Void> metadataPush(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.metadataPush(payload)));
+	}
+
+	@Override
+	public double availability() {
+		return members.values().stream().anyMatch(Member::isAvailable) ? 1.0 : 0.0;
+	}
+
+	@Override
+	public synchronized void dispose() {
+		this.disposed = true;
+		members.values().forEach(Member::close);
+		members.clear();
+		super.dispose();
+	}
+
+	/**
+	 * @return the addresses with an open connection that is not draining
+	 */
+	public Set<InetSocketAddress> getActiveAddresses() {
+		Set<InetSocketAddress> active = new HashSet<>();
+		members.values().stream().filter(Member::isAvailable).forEach(member -> active.add(member.address));
+		return active;
+	}
+
+	private <T> Mono<T> route(Function<RSocket, Mono<T>> request) {
+		Member member = acquire();
+		RSocket socket = (member != null) ? member.socket : null;
+		if(socket == null){
+			if(member != null){
+				member.release();
+			}
+			return Mono.error(noInstance());
+		}
+		long start = System.nanoTime();
+		return request.apply(socket).doFinally(signal -> {
+			member.sample(start, signal);
+			member.release();
+		});
+	}
+
+	/**
+	 * The latency of a stream is the time to its first element.
+	 */
+	private <T> Flux<T> routeMany(Function<RSocket, Flux<T>> request) {
+		Member member = acquire();
+		RSocket socket = (member != null) ? member.socket : null;
+		if(socket == null){
+			if(member != null){
+				member.release();
+			}
+			return Flux.error(noInstance());
+		}
+		long start = System.nanoTime();
+		AtomicBoolean sampled = new AtomicBoolean();
+		return request.apply(socket)
+				.doOnNext(element -> {
+					if(sampled.compareAndSet(false, true)){
+						member.sample(start, SignalType.ON_NEXT);
+					}
+				})
+				.doFinally(signal -> {
+					if(sampled.compareAndSet(false, true)){
+						member.sample(start, signal);
+					}
+					member.release();
+				});
+	}
+
+	/**
+	 * Selects a connection and counts the request as outstanding on it. The draining flag is checked again once the
+	 * request is counted, so a connection being drained is either seen as busy by the drain or skipped here.
+	 */
+	private Member acquire() {
+		Member member;
+		while((member = select()) != null){
+			member.outstanding.incrementAndGet();
+			if(!member.draining){
+				return member;
+			}
+			member.release();
+		}
+		return null;
+	}
+
+	private Member select() {
+		List<Member> available = new ArrayList<>(members.size());
+		double penalty = 0;
+		for(Member member : members.values()){
+			if(member.isAvailable()){
+				available.add(member);
+				penalty = Math.max(penalty, member.latency.get());
+			}
+		}
+		if(available.size() < 2){
+			return available.isEmpty() ? null : available.get(0);
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(available.size());
+		int second = random.nextInt(available.size() - 1);
+		if(second >= first){
+			second++;
+		}
+		Member a = available.get(first);
+		Member b = available.get(second);
+		double unmeasured = (penalty > 0) ? penalty : 1;
+		return (a.cost(unmeasured) <= b.cost(unmeasured)) ? a : b;
+	}
+
+	private void connect(Member member) {
+		connector.apply(member.address)
+				.subscribe(socket -> install(member, socket), throwable -> reconnect(member, throwable));
+	}
+
+	private void install(Member member, RSocket socket) {
+		if(disposed || member.draining){
+			socket.dispose();
+			return;
+		}
+		member.socket = socket;
+		socket.onClose()
+				.doFinally(signal -> {
+					if(member.socket == socket){
+						member.socket = null;
+						reconnect(member, null);
+					}
+				})
+				.subscribe();
+	}
+
+	private void reconnect(Member member, Throwable throwable) {
+		if(disposed || member.draining || members.get(member.address) != member){
+			return;
+		}
+		logger.warn("Connection to {} lost, reconnecting in {}ms", member.address, reconnectDelay.toMillis(), throwable);
+		Mono.delay(reconnectDelay).subscribe(tick -> connect(member));
+	}
+
+	private void drain(Member member) {
+		logger.info("Draining connection to {}", member.address);
+		member.draining = true;
+		members.remove(member.address, member);
+		member.closeIfIdle();
+	}
+
+	private IllegalStateException noInstance() {
+		return new IllegalStateException("No instance available");
+	}
+
+	private static class Member {
+
+		private final InetSocketAddress address;
+
+		private final AtomicInteger outstanding = new AtomicInteger();
+
+		private final Ewma latency = new Ewma(0.2);
+
+		private volatile RSocket socket;
+
+		private volatile boolean draining;
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Member(InetSocketAddress address) {
+			this.address = address;
+		}
+
+		boolean isAvailable() {
+			RSocket current = this.socket;
+			return !draining && current != null && current.availability() > 0;
+		}
+
+		/**
+		 * @param unmeasured latency assumed until the first sample
+		 */
+		double cost(double unmeasured) {
+			double average = latency.get();
+			return ((average > 0) ? average : unmeasured) * (outstanding.get() + 1);
+		}
+
+		/**
+		 * Failed requests weigh at least twice the current average, so an instance that fails fast does not attract
+		 * more traffic. Cancelled requests are not sampled.
+		 */
+		void sample(long start, SignalType signal) {
+			if(SignalType.CANCEL.equals(signal)){
+				return;
+			}
+			long elapsed = System.nanoTime() - start;
+			latency.update(SignalType.ON_ERROR.equals(signal) ? Math.max(elapsed, latency.get() * 2) : elapsed);
+		}
+
+		void release() {
+			outstanding.decrementAndGet();
+			if(draining){
+				closeIfIdle();
+			}
+		}
+
+		void closeIfIdle() {
+			if(outstanding.get() == 0 && closed.compareAndSet(false, true)){
+				close();
+			}
+		}
+
+		void close() {
+			RSocket current = this.socket;
+			this.socket = null;
+			if(current != null){
+				current.dispose();
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.DispatcherHandler;
+import org.springframework.cloud.reactive.socket.ExchangeMode;
+import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
+import org.springframework.cloud.reactive.socket.flow.Deadline;
+import org.springframework.cloud.reactive.socket.util.Chunks;
+import org.springframework.cloud.reactive.socket.util.ServiceUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * Invokes a service in the same JVM through its {@link DispatcherHandler}, without serialization nor transport.
+ * Arguments and results are passed by reference unless defensive copies are enabled, in which case they are copied
+ * through the payload converter of the method, as they would be over the wire. Methods returning
+ * {@code Flux<DataBuffer>} receive files and resources in chunks, as remote clients do.
+ *
+ * @author Vinicius Carvalho
+ */
+public class LocalRemoteHandler extends AbstractRemoteHandler {
+
+	private final DispatcherHandler dispatcher;
+
+	private boolean defensiveCopies;
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	public LocalRemoteHandler(DispatcherHandler dispatcher, ServiceMethodInfo info) {
+		super(null, info);
+		this.dispatcher = dispatcher;
+	}
+
+	public void setDefensiveCopies(boolean defensiveCopies) {
+		this.defensiveCopies = defensiveCopies;
+	}
+
+	/**
+	 * Deadlines start when the result is subscribed, as they do for remote calls.
+	 */
+	@Override
+	public Object doInvoke(Object argument) {
+		Class<?> argumentType = ServiceUtils.getActualType(info.getParameterType());
+		Class<?> resultType = ServiceUtils.getActualType(info.getReturnType());
+		ExchangeMode mode = info.getMappingInfo().getExchangeMode();
+		if(mode == ExchangeMode.ONE_WAY){
+			return Mono.defer(() -> dispatcher.localFireAndForget(metadataMap(newDeadline()), copy(argument, argumentType)));
+		}
+		if(mode == ExchangeMode.REQUEST_ONE){
+			Mono<Object> result = Mono.defer(() -> {
+				Deadline deadline = newDeadline();
+				return deadline.bound(dispatcher.localRequestResponse(metadataMap(deadline), copy(argument, argumentType)), this::deadlineExceeded);
+			}).map(value -> copy(value, resultType));
+			return Mono.class.isAssignableFrom(info.getReturnType().resolve()) ? result : result.block();
+		}
+		if(mode == ExchangeMode.REQUEST_MANY){
+			Flux<Object> results = Flux.defer(() -> {
+				Deadline deadline = newDeadline();
+				return deadline.bound(dispatcher.localRequestStream(metadataMap(deadline), copy(argument, argumentType)), this::deadlineExceeded);
+			});
+			return DataBuffer.class.isAssignableFrom(resultType)
+					? results.concatMap(value -> Chunks.read(value, Chunks.DEFAULT_CHUNK_SIZE)).map(bufferFactory::wrap)
+					: results.map(value -> copy(value, resultType));
+		}
+		Flux<Object> arguments = Flux.from((Publisher<?>) argument).map(value -> copy(value, argumentType));
+		return Flux.defer(() -> {
+			Deadline deadline = newDeadline();
+			return deadline.bound(dispatcher.localRequestChannel(metadataMap(deadline), arguments), this::deadlineExceeded);
+		}).map(value -> copy(value, resultType));
+	}
+
+	private Object copy(Object value, Class<?> type) {
+		if(!defensiveCopies || value == null){
+			return value;
+		}
+		return payloadConverter.read(payloadConverter.write(value), type);
+	}
+}
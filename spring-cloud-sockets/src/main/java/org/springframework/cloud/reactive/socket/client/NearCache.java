@@ -0,0 +1,250 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Client side cache for {@link org.springframework.cloud.reactive.socket.annotation.Idempotent} request one methods.
+ *
+ * Entries are keyed by the service path plus the encoded argument and hold the encoded response, so every hit is
+ * decoded into a fresh object. The cache is bounded by a time to live, a number of entries and a total number of bytes,
+ * least recently used entries are evicted first and expired entries are purged as new ones are added. Concurrent
+ * misses for the same key share a single remote request. A response loaded while its path was invalidated is returned
+ * to the caller but not cached.
+ *
+ * @author Vinicius Carvalho
+ */
+public class NearCache {
+
+	private final long timeToLive;
+
+	private final int maxEntries;
+
+	private final long maxBytes;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<String, Long> pathGenerations = new HashMap<>();
+
+	private final ConcurrentMap<Key, Mono<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+	private long generation;
+
+	private long bytes;
+
+	private long nextPurge;
+
+	public NearCache(Duration timeToLive, int maxEntries, long maxBytes) {
+		this.timeToLive = timeToLive.toNanos();
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.nextPurge = System.nanoTime() + this.timeToLive;
+	}
+
+	/**
+	 * Returns the cached response for the given path and encoded argument, or subscribes to the loader on a miss.
+	 * @param path the service path
+	 * @param argument the encoded argument
+	 * @param loader supplies the remote request to be issued on a miss
+	 * @return the encoded response
+	 */
+	public Mono<byte[]> get(String path, byte[] argument, Supplier<Mono<byte[]>> loader) {
+		Key key = new Key(path, argument);
+		return Mono.defer(() -> lookup(key, loader));
+	}
+
+	private Mono<byte[]> lookup(Key key, Supplier<Mono<byte[]>> loader) {
+		byte[] cached = cached(key);
+		if(cached != null){
+			return Mono.just(cached);
+		}
+		return inFlight.computeIfAbsent(key, k -> load(k, loader));
+	}
+
+	private Mono<byte[]> load(Key key, Supplier<Mono<byte[]>> loader) {
+		long stamp = generationOf(key.path);
+		return loader.get()
+				.doOnNext(value -> put(key, value, stamp))
+				.doFinally(signalType -> inFlight.remove(key))
+				.cache();
+	}
+
+	private synchronized byte[] cached(Key key) {
+		Entry entry = entries.get(key);
+		if(entry == null){
+			return null;
+		}
+		if(entry.isExpired(System.nanoTime())){
+			remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * @param stamp generation of the path when the load started, the value is dropped if the path was invalidated since
+	 */
+	private synchronized void put(Key key, byte[] value, long stamp) {
+		long size = key.argument.length + value.length;
+		if(size > maxBytes || stamp != generationOf(key.path)){
+			return;
+		}
+		long now = System.nanoTime();
+		remove(key);
+		entries.put(key, new Entry(key, value, now + timeToLive));
+		bytes += size;
+		if(now - nextPurge > 0){
+			purgeExpired(now);
+			nextPurge = now + timeToLive / 2;
+		}
+		Iterator<Entry> eldest = entries.values().iterator();
+		while((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()){
+			bytes -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	private void purgeExpired(long now) {
+		for(Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();){
+			Entry entry = iterator.next();
+			if(entry.isExpired(now)){
+				bytes -= entry.size();
+				iterator.remove();
+			}
+		}
+	}
+
+	private void remove(Key key) {
+		Entry removed = entries.remove(key);
+		if(removed != null){
+			bytes -= removed.size();
+		}
+	}
+
+	private synchronized long generationOf(String path) {
+		return generation + pathGenerations.getOrDefault(path, 0L);
+	}
+
+	/**
+	 * Evicts every entry cached for the given path, responses being loaded for it are not cached.
+	 * @param path the service path
+	 */
+	public synchronized void invalidate(String path) {
+		pathGenerations.merge(path, 1L, Long::sum);
+		for(Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();){
+			Entry entry = iterator.next();
+			if(entry.key.path.equals(path)){
+				bytes -= entry.size();
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Evicts entries as paths are pushed by the server, usually the result of a request many method exposed by the
+	 * remote service for this purpose.
+	 * @param invalidations stream of paths to be invalidated
+	 * @return the subscription to the invalidation stream
+	 */
+	public Disposable invalidateOn(Publisher<String> invalidations) {
+		return Flux.from(invalidations).subscribe(this::invalidate);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long sizeInBytes() {
+		return bytes;
+	}
+
+	private static class Key {
+
+		private final String path;
+
+		private final byte[] argument;
+
+		private final int hash;
+
+		Key(String path, byte[] argument) {
+			this.path = path;
+			this.argument = argument;
+			this.hash = 31 * path.hashCode() + Arrays.hashCode(argument);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o){
+				return true;
+			}
+			if(o == null || getClass() != o.getClass()){
+				return false;
+			}
+			Key key = (Key) o;
+			return path.equals(key.path) && Arrays.equals(argument, key.argument);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static class Entry {
+
+		private final Key key;
+
+		private final byte[] value;
+
+		private final long expiresAt;
+
+		Entry(Key key, byte[] value, long expiresAt) {
+			this.key = key;
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired(long now) {
+			return now - expiresAt > 0;
+		}
+
+		long size() {
+			return key.argument.length + value.length;
+		}
+	}
+}
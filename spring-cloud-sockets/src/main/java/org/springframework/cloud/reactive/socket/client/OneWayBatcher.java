@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Buffers encoded one way payloads of a single route and hands them over as one batch once the buffer reaches a
+ * number of elements, a number of bytes, or has been waiting for longer than the linger time. Once disposed the
+ * buffered payloads are handed over and new ones are sent on their own.
+ *
+ * @author Vinicius Carvalho
+ */
+public class OneWayBatcher {
+
+	private final int maxCount;
+
+	private final int maxBytes;
+
+	private final long lingerMillis;
+
+	private final Consumer<List<byte[]>> sender;
+
+	private final Scheduler scheduler = Schedulers.parallel();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private List<byte[]> buffer = new ArrayList<>();
+
+	private int bufferedBytes;
+
+	private Disposable scheduledFlush;
+
+	private boolean disposed;
+
+	public OneWayBatcher(int maxCount, int maxBytes, Duration linger, Consumer<List<byte[]>> sender) {
+		this.maxCount = maxCount;
+		this.maxBytes = maxBytes;
+		this.lingerMillis = linger.toMillis();
+		this.sender = sender;
+	}
+
+	public void add(byte[] payload) {
+		List<byte[]> ready = null;
+		try{
+			lock.lock();
+			buffer.add(payload);
+			bufferedBytes += payload.length;
+			if(disposed || buffer.size() >= maxCount || bufferedBytes >= maxBytes){
+				ready = drain();
+			}else if(buffer.size() == 1){
+				scheduledFlush = scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+			}
+		}finally {
+			lock.unlock();
+		}
+		if(ready != null){
+			sender.accept(ready);
+		}
+	}
+
+	public void flush() {
+		List<byte[]> ready;
+		try{
+			lock.lock();
+			ready = drain();
+		}finally {
+			lock.unlock();
+		}
+		if(!ready.isEmpty()){
+			sender.accept(ready);
+		}
+	}
+
+	/**
+	 * Hands over the buffered payloads, so they are not lost when the client shuts down.
+	 */
+	public void dispose() {
+		try{
+			lock.lock();
+			disposed = true;
+		}finally {
+			lock.unlock();
+		}
+		flush();
+	}
+
+	private List<byte[]> drain() {
+		if(scheduledFlush != null){
+			scheduledFlush.dispose();
+			scheduledFlush = null;
+		}
+		List<byte[]> ready = buffer;
+		buffer = new ArrayList<>();
+		bufferedBytes = 0;
+		return ready;
+	}
+}
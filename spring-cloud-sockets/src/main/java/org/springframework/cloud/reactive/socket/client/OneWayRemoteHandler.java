@@ -18,25 +18,62 @@
 package org.springframework.cloud.reactive.socket.client;
 
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 import io.rsocket.RSocket;
 import io.rsocket.util.PayloadImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
+import org.springframework.cloud.reactive.socket.util.ServiceUtils;
 
 /**
  * @author Vinicius Carvalho
  */
 public class OneWayRemoteHandler extends AbstractRemoteHandler {
 
+	private OneWayBatcher batcher;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
 
 	public OneWayRemoteHandler(RSocket socket, ServiceMethodInfo info) {
 		super(socket, info);
 	}
 
+	/**
+	 * Buffers outgoing payloads and sends them as a single batch frame, bounded by count, bytes and linger time.
+	 */
+	public void enableBatching(int maxCount, int maxBytes, Duration linger) {
+		this.batcher = new OneWayBatcher(maxCount, maxBytes, linger, this::sendBatch);
+	}
+
 	@Override
 	public Object doInvoke(Object argument) {
 		byte[] payload = payloadConverter.write(argument);
-		return socket.fireAndForget(new PayloadImpl(ByteBuffer.wrap(payload), getMetadata()));
+		if(batcher != null){
+			return Mono.fromRunnable(() -> batcher.add(payload));
+		}
+		return Mono.defer(() -> socket.fireAndForget(new PayloadImpl(ByteBuffer.wrap(payload), getMetadata(newDeadline()))));
+	}
+
+	/**
+	 * Sends the payloads still waiting for their batch.
+	 */
+	public void dispose() {
+		if(batcher != null){
+			batcher.dispose();
+		}
+	}
+
+	private void sendBatch(List<byte[]> batch) {
+		Map<String, String> metadataMap = metadataMap();
+		metadataMap.put("BATCH", "true");
+		byte[] metadata = metadataConverter.write(metadataMap);
+		socket.fireAndForget(new PayloadImpl(ServiceUtils.encodeBatch(batch), metadata))
+				.subscribe(null, throwable -> logger.warn("Could not send batch of {} elements to {}", batch.size(), info.getMappingInfo().getPath(), throwable));
 	}
 }
@@ -0,0 +1,338 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A fixed size pool of connections to the same server, spreading requests across them. Connections that close are
+ * replaced in the background, requests are only routed to the open ones meanwhile. A connection that stays unavailable
+ * for longer than the unhealthy timeout is replaced as well, the old one is closed once its requests complete.
+ *
+ * @author Vinicius Carvalho
+ */
+public class PooledRSocket extends AbstractRSocket {
+
+	/**
+	 * How a connection is picked for each request.
+	 */
+	public enum Selection {
+
+		ROUND_ROBIN,
+
+		LEAST_IN_FLIGHT
+	}
+
+	private final Supplier<Mono<RSocket>> connector;
+
+	private final Member[] members;
+
+	private final Selection selection;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private Duration reconnectDelay = Duration.ofSeconds(1);
+
+	private Duration unhealthyTimeout = Duration.ofSeconds(10);
+
+	private Disposable healthCheck;
+
+	private volatile boolean disposed;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param connector opens a new connection every time it is subscribed to
+	 * @param size number of connections
+	 * @param selection how connections are picked
+	 */
+	public PooledRSocket(Supplier<Mono<RSocket>> connector, int size, Selection selection) {
+		this.connector = connector;
+		this.selection = selection;
+		this.members = new Member[size];
+		for(int i = 0; i < size; i++){
+			this.members[i] = new Member();
+		}
+	}
+
+	public void setReconnectDelay(Duration reconnectDelay) {
+		this.reconnectDelay = reconnectDelay;
+	}
+
+	/**
+	 * @param unhealthyTimeout how long an open connection may report no availability before it is replaced
+	 */
+	public void setUnhealthyTimeout(Duration unhealthyTimeout) {
+		this.unhealthyTimeout = unhealthyTimeout;
+	}
+
+	/**
+	 * Opens all the connections of the pool. If any of them fails the pool is disposed, closing the ones already open.
+	 * @return the pool, once every connection is open
+	 */
+	public Mono<PooledRSocket> start() {
+		return Flux.fromArray(members)
+				.flatMap(member -> connector.get().doOnNext(socket -> install(member, socket)))
+				.then(Mono.fromCallable(() -> {
+					this.healthCheck = Flux.interval(reconnectDelay).subscribe(tick -> checkHealth());
+					return this;
+				}))
+				.doOnError(throwable -> dispose());
+	}
+
+	@Override
+	public Mono<Void> fireAndForget(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.fireAndForget(payload)));
+	}
+
+	@Override
+	public Mono<Payload> requestResponse(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.requestResponse(payload)));
+	}
+
+	@Override
+	public Flux<Payload> requestStream(Payload payload) {
+		return Flux.defer(() -> routeMany(socket -> socket.requestStream(payload)));
+	}
+
+	@Override
+	public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+		return Flux.defer(() -> routeMany(socket -> socket.requestChannel(payloads)));
+	}
+
+	@Override
+	public Mono<Void> metadataPush(Payload payload) {
+		return Mono.defer(() -> route(socket -> socket.metadataPush(payload)));
+	}
+
+	/**
+	 * @return the share of connections currently open
+	 */
+	@Override
+	public double availability() {
+		int open = 0;
+		for(Member member : members){
+			if(member.isAvailable()){
+				open++;
+			}
+		}
+		return (double) open / members.length;
+	}
+
+	@Override
+	public void dispose() {
+		this.disposed = true;
+		if(this.healthCheck != null){
+			this.healthCheck.dispose();
+		}
+		for(Member member : members){
+			Connection connection = member.connection;
+			if(connection != null){
+				connection.socket.dispose();
+			}
+		}
+		super.dispose();
+	}
+
+	/**
+	 * @return the number of requests in flight on each connection
+	 */
+	public int[] getInFlight() {
+		int[] inFlight = new int[members.length];
+		for(int i = 0; i < members.length; i++){
+			inFlight[i] = members[i].inFlight.get();
+		}
+		return inFlight;
+	}
+
+	private <T> Mono<T> route(Function<RSocket, Mono<T>> request) {
+		Member member = select();
+		Connection connection = (member != null) ? acquire(member) : null;
+		if(connection == null){
+			return Mono.error(noConnection());
+		}
+		return request.apply(connection.socket).doFinally(signal -> release(member, connection));
+	}
+
+	private <T> Flux<T> routeMany(Function<RSocket, Flux<T>> request) {
+		Member member = select();
+		Connection connection = (member != null) ? acquire(member) : null;
+		if(connection == null){
+			return Flux.error(noConnection());
+		}
+		return request.apply(connection.socket).doFinally(signal -> release(member, connection));
+	}
+
+	/**
+	 * Counts a request against the current connection of the member. A connection retired meanwhile is given back,
+	 * so it is never picked up after its last request closed it.
+	 */
+	private Connection acquire(Member member) {
+		Connection connection = member.connection;
+		if(connection == null){
+			return null;
+		}
+		member.inFlight.incrementAndGet();
+		connection.inFlight.incrementAndGet();
+		if(connection.retired){
+			release(member, connection);
+			return null;
+		}
+		return connection;
+	}
+
+	private void release(Member member, Connection connection) {
+		member.inFlight.decrementAndGet();
+		if(connection.inFlight.decrementAndGet() == 0 && connection.retired){
+			connection.socket.dispose();
+		}
+	}
+
+	private Member select() {
+		if(selection == Selection.LEAST_IN_FLIGHT){
+			return leastInFlight();
+		}
+		int start = next.getAndIncrement();
+		for(int i = 0; i < members.length; i++){
+			Member member = members[Math.floorMod(start + i, members.length)];
+			if(member.isAvailable()){
+				return member;
+			}
+		}
+		return null;
+	}
+
+	private Member leastInFlight() {
+		Member selected = null;
+		for(Member member : members){
+			if(member.isAvailable() && (selected == null || member.inFlight.get() < selected.inFlight.get())){
+				selected = member;
+			}
+		}
+		return selected;
+	}
+
+	private void install(Member member, RSocket socket) {
+		if(disposed){
+			socket.dispose();
+			return;
+		}
+		Connection connection = new Connection(socket);
+		member.connection = connection;
+		member.unavailableSince = 0;
+		socket.onClose()
+				.doFinally(signal -> replace(member, connection))
+				.subscribe();
+	}
+
+	private void checkHealth() {
+		long now = System.nanoTime();
+		for(Member member : members){
+			Connection connection = member.connection;
+			if(connection == null || member.replacing.get()){
+				continue;
+			}
+			if(connection.socket.availability() > 0){
+				member.unavailableSince = 0;
+			}else if(member.unavailableSince == 0){
+				member.unavailableSince = now;
+			}else if(now - member.unavailableSince >= unhealthyTimeout.toNanos() && member.replacing.compareAndSet(false, true)){
+				logger.info("Pooled connection unavailable for more than {}ms, replacing it", unhealthyTimeout.toMillis());
+				connector.get()
+						.doFinally(signal -> member.replacing.set(false))
+						.subscribe(socket -> swap(member, connection, socket),
+								throwable -> logger.warn("Could not replace unhealthy pooled connection", throwable));
+			}
+		}
+	}
+
+	private void swap(Member member, Connection unhealthy, RSocket socket) {
+		install(member, socket);
+		unhealthy.retired = true;
+		if(unhealthy.inFlight.get() == 0){
+			unhealthy.socket.dispose();
+		}
+	}
+
+	private void replace(Member member, Connection closed) {
+		if(disposed || member.connection != closed){
+			return;
+		}
+		member.connection = null;
+		logger.info("Pooled connection closed, reconnecting in {}ms", reconnectDelay.toMillis());
+		Mono.delay(reconnectDelay)
+				.then(Mono.defer(connector))
+				.subscribe(socket -> install(member, socket), throwable -> retry(member, throwable));
+	}
+
+	private void retry(Member member, Throwable throwable) {
+		logger.warn("Could not reopen pooled connection", throwable);
+		if(!disposed){
+			Mono.delay(reconnectDelay)
+					.then(Mono.defer(connector))
+					.subscribe(socket -> install(member, socket), error -> retry(member, error));
+		}
+	}
+
+	private IllegalStateException noConnection() {
+		return new IllegalStateException("No open connection in the pool");
+	}
+
+	private static class Member {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicBoolean replacing = new AtomicBoolean();
+
+		private volatile Connection connection;
+
+		private volatile long unavailableSince;
+
+		boolean isAvailable() {
+			Connection current = this.connection;
+			return current != null && current.socket.availability() > 0;
+		}
+	}
+
+	private static class Connection {
+
+		private final RSocket socket;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private volatile boolean retired;
+
+		Connection(RSocket socket) {
+			this.socket = socket;
+		}
+	}
+}
@@ -20,6 +20,7 @@ package org.springframework.cloud.reactive.socket.client;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.time.Duration;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import io.rsocket.RSocket;
 
+import org.springframework.cloud.reactive.socket.DispatcherHandler;
 import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
 import org.springframework.cloud.reactive.socket.converter.Converter;
 import org.springframework.cloud.reactive.socket.converter.JacksonConverter;
@@ -40,21 +42,159 @@ public class ReactiveSocketClient {
 
 	private volatile RSocket socket;
 
+	private DispatcherHandler dispatcher;
+
+	private boolean defensiveCopies;
+
 	private Map<Method, AbstractRemoteHandler> remoteHandlers = new ConcurrentHashMap<>();
 	
 	private List<Converter> converters = new LinkedList<>();
 
+	private NearCache nearCache;
+
+	private HedgePolicy hedgePolicy;
+
+	private ResiliencePolicy resiliencePolicy;
+
+	private boolean batchOneWay;
+
+	private int batchMaxCount;
+
+	private int batchMaxBytes;
+
+	private Duration batchLinger;
+
+	private Duration requestTimeout;
+
+	private Duration resumeTimeout;
+
+	private int streamWindow = 64;
+
+	private boolean flightRecorderEnabled = true;
 
 	public ReactiveSocketClient(RSocket socket){
 		initDefaultConverters();
 		this.socket = socket;
 	}
 
+	/**
+	 * Creates a client for services running in the same JVM: stubs invoke the handlers of the dispatcher directly,
+	 * passing arguments and results by reference. Exchange modes, limits, deadlines and backpressure behave as they do
+	 * over a socket; near cache, batching, hedging, retries and resumption only apply to remote clients.
+	 * @param dispatcher the dispatcher of the local server
+	 */
+	public ReactiveSocketClient(DispatcherHandler dispatcher){
+		initDefaultConverters();
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * Copies arguments and results of local calls through the payload converter, so neither side can see changes
+	 * the other makes. Only applies to clients created with a {@link DispatcherHandler}.
+	 */
+	public void setDefensiveCopies(boolean defensiveCopies) {
+		this.defensiveCopies = defensiveCopies;
+	}
+
+	/**
+	 * Enables a near cache for {@link org.springframework.cloud.reactive.socket.annotation.Idempotent} request one
+	 * methods. Must be set before any service stub is invoked.
+	 * @param nearCache the cache shared by all stubs created by this client
+	 */
+	public void setNearCache(NearCache nearCache) {
+		this.nearCache = nearCache;
+	}
+
+	/**
+	 * Hedges {@link org.springframework.cloud.reactive.socket.annotation.Idempotent} request one methods: a backup
+	 * request is sent when the first one is slower than usual. Must be set before any service stub is invoked.
+	 * @param hedgePolicy the policy shared by all stubs created by this client
+	 */
+	public void setHedgePolicy(HedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	/**
+	 * Retries failed request one and request many calls within a retry budget and fails fast on endpoints whose
+	 * circuit breaker is open. Must be set before any service stub is invoked.
+	 * @param resiliencePolicy the policy shared by all stubs created by this client
+	 */
+	public void setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+		this.resiliencePolicy = resiliencePolicy;
+	}
+
 	private void initDefaultConverters() {
 		this.converters.add(new JacksonConverter());
 		this.converters.add(new SerializableConverter());
 	}
 
+	/**
+	 * Enables batching of one way calls: payloads are buffered per route once the call is subscribed, and sent as a
+	 * single frame once any of the bounds is reached or the client is disposed. Must be set before any service stub is
+	 * invoked.
+	 * @param maxCount maximum number of payloads in a batch
+	 * @param maxBytes maximum number of encoded bytes in a batch
+	 * @param linger maximum time a payload waits in the buffer
+	 */
+	public void enableOneWayBatching(int maxCount, int maxBytes, Duration linger) {
+		this.batchOneWay = true;
+		this.batchMaxCount = maxCount;
+		this.batchMaxBytes = maxBytes;
+		this.batchLinger = linger;
+	}
+
+	/**
+	 * Gives every call a deadline. The remaining budget travels with the request so the server can skip or cancel
+	 * work nobody waits for anymore. Batched one way calls are not bounded. Must be set before any service stub is
+	 * invoked.
+	 * @param requestTimeout the budget of each call
+	 */
+	public void setRequestTimeout(Duration requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * Resumes streams interrupted by a lost connection from the first payload not received, as long as the connection
+	 * comes back within the session timeout of the server. The socket must be able to reconnect, such as a
+	 * {@link PooledRSocket}, and the server must have resumption enabled. Must be set before any service stub is
+	 * invoked.
+	 * @param sessionTimeout how long an interrupted stream keeps trying to resume
+	 */
+	public void enableResume(Duration sessionTimeout) {
+		this.resumeTimeout = sessionTimeout;
+	}
+
+	/**
+	 * Bounds the payloads of a request many stream asked from the server at a time, requesting more as they are
+	 * consumed, even when the subscriber asks for everything. Servers interleave the streams of a connection within
+	 * the demand of the client only, see {@link org.springframework.cloud.reactive.socket.flow.FairOutboundScheduler},
+	 * so an unbounded request lets a single stream queue its whole backlog ahead of the others. Must be set before any
+	 * service stub is invoked.
+	 * @param streamWindow payloads requested at a time, 64 by default, 0 to forward the demand of the subscriber
+	 */
+	public void setStreamWindow(int streamWindow) {
+		this.streamWindow = streamWindow;
+	}
+
+	/**
+	 * Emits a flight recorder event for every call slower than the threshold of the recording, see
+	 * {@link org.springframework.cloud.reactive.socket.jfr.FlightRecorderEvents}. Must be set before any service stub
+	 * is invoked.
+	 * @param flightRecorderEnabled false to never emit events
+	 */
+	public void setFlightRecorderEnabled(boolean flightRecorderEnabled) {
+		this.flightRecorderEnabled = flightRecorderEnabled;
+	}
+
+	/**
+	 * Sends the batched one way calls still buffered. The socket is left open, it belongs to the caller.
+	 */
+	public void dispose() {
+		remoteHandlers.values().stream()
+				.filter(OneWayRemoteHandler.class::isInstance)
+				.forEach(handler -> ((OneWayRemoteHandler) handler).dispose());
+	}
+
 	public <T> T create(final Class<T> service) {
 		if(!service.isInterface()){
 			throw new IllegalArgumentException("service must be an interface");
@@ -85,17 +225,44 @@ public class ReactiveSocketClient {
 			Converter converter = converters.stream().filter(payloadConverter -> payloadConverter.accept(serviceMethodInfo.getMappingInfo().getMimeType())).findFirst().orElseThrow(IllegalStateException::new);
 			Converter metadataConverter = converters.stream().filter(binaryConverter -> binaryConverter.accept(MimeTypeUtils.APPLICATION_JSON)).findFirst().orElseThrow(IllegalStateException::new);
 
+			if(dispatcher != null){
+				LocalRemoteHandler localHandler = new LocalRemoteHandler(dispatcher, serviceMethodInfo);
+				localHandler.setDefensiveCopies(defensiveCopies);
+				localHandler.setPayloadConverter(converter);
+				localHandler.setMetadataConverter(metadataConverter);
+				localHandler.setTimeout(requestTimeout);
+				localHandler.setFlightRecorderEnabled(flightRecorderEnabled);
+				remoteHandlers.put(method, localHandler);
+				return localHandler;
+			}
+
 			switch (serviceMethodInfo.getMappingInfo().getExchangeMode()){
 				case ONE_WAY:
-					handler = new OneWayRemoteHandler(socket, serviceMethodInfo);
+					OneWayRemoteHandler oneWayHandler = new OneWayRemoteHandler(socket, serviceMethodInfo);
+					if(batchOneWay){
+						oneWayHandler.enableBatching(batchMaxCount, batchMaxBytes, batchLinger);
+					}
+					handler = oneWayHandler;
 					remoteHandlers.put(method, handler);
 					break;
 				case REQUEST_ONE:
-					handler = new RequestOneRemoteHandler(socket, serviceMethodInfo);
+					RequestOneRemoteHandler requestOneHandler = new RequestOneRemoteHandler(socket, serviceMethodInfo);
+					if(nearCache != null && serviceMethodInfo.isIdempotent()){
+						requestOneHandler.setNearCache(nearCache);
+					}
+					if(hedgePolicy != null && serviceMethodInfo.isIdempotent()){
+						requestOneHandler.setHedgePolicy(hedgePolicy);
+					}
+					handler = requestOneHandler;
 					remoteHandlers.put(method, handler);
 					break;
 				case REQUEST_MANY:
-					handler = new RequestManyRemoteHandler(socket, serviceMethodInfo);
+					RequestManyRemoteHandler requestManyHandler = new RequestManyRemoteHandler(socket, serviceMethodInfo);
+					requestManyHandler.setRequestWindow(streamWindow);
+					if(resumeTimeout != null){
+						requestManyHandler.enableResume(resumeTimeout);
+					}
+					handler = requestManyHandler;
 					remoteHandlers.put(method, handler);
 					break;
 				case REQUEST_STREAM:
@@ -105,6 +272,9 @@ public class ReactiveSocketClient {
 			}
 			handler.setPayloadConverter(converter);
 			handler.setMetadataConverter(metadataConverter);
+			handler.setTimeout(requestTimeout);
+			handler.setResiliencePolicy(resiliencePolicy);
+			handler.setFlightRecorderEnabled(flightRecorderEnabled);
 		}
 
 		return handler;
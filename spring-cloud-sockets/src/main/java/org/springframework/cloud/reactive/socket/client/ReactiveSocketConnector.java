@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Function;
+
+import io.rsocket.AbstractRSocket;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.util.PayloadImpl;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.converter.Converter;
+import org.springframework.cloud.reactive.socket.converter.JacksonConverter;
+
+/**
+ * Connects to a reactive socket server, sending the client identity on the setup payload and optionally honouring
+ * the leases granted by the server. Connections to a draining server report themselves unavailable, see
+ * {@link ClientGoAway}. The resulting socket is meant to be handed to a {@link ReactiveSocketClient}.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ReactiveSocketConnector {
+
+	private String clientId;
+
+	private Duration leaseWait;
+
+	private int fragmentSize = 0;
+
+	private Converter metadataConverter = new JacksonConverter();
+
+	/**
+	 * @param clientId identity sent on the setup payload, used by the server for per client limits
+	 */
+	public void setClientId(String clientId) {
+		this.clientId = clientId;
+	}
+
+	/**
+	 * Makes requests wait for a lease permit. The server must have leases enabled, otherwise every request fails
+	 * once the wait elapses.
+	 * @param maxWait how long a request waits for a permit
+	 */
+	public void enableLeases(Duration maxWait) {
+		this.leaseWait = maxWait;
+	}
+
+	/**
+	 * Splits outbound payloads in frames of at most the given size, 0 (the default) disables fragmentation.
+	 * @param fragmentSize maximum frame size in bytes
+	 */
+	public void setFragmentSize(int fragmentSize) {
+		this.fragmentSize = fragmentSize;
+	}
+
+	public Mono<RSocket> connect(ClientTransport transport) {
+		return Mono.defer(() -> {
+			ClientLease lease = (leaseWait != null) ? new ClientLease(leaseWait) : null;
+			ClientGoAway goAway = new ClientGoAway();
+			Function<RSocket, RSocket> acceptor = sendingSocket -> goAway.responder((lease != null) ? lease.responder() : new AbstractRSocket() { });
+			RSocketFactory.ClientRSocketFactory factory = RSocketFactory.connect();
+			if(clientId != null){
+				factory.setupPayload(new PayloadImpl(new byte[0], metadataConverter.write(Collections.singletonMap("CLIENT_ID", clientId))));
+			}
+			if(fragmentSize > 0){
+				factory.fragment(fragmentSize);
+			}
+			return factory.acceptor(acceptor)
+					.transport(transport)
+					.start()
+					.map(socket -> goAway.wrap((lease != null) ? lease.wrap(socket) : socket));
+		});
+	}
+
+	/**
+	 * Opens a pool of connections to the same server, each one set up like {@link #connect(ClientTransport)}.
+	 * @param transport the transport, connected once per pooled connection
+	 * @param size number of connections
+	 * @param selection how a connection is picked for each request
+	 * @return the pool, once every connection is open
+	 */
+	public Mono<RSocket> connectPool(ClientTransport transport, int size, PooledRSocket.Selection selection) {
+		return new PooledRSocket(() -> connect(transport), size, selection).start().cast(RSocket.class);
+	}
+}
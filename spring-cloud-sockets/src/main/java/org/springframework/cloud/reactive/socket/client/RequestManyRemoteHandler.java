@@ -14,30 +14,139 @@
  *  limitations under the License.
  *
  */
-
 package org.springframework.cloud.reactive.socket.client;
 
 
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import io.rsocket.Payload;
 import io.rsocket.RSocket;
+import io.rsocket.exceptions.ApplicationException;
 import io.rsocket.util.PayloadImpl;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
+import org.springframework.cloud.reactive.socket.flow.Deadline;
+import org.springframework.cloud.reactive.socket.util.Chunks;
 import org.springframework.cloud.reactive.socket.util.ServiceUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 
 /**
+ * Methods returning {@code Flux<DataBuffer>} receive the raw chunks sent by the server for files, resources and
+ * buffers, without going through the payload converter. See {@link Chunks#write} to save them to a file.
+ *
  * @author Vinicius Carvalho
  */
 public class RequestManyRemoteHandler extends AbstractRemoteHandler {
+
+	private Duration resumeTimeout;
+
+	private Duration resumeDelay = Duration.ofMillis(500);
+
+	private int requestWindow;
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
 	public RequestManyRemoteHandler(RSocket socket, ServiceMethodInfo info) {
 		super(socket, info);
 	}
 
+	/**
+	 * Every stream is requested with a resume token. When it fails with anything but an error sent by the server it
+	 * is requested again, with the same token and the position of the first payload not received, until the session
+	 * timeout elapses.
+	 * @param sessionTimeout how long an interrupted stream keeps trying to resume
+	 */
+	public void enableResume(Duration sessionTimeout) {
+		this.resumeTimeout = sessionTimeout;
+	}
+
+	public void setResumeDelay(Duration resumeDelay) {
+		this.resumeDelay = resumeDelay;
+	}
+
+	/**
+	 * Asks the server for at most this many payloads at a time, whatever the demand of the subscriber, so a stream
+	 * never has more than a window of payloads queued on the server side of the connection.
+	 * @param requestWindow payloads requested at a time, 0 to forward the demand of the subscriber as is
+	 */
+	public void setRequestWindow(int requestWindow) {
+		this.requestWindow = requestWindow;
+	}
+
 	@Override
 	public Object doInvoke(Object argument) {
 		byte[] data = payloadConverter.write(argument);
-		return socket.requestStream(new PayloadImpl(ByteBuffer.wrap(data), getMetadata()))
-				.map(payload -> payloadConverter.read(ServiceUtils.toByteArray(payload.getData()), ServiceUtils.getActualType(info.getParameterType())));
+		Flux<Payload> payloads = (resumeTimeout != null) ? resumable(data) : Flux.defer(() -> {
+			Deadline deadline = newDeadline();
+			return deadline.bound(resilient(() -> windowed(socket.requestStream(new PayloadImpl(ByteBuffer.wrap(data), getMetadata(deadline))))), this::deadlineExceeded);
+		});
+		if(DataBuffer.class.isAssignableFrom(ServiceUtils.getActualType(info.getReturnType()))){
+			return payloads.map(payload -> bufferFactory.wrap(payload.getData()));
+		}
+		return payloads.map(payload -> payloadConverter.read(ServiceUtils.toByteArray(payload.getData()), ServiceUtils.getActualType(info.getParameterType())));
+	}
+
+	private Flux<Payload> resumable(byte[] data) {
+		return Flux.defer(() -> {
+			String token = UUID.randomUUID().toString();
+			AtomicLong position = new AtomicLong();
+			AtomicLong lostAt = new AtomicLong();
+			Deadline deadline = newDeadline();
+			Flux<Payload> attempt = resilient(() -> windowed(socket.requestStream(new PayloadImpl(ByteBuffer.wrap(data), resumeMetadata(deadline, token, position.get())))))
+					.doOnNext(payload -> {
+						position.set(positionOf(payload, position.get()) + 1);
+						lostAt.set(0);
+					});
+			return deadline.bound(attempt.retryWhen(errors -> errors.concatMap(error -> resumeAfter(error, lostAt))), this::deadlineExceeded);
+		});
+	}
+
+	private Flux<Payload> resilient(Supplier<Flux<Payload>> request) {
+		return (resiliencePolicy != null)
+				? resiliencePolicy.applyMany(info.getMappingInfo().getPath(), info.isIdempotent(), request)
+				: Flux.defer(request);
+	}
+
+	private Flux<Payload> windowed(Flux<Payload> payloads) {
+		return (requestWindow > 0) ? payloads.limitRate(requestWindow) : payloads;
+	}
+
+	private ByteBuffer resumeMetadata(Deadline deadline, String token, long position) {
+		Map<String,String> metadataMap = metadataMap(deadline);
+		metadataMap.put("RESUME_TOKEN", token);
+		metadataMap.put("RESUME_POSITION", String.valueOf(position));
+		return ByteBuffer.wrap(metadataConverter.write(metadataMap));
+	}
+
+	/**
+	 * Errors sent by the server, including a rejected resume, are final.
+	 */
+	private Mono<Long> resumeAfter(Throwable error, AtomicLong lostAt) {
+		long now = System.nanoTime();
+		lostAt.compareAndSet(0, now);
+		if(error instanceof ApplicationException || now - lostAt.get() > resumeTimeout.toNanos()){
+			return Mono.error(error);
+		}
+		return Mono.delay(resumeDelay);
+	}
+
+	/**
+	 * Servers without resumption do not send positions, payloads are then counted.
+	 */
+	private long positionOf(Payload payload, long expected) {
+		if(!payload.getMetadata().hasRemaining()){
+			return expected;
+		}
+		Map<?, ?> metadata = (Map<?, ?>) metadataConverter.read(ServiceUtils.toByteArray(payload.getMetadata()), Map.class);
+		Object position = metadata.get("POSITION");
+		return (position instanceof Number) ? ((Number) position).longValue() : expected;
 	}
 }
@@ -18,12 +18,15 @@
 package org.springframework.cloud.reactive.socket.client;
 
 import java.nio.ByteBuffer;
+import java.util.function.Supplier;
 
+import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.util.PayloadImpl;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.reactive.socket.ServiceMethodInfo;
+import org.springframework.cloud.reactive.socket.flow.Deadline;
 import org.springframework.cloud.reactive.socket.util.ServiceUtils;
 
 /**
@@ -31,15 +34,30 @@ import org.springframework.cloud.reactive.socket.util.ServiceUtils;
  */
 public class RequestOneRemoteHandler extends AbstractRemoteHandler {
 
+	private NearCache nearCache;
+
+	private HedgePolicy hedgePolicy;
+
 	public RequestOneRemoteHandler(RSocket socket, ServiceMethodInfo info) {
 		super(socket, info);
 	}
 
+	public void setNearCache(NearCache nearCache) {
+		this.nearCache = nearCache;
+	}
+
+	public void setHedgePolicy(HedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
 	@Override
 	public Object doInvoke(Object argument) {
 		byte[] data = payloadConverter.write(argument);
-		Mono monoResult = socket.requestResponse(new PayloadImpl(ByteBuffer.wrap(data), getMetadata()))
-				.map(payload -> payloadConverter.read(ServiceUtils.toByteArray(payload.getData()), ServiceUtils.getActualType(info.getReturnType())));
+		Mono<byte[]> response = (nearCache != null)
+				? nearCache.get(info.getMappingInfo().getPath(), data, () -> request(data))
+				: request(data);
+		Mono monoResult = response
+				.map(bytes -> payloadConverter.read(bytes, ServiceUtils.getActualType(info.getReturnType())));
 		if(Mono.class.isAssignableFrom(info.getReturnType().resolve())){
 			return monoResult;
 		}
@@ -48,4 +66,20 @@ public class RequestOneRemoteHandler extends AbstractRemoteHandler {
 		}
 
 	}
+
+	/**
+	 * A hedged request and its backup, as well as every retry, share the same deadline. The deadline starts when the
+	 * result is subscribed, so a result kept and subscribed later, or again, gets a fresh one.
+	 */
+	private Mono<byte[]> request(byte[] data) {
+		return Mono.defer(() -> {
+			Deadline deadline = newDeadline();
+			String path = info.getMappingInfo().getPath();
+			Supplier<Mono<Payload>> send = () -> socket.requestResponse(new PayloadImpl(ByteBuffer.wrap(data), getMetadata(deadline)));
+			Supplier<Mono<Payload>> hedged = (hedgePolicy != null) ? () -> hedgePolicy.hedge(path, send) : send;
+			Mono<Payload> response = (resiliencePolicy != null) ? resiliencePolicy.apply(path, info.isIdempotent(), hedged) : hedged.get();
+			return deadline.bound(response, this::deadlineExceeded)
+					.map(payload -> ServiceUtils.toByteArray(payload.getData()));
+		});
+	}
 }
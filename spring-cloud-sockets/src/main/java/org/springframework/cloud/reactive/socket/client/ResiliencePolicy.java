@@ -0,0 +1,257 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.exceptions.ApplicationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.flow.CircuitBreaker;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.cloud.reactive.socket.flow.RetryBudget;
+
+/**
+ * Retries and circuit breakers for the calls of a client, one breaker per path.
+ *
+ * Rejections of requests the server never processed are always retried. Other failures that did not come from the
+ * service itself, such as a lost connection, are only retried for
+ * {@link org.springframework.cloud.reactive.socket.annotation.Idempotent} methods. Retries wait for a jittered
+ * exponential backoff and are paid from a {@link RetryBudget}. Streams are only retried until their first element.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ResiliencePolicy {
+
+	private static final List<String> RETRYABLE_REJECTIONS = Arrays.asList(Rejections.CONCURRENCY_LIMIT_EXCEEDED,
+			Rejections.RATE_LIMITED, Rejections.SHED, Rejections.NO_LEASE, Rejections.GOING_AWAY);
+
+	private final int maxRetries;
+
+	private final Duration backoff;
+
+	private final Duration maxBackoff;
+
+	private final RetryBudget retryBudget;
+
+	private Supplier<CircuitBreaker> breakerFactory;
+
+	private MeterRegistry meterRegistry;
+
+	private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	private final LongAdder retries = new LongAdder();
+
+	private final LongAdder budgetExhausted = new LongAdder();
+
+	/**
+	 * @param maxRetries maximum retries of a single call
+	 * @param backoff backoff ceiling of the first retry, doubled on every retry
+	 * @param maxBackoff upper bound of the backoff ceiling
+	 * @param retryBudget budget shared by all the calls of the client
+	 */
+	public ResiliencePolicy(int maxRetries, Duration backoff, Duration maxBackoff, RetryBudget retryBudget) {
+		this.maxRetries = maxRetries;
+		this.backoff = backoff;
+		this.maxBackoff = maxBackoff;
+		this.retryBudget = retryBudget;
+	}
+
+	/**
+	 * @param breakerFactory creates the breaker of each path, null disables circuit breaking
+	 */
+	public void setCircuitBreakerFactory(Supplier<CircuitBreaker> breakerFactory) {
+		this.breakerFactory = breakerFactory;
+	}
+
+	/**
+	 * Publishes the retry counters and the state of every breaker.
+	 */
+	public void setMeterRegistry(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+		FunctionCounter.builder("reactive.socket.client.retries", retries, LongAdder::sum)
+				.register(meterRegistry);
+		FunctionCounter.builder("reactive.socket.client.retry.budget.exhausted", budgetExhausted, LongAdder::sum)
+				.register(meterRegistry);
+		breakers.forEach(this::registerMeters);
+	}
+
+	/**
+	 * @return the breaker of the path, null if no call was made on it yet or circuit breaking is disabled
+	 */
+	public CircuitBreaker getCircuitBreaker(String path) {
+		return breakers.get(path);
+	}
+
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	public long getBudgetExhaustedCount() {
+		return budgetExhausted.sum();
+	}
+
+	/**
+	 * @param path route of the call
+	 * @param idempotent whether the call may be retried after a failure the server may have seen
+	 * @param request sends the request every time it is called
+	 */
+	public <T> Mono<T> apply(String path, boolean idempotent, Supplier<Mono<T>> request) {
+		return Mono.defer(() -> {
+			retryBudget.deposit();
+			return Mono.defer(() -> attempt(path, request))
+					.retryWhen(errors -> errors.index().concatMap(error -> retry(error.getT2(), error.getT1() + 1, idempotent)));
+		});
+	}
+
+	/**
+	 * Like {@link #apply(String, boolean, Supplier)}, the latency fed to the breaker is the time to the first element.
+	 */
+	public <T> Flux<T> applyMany(String path, boolean idempotent, Supplier<Flux<T>> request) {
+		return Flux.defer(() -> {
+			retryBudget.deposit();
+			AtomicBoolean emitted = new AtomicBoolean();
+			return Flux.defer(() -> attemptMany(path, request))
+					.doOnNext(element -> emitted.set(true))
+					.retryWhen(errors -> errors.index().concatMap(error -> emitted.get()
+							? Mono.<Long>error(error.getT2())
+							: retry(error.getT2(), error.getT1() + 1, idempotent)));
+		});
+	}
+
+	private <T> Mono<T> attempt(String path, Supplier<Mono<T>> request) {
+		CircuitBreaker breaker = breakerFor(path);
+		if(breaker == null){
+			return request.get();
+		}
+		if(!breaker.tryAcquire()){
+			return Mono.error(Rejections.circuitOpen(path));
+		}
+		long start = System.nanoTime();
+		return request.get()
+				.doOnSuccess(value -> breaker.onResult(false, System.nanoTime() - start))
+				.doOnError(error -> breaker.onResult(isFailure(error), System.nanoTime() - start))
+				.doOnCancel(breaker::onCancel);
+	}
+
+	private <T> Flux<T> attemptMany(String path, Supplier<Flux<T>> request) {
+		CircuitBreaker breaker = breakerFor(path);
+		if(breaker == null){
+			return request.get();
+		}
+		if(!breaker.tryAcquire()){
+			return Flux.error(Rejections.circuitOpen(path));
+		}
+		long start = System.nanoTime();
+		AtomicBoolean reported = new AtomicBoolean();
+		return request.get()
+				.doOnNext(element -> {
+					if(reported.compareAndSet(false, true)){
+						breaker.onResult(false, System.nanoTime() - start);
+					}
+				})
+				.doOnComplete(() -> {
+					if(reported.compareAndSet(false, true)){
+						breaker.onResult(false, System.nanoTime() - start);
+					}
+				})
+				.doOnError(error -> {
+					if(reported.compareAndSet(false, true)){
+						breaker.onResult(isFailure(error), System.nanoTime() - start);
+					}
+				})
+				.doOnCancel(() -> {
+					if(reported.compareAndSet(false, true)){
+						breaker.onCancel();
+					}
+				});
+	}
+
+	private Mono<Long> retry(Throwable error, long attempt, boolean idempotent) {
+		if(attempt > maxRetries || !isRetryable(error, idempotent)){
+			return Mono.error(error);
+		}
+		if(!retryBudget.tryWithdraw()){
+			budgetExhausted.increment();
+			return Mono.error(error);
+		}
+		retries.increment();
+		long ceiling = Math.min(maxBackoff.toNanos(), backoff.toNanos() << Math.min(attempt - 1, 30));
+		return Mono.delay(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1)));
+	}
+
+	private boolean isRetryable(Throwable error, boolean idempotent) {
+		String reason = Rejections.reasonOf(error);
+		if(reason != null){
+			return RETRYABLE_REJECTIONS.contains(reason);
+		}
+		return idempotent && !(error instanceof ApplicationException);
+	}
+
+	/**
+	 * Errors of the service itself say nothing about the health of the endpoint, rejections and transport errors do.
+	 */
+	private boolean isFailure(Throwable error) {
+		return !(error instanceof ApplicationException) || Rejections.isRejection(error);
+	}
+
+	private CircuitBreaker breakerFor(String path) {
+		if(breakerFactory == null){
+			return null;
+		}
+		CircuitBreaker breaker = breakers.get(path);
+		if(breaker == null){
+			CircuitBreaker created = breakerFactory.get();
+			breaker = breakers.putIfAbsent(path, created);
+			if(breaker == null){
+				breaker = created;
+				if(meterRegistry != null){
+					registerMeters(path, created);
+				}
+			}
+		}
+		return breaker;
+	}
+
+	private void registerMeters(String path, CircuitBreaker breaker) {
+		Gauge.builder("reactive.socket.client.breaker.state", breaker, cb -> cb.getState().ordinal())
+				.tag("path", path)
+				.register(meterRegistry);
+		Gauge.builder("reactive.socket.client.breaker.failure.rate", breaker, CircuitBreaker::getFailureRate)
+				.tag("path", path)
+				.register(meterRegistry);
+		Gauge.builder("reactive.socket.client.breaker.slow.rate", breaker, CircuitBreaker::getSlowCallRate)
+				.tag("path", path)
+				.register(meterRegistry);
+		FunctionCounter.builder("reactive.socket.client.breaker.rejected", breaker, CircuitBreaker::getRejectedCount)
+				.tag("path", path)
+				.register(meterRegistry);
+	}
+}
@@ -17,7 +17,15 @@
 
 package org.springframework.cloud.reactive.socket.config;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.reactive.socket.flow.LimiterAlgorithm;
+import org.springframework.cloud.reactive.socket.flow.OverflowPolicy;
+import org.springframework.cloud.reactive.socket.flow.RateLimit;
+import org.springframework.cloud.reactive.socket.util.Chunks;
 
 /**
  * @author Vinicius Carvalho
@@ -29,6 +37,30 @@ public class ReactiveSocketProperties {
 
 	private String host = "localhost";
 
+	private final Transport transport = new Transport();
+
+	private final Ingestion ingestion = new Ingestion();
+
+	private final Limiter limiter = new Limiter();
+
+	private final RateLimits rateLimit = new RateLimits();
+
+	private final Lease lease = new Lease();
+
+	private final Offload offload = new Offload();
+
+	private final Outbound outbound = new Outbound();
+
+	private final Resume resume = new Resume();
+
+	private final Shutdown shutdown = new Shutdown();
+
+	private final Metrics metrics = new Metrics();
+
+	private final Connections connections = new Connections();
+
+	private Map<String, Listener> listeners = new HashMap<>();
+
 	public Integer getPort() {
 		return port;
 	}
@@ -44,4 +76,737 @@ public class ReactiveSocketProperties {
 	public void setHost(String host) {
 		this.host = host;
 	}
+
+	public Transport getTransport() {
+		return transport;
+	}
+
+	public Ingestion getIngestion() {
+		return ingestion;
+	}
+
+	public Limiter getLimiter() {
+		return limiter;
+	}
+
+	public RateLimits getRateLimit() {
+		return rateLimit;
+	}
+
+	public Lease getLease() {
+		return lease;
+	}
+
+	public Offload getOffload() {
+		return offload;
+	}
+
+	public Outbound getOutbound() {
+		return outbound;
+	}
+
+	public Resume getResume() {
+		return resume;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public Connections getConnections() {
+		return connections;
+	}
+
+	public Shutdown getShutdown() {
+		return shutdown;
+	}
+
+	public Map<String, Listener> getListeners() {
+		return listeners;
+	}
+
+	public void setListeners(Map<String, Listener> listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Netty settings of the TCP transport.
+	 */
+	public static class Transport {
+
+		/**
+		 * Path of a Unix domain socket to bind instead of the TCP host and port.
+		 */
+		private String domainSocket;
+
+		/**
+		 * Use the native epoll transport when available.
+		 */
+		private boolean preferNative = true;
+
+		/**
+		 * Event loop threads accepting connections, 0 for the Netty default.
+		 */
+		private int selectThreads = 0;
+
+		/**
+		 * Event loop threads serving connections, 0 for the Netty default.
+		 */
+		private int workerThreads = 0;
+
+		/**
+		 * Bind the port with SO_REUSEPORT, needs the native epoll transport.
+		 */
+		private boolean reusePort = false;
+
+		/**
+		 * Number of listening sockets bound to the port when reusePort is enabled.
+		 */
+		private int acceptors = 1;
+
+		private boolean tcpNoDelay = true;
+
+		/**
+		 * Socket send buffer in bytes, 0 for the OS default.
+		 */
+		private int sendBufferSize = 0;
+
+		/**
+		 * Socket receive buffer in bytes, 0 for the OS default.
+		 */
+		private int receiveBufferSize = 0;
+
+		private Allocator allocator = Allocator.POOLED;
+
+		/**
+		 * Allocate direct buffers instead of heap buffers.
+		 */
+		private boolean directBuffers = true;
+
+		/**
+		 * Maximum size in bytes of the frames sent, larger payloads are fragmented. 0 disables fragmentation.
+		 */
+		private int fragmentSize = 0;
+
+		/**
+		 * Maximum size in bytes of an inbound request payload, larger requests are rejected before being decoded. 0
+		 * for no limit.
+		 */
+		private int maxPayloadSize = 0;
+
+		/**
+		 * Size in bytes of the chunks files, resources and buffers returned by request many methods are sent in.
+		 */
+		private int chunkSize = Chunks.DEFAULT_CHUNK_SIZE;
+
+		public int getFragmentSize() {
+			return fragmentSize;
+		}
+
+		public void setFragmentSize(int fragmentSize) {
+			this.fragmentSize = fragmentSize;
+		}
+
+		public int getMaxPayloadSize() {
+			return maxPayloadSize;
+		}
+
+		public void setMaxPayloadSize(int maxPayloadSize) {
+			this.maxPayloadSize = maxPayloadSize;
+		}
+
+		public int getChunkSize() {
+			return chunkSize;
+		}
+
+		public void setChunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		public String getDomainSocket() {
+			return domainSocket;
+		}
+
+		public void setDomainSocket(String domainSocket) {
+			this.domainSocket = domainSocket;
+		}
+
+		public boolean isPreferNative() {
+			return preferNative;
+		}
+
+		public void setPreferNative(boolean preferNative) {
+			this.preferNative = preferNative;
+		}
+
+		public int getSelectThreads() {
+			return selectThreads;
+		}
+
+		public void setSelectThreads(int selectThreads) {
+			this.selectThreads = selectThreads;
+		}
+
+		public int getWorkerThreads() {
+			return workerThreads;
+		}
+
+		public void setWorkerThreads(int workerThreads) {
+			this.workerThreads = workerThreads;
+		}
+
+		public boolean isReusePort() {
+			return reusePort;
+		}
+
+		public void setReusePort(boolean reusePort) {
+			this.reusePort = reusePort;
+		}
+
+		public int getAcceptors() {
+			return acceptors;
+		}
+
+		public void setAcceptors(int acceptors) {
+			this.acceptors = acceptors;
+		}
+
+		public boolean isTcpNoDelay() {
+			return tcpNoDelay;
+		}
+
+		public void setTcpNoDelay(boolean tcpNoDelay) {
+			this.tcpNoDelay = tcpNoDelay;
+		}
+
+		public int getSendBufferSize() {
+			return sendBufferSize;
+		}
+
+		public void setSendBufferSize(int sendBufferSize) {
+			this.sendBufferSize = sendBufferSize;
+		}
+
+		public int getReceiveBufferSize() {
+			return receiveBufferSize;
+		}
+
+		public void setReceiveBufferSize(int receiveBufferSize) {
+			this.receiveBufferSize = receiveBufferSize;
+		}
+
+		public Allocator getAllocator() {
+			return allocator;
+		}
+
+		public void setAllocator(Allocator allocator) {
+			this.allocator = allocator;
+		}
+
+		public boolean isDirectBuffers() {
+			return directBuffers;
+		}
+
+		public void setDirectBuffers(boolean directBuffers) {
+			this.directBuffers = directBuffers;
+		}
+
+		public enum Allocator {
+
+			POOLED,
+
+			UNPOOLED
+		}
+	}
+
+	/**
+	 * Bounded ingestion of one way requests.
+	 */
+	public static class Ingestion {
+
+		/**
+		 * Pending invocations per one way endpoint, 0 invokes handlers on the transport thread.
+		 */
+		private int capacity = 0;
+
+		private OverflowPolicy policy = OverflowPolicy.DROP_NEWEST;
+
+		/**
+		 * Keep one in every sampleRate overflowing messages when using the SAMPLE policy.
+		 */
+		private int sampleRate = 10;
+
+		private int workers = Runtime.getRuntime().availableProcessors();
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public OverflowPolicy getPolicy() {
+			return policy;
+		}
+
+		public void setPolicy(OverflowPolicy policy) {
+			this.policy = policy;
+		}
+
+		public int getSampleRate() {
+			return sampleRate;
+		}
+
+		public void setSampleRate(int sampleRate) {
+			this.sampleRate = sampleRate;
+		}
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public void setWorkers(int workers) {
+			this.workers = workers;
+		}
+	}
+
+	/**
+	 * Adaptive concurrency limits of request/response and stream endpoints.
+	 */
+	public static class Limiter {
+
+		private LimiterAlgorithm algorithm = LimiterAlgorithm.NONE;
+
+		private int initialLimit = 20;
+
+		private int minLimit = 1;
+
+		private int maxLimit = 1000;
+
+		public LimiterAlgorithm getAlgorithm() {
+			return algorithm;
+		}
+
+		public void setAlgorithm(LimiterAlgorithm algorithm) {
+			this.algorithm = algorithm;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+	}
+
+	/**
+	 * Per connection rate limits. The top level values apply to every connection, unless the client identity sent on
+	 * the setup payload has its own entry in clients. Routes are limited on each connection independently.
+	 */
+	public static class RateLimits extends RateLimit {
+
+		private Map<String, RateLimit> clients = new HashMap<>();
+
+		private Map<String, RateLimit> routes = new HashMap<>();
+
+		public Map<String, RateLimit> getClients() {
+			return clients;
+		}
+
+		public void setClients(Map<String, RateLimit> clients) {
+			this.clients = clients;
+		}
+
+		public Map<String, RateLimit> getRoutes() {
+			return routes;
+		}
+
+		public void setRoutes(Map<String, RateLimit> routes) {
+			this.routes = routes;
+		}
+
+		public boolean isEnabled() {
+			return getRequestsPerSecond() > 0 || getBytesPerSecond() > 0 || !clients.isEmpty() || !routes.isEmpty();
+		}
+	}
+
+	/**
+	 * Leases granted to connections, sized from the load of the server.
+	 */
+	public static class Lease {
+
+		private boolean enabled = false;
+
+		/**
+		 * How often leases are granted.
+		 */
+		private Duration window = Duration.ofSeconds(1);
+
+		/**
+		 * Number of concurrent requests the server is willing to process, shared by all connections.
+		 */
+		private int capacity = 256;
+
+		/**
+		 * Permits granted to every connection even when the server is saturated.
+		 */
+		private int minPermits = 1;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+
+		public int getMinPermits() {
+			return minPermits;
+		}
+
+		public void setMinPermits(int minPermits) {
+			this.minPermits = minPermits;
+		}
+	}
+
+	/**
+	 * Priority aware offloading of request/response and stream invocations.
+	 */
+	public static class Offload {
+
+		/**
+		 * Number of worker threads, 0 invokes handlers on the transport threads.
+		 */
+		private int workers = 0;
+
+		/**
+		 * Maximum number of requests waiting for a worker.
+		 */
+		private int capacity = 1024;
+
+		public int getWorkers() {
+			return workers;
+		}
+
+		public void setWorkers(int workers) {
+			this.workers = workers;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		public void setCapacity(int capacity) {
+			this.capacity = capacity;
+		}
+	}
+
+	/**
+	 * Fair interleaving of the streams open on a connection.
+	 */
+	public static class Outbound {
+
+		private boolean fair = false;
+
+		/**
+		 * Bytes a stream of weight 1 may send per turn.
+		 */
+		private int quantum = 16 * 1024;
+
+		/**
+		 * Weight of each endpoint path, endpoints not listed have a weight of 1.
+		 */
+		private Map<String, Integer> weights = new HashMap<>();
+
+		public boolean isFair() {
+			return fair;
+		}
+
+		public void setFair(boolean fair) {
+			this.fair = fair;
+		}
+
+		public int getQuantum() {
+			return quantum;
+		}
+
+		public void setQuantum(int quantum) {
+			this.quantum = quantum;
+		}
+
+		public Map<String, Integer> getWeights() {
+			return weights;
+		}
+
+		public void setWeights(Map<String, Integer> weights) {
+			this.weights = weights;
+		}
+	}
+
+	/**
+	 * Resumption of streams across connections.
+	 */
+	public static class Resume {
+
+		private boolean enabled = false;
+
+		/**
+		 * How long a stream is kept once its connection is lost.
+		 */
+		private Duration sessionTimeout = Duration.ofSeconds(30);
+
+		/**
+		 * Bytes of payload data each stream keeps for replay.
+		 */
+		private long bufferSize = 1024 * 1024;
+
+		/**
+		 * Keep replay buffers in direct memory.
+		 */
+		private boolean offHeap = false;
+
+		/**
+		 * Maximum number of streams kept for resumption, further resumable requests are refused.
+		 */
+		private int maxSessions = 10000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getSessionTimeout() {
+			return sessionTimeout;
+		}
+
+		public void setSessionTimeout(Duration sessionTimeout) {
+			this.sessionTimeout = sessionTimeout;
+		}
+
+		public long getBufferSize() {
+			return bufferSize;
+		}
+
+		public void setBufferSize(long bufferSize) {
+			this.bufferSize = bufferSize;
+		}
+
+		public boolean isOffHeap() {
+			return offHeap;
+		}
+
+		public void setOffHeap(boolean offHeap) {
+			this.offHeap = offHeap;
+		}
+
+		public int getMaxSessions() {
+			return maxSessions;
+		}
+
+		public void setMaxSessions(int maxSessions) {
+			this.maxSessions = maxSessions;
+		}
+	}
+
+	/**
+	 * A listener bound next to the default one, with its own transport and event loops. Endpoints are assigned to
+	 * listeners with {@link org.springframework.cloud.reactive.socket.annotation.Listener}.
+	 */
+	public static class Listener {
+
+		/**
+		 * Host to bind, the top level host when not set.
+		 */
+		private String host;
+
+		/**
+		 * Port to bind, required unless the listener binds a domain socket.
+		 */
+		private Integer port;
+
+		private final Transport transport = new Transport();
+
+		public String getHost() {
+			return host;
+		}
+
+		public void setHost(String host) {
+			this.host = host;
+		}
+
+		public Integer getPort() {
+			return port;
+		}
+
+		public void setPort(Integer port) {
+			this.port = port;
+		}
+
+		public Transport getTransport() {
+			return transport;
+		}
+	}
+
+	/**
+	 * Graceful shutdown: clients are told to go away and requests in flight may complete before the server stops.
+	 */
+	public static class Shutdown {
+
+		private boolean graceful = true;
+
+		/**
+		 * How long requests and streams in flight may take to complete once the server stops.
+		 */
+		private Duration drainTimeout = Duration.ofSeconds(30);
+
+		public boolean isGraceful() {
+			return graceful;
+		}
+
+		public void setGraceful(boolean graceful) {
+			this.graceful = graceful;
+		}
+
+		public Duration getDrainTimeout() {
+			return drainTimeout;
+		}
+
+		public void setDrainTimeout(Duration drainTimeout) {
+			this.drainTimeout = drainTimeout;
+		}
+	}
+
+	/**
+	 * Registry of the open connections, counting their traffic and closing the idle ones.
+	 */
+	public static class Connections {
+
+		private boolean enabled = true;
+
+		/**
+		 * Close connections without open streams and without requests for this long, by default they stay open.
+		 */
+		private Duration idleTimeout;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getIdleTimeout() {
+			return idleTimeout;
+		}
+
+		public void setIdleTimeout(Duration idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+	}
+
+	/**
+	 * Per endpoint meters, recorded when a MeterRegistry bean is available.
+	 */
+	public static class Metrics {
+
+		private boolean enabled = true;
+
+		/**
+		 * Latency percentiles published by every endpoint.
+		 */
+		private double[] percentiles = {0.5, 0.95, 0.99};
+
+		/**
+		 * Publish the latency histogram buckets, for percentiles aggregated across instances.
+		 */
+		private boolean histogram = false;
+
+		/**
+		 * Time the dispatch stages and payload sizes of one request in this many, 0 disables stage timing.
+		 */
+		private int stageSampleRate = 0;
+
+		/**
+		 * Emit Java Flight Recorder events for slow requests while a recording enables them.
+		 */
+		private boolean flightRecorder = true;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public double[] getPercentiles() {
+			return percentiles;
+		}
+
+		public void setPercentiles(double[] percentiles) {
+			this.percentiles = percentiles;
+		}
+
+		public boolean isHistogram() {
+			return histogram;
+		}
+
+		public void setHistogram(boolean histogram) {
+			this.histogram = histogram;
+		}
+
+		public int getStageSampleRate() {
+			return stageSampleRate;
+		}
+
+		public void setStageSampleRate(int stageSampleRate) {
+			this.stageSampleRate = stageSampleRate;
+		}
+
+		public boolean isFlightRecorder() {
+			return flightRecorder;
+		}
+
+		public void setFlightRecorder(boolean flightRecorder) {
+			this.flightRecorder = flightRecorder;
+		}
+	}
 }
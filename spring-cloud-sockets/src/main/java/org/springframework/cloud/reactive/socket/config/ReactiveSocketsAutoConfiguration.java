@@ -17,17 +17,32 @@
 
 package org.springframework.cloud.reactive.socket.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import io.rsocket.transport.ServerTransport;
 import io.rsocket.transport.netty.server.TcpServerTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.reactive.socket.DispatchSocketAcceptor;
 import org.springframework.cloud.reactive.socket.DispatcherHandler;
 import org.springframework.cloud.reactive.socket.ReactiveSocketServer;
+import org.springframework.cloud.reactive.socket.flow.DrainGate;
+import org.springframework.cloud.reactive.socket.flow.LeaseGranter;
+import org.springframework.cloud.reactive.socket.flow.LimiterAlgorithm;
+import org.springframework.cloud.reactive.socket.flow.RateLimitPolicy;
+import org.springframework.cloud.reactive.socket.flow.ServerLoad;
+import org.springframework.cloud.reactive.socket.metrics.ConnectionRegistry;
+import org.springframework.cloud.reactive.socket.resume.ResumeSessions;
+import org.springframework.cloud.reactive.socket.transport.DomainSocketServerTransport;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -36,34 +51,181 @@ import org.springframework.context.annotation.Configuration;
  */
 @Configuration
 @EnableConfigurationProperties(ReactiveSocketProperties.class)
-public class ReactiveSocketsAutoConfiguration {
+public class ReactiveSocketsAutoConfiguration implements DisposableBean {
 
 	@Autowired
 	private ReactiveSocketProperties properties;
 
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	private ServerTransport defaultTransport;
+
+	private final List<TcpTransportFactory> listenerFactories = new ArrayList<>();
+
 	private Logger logger = LoggerFactory.getLogger(getClass());
 
+	@Bean
+	public TcpTransportFactory tcpTransportFactory(){
+		return new TcpTransportFactory(properties.getTransport());
+	}
+
 	@Bean
 	@ConditionalOnMissingBean(ServerTransport.class)
 	public ServerTransport transport(){
-		logger.info("Creating transport : {} on [ {}:{} ]", TcpServerTransport.class.getName(), properties.getHost(), properties.getPort());
-		return TcpServerTransport.create(properties.getHost(), properties.getPort());
+		String domainSocket = properties.getTransport().getDomainSocket();
+		if(domainSocket != null){
+			logger.info("Creating transport : {} on [ {} ]", DomainSocketServerTransport.class.getName(), domainSocket);
+			this.defaultTransport = new DomainSocketServerTransport(domainSocket, properties.getTransport().getWorkerThreads());
+		}else{
+			TcpTransportFactory factory = tcpTransportFactory();
+			logger.info("Creating transport : {} on [ {}:{} ], native: {}", TcpServerTransport.class.getName(), properties.getHost(), properties.getPort(), factory.isNativeAvailable());
+			this.defaultTransport = factory.createServer(properties.getHost(), properties.getPort());
+		}
+		return this.defaultTransport;
+	}
+
+
+	/**
+	 * With SO_REUSEPORT the extra acceptors bind the same port next to the transport bean, unless the application
+	 * defined its own transport.
+	 */
+	@Bean
+	public ReactiveSocketServer reactiveSocketServer(ServerTransport transport){
+		List<ServerTransport> transports = new ArrayList<>();
+		transports.add(transport);
+		if(transport == this.defaultTransport && properties.getTransport().getDomainSocket() == null){
+			List<ServerTransport> acceptors = tcpTransportFactory().createServers(properties.getHost(), properties.getPort());
+			transports.addAll(acceptors.subList(1, acceptors.size()));
+		}
+		ReactiveSocketServer server = new ReactiveSocketServer(transports, acceptor());
+		server.setFragmentSize(properties.getTransport().getFragmentSize());
+		properties.getListeners().forEach((name, listener) -> {
+			DispatchSocketAcceptor acceptor = createAcceptor();
+			acceptor.setListener(name);
+			server.addListener(name, listenerTransports(name, listener), acceptor);
+		});
+		if(properties.getLease().isEnabled()){
+			server.setLeaseGranter(leaseGranter());
+		}
+		if(properties.getShutdown().isGraceful()){
+			server.setDrainGate(drainGate(), properties.getShutdown().getDrainTimeout());
+		}
+		if(properties.getConnections().isEnabled()){
+			server.setConnectionRegistry(connectionRegistry());
+		}
+		return server;
 	}
 
+	/**
+	 * Every named listener gets its own event loops.
+	 */
+	private List<ServerTransport> listenerTransports(String name, ReactiveSocketProperties.Listener listener){
+		ReactiveSocketProperties.Transport transport = listener.getTransport();
+		if(transport.getDomainSocket() != null){
+			logger.info("Creating listener {} : {} on [ {} ]", name, DomainSocketServerTransport.class.getName(), transport.getDomainSocket());
+			return Collections.singletonList(new DomainSocketServerTransport(transport.getDomainSocket(), transport.getWorkerThreads()));
+		}
+		Integer port = listener.getPort();
+		if(port == null || port < 0 || port > 65535){
+			throw new IllegalStateException("Listener " + name + " needs a port between 0 and 65535 or a domain socket, set reactive.socket.listeners."
+					+ name + ".port or reactive.socket.listeners." + name + ".transport.domain-socket");
+		}
+		String host = (listener.getHost() != null) ? listener.getHost() : properties.getHost();
+		TcpTransportFactory factory = new TcpTransportFactory("reactive-socket-" + name, transport);
+		listenerFactories.add(factory);
+		logger.info("Creating listener {} : {} on [ {}:{} ], native: {}", name, TcpServerTransport.class.getName(), host, port, factory.isNativeAvailable());
+		return factory.createServers(host, port);
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "reactive.socket.shutdown", name = "graceful", havingValue = "true", matchIfMissing = true)
+	public DrainGate drainGate(){
+		return new DrainGate();
+	}
 
+	/**
+	 * Being a MeterBinder, the registry publishes its meters to the MeterRegistry of the application if any.
+	 */
 	@Bean
-	public ReactiveSocketServer reactiveSocketServer(){
-		return new ReactiveSocketServer(transport(), acceptor());
+	@ConditionalOnProperty(prefix = "reactive.socket.connections", name = "enabled", havingValue = "true", matchIfMissing = true)
+	public ConnectionRegistry connectionRegistry(){
+		ConnectionRegistry registry = new ConnectionRegistry();
+		registry.setIdleTimeout(properties.getConnections().getIdleTimeout());
+		return registry;
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "reactive.socket.lease", name = "enabled", havingValue = "true")
+	public LeaseGranter leaseGranter(){
+		ReactiveSocketProperties.Lease lease = properties.getLease();
+		DispatcherHandler handler = handler();
+		return new LeaseGranter(lease.getWindow(), lease.getCapacity(), lease.getMinPermits(), new ServerLoad(handler::getQueueDepth));
 	}
 
 	@Bean
 	public DispatchSocketAcceptor acceptor(){
-		return new DispatchSocketAcceptor(handler());
+		DispatchSocketAcceptor acceptor = createAcceptor();
+		if(!properties.getListeners().isEmpty()){
+			acceptor.setListener(ReactiveSocketServer.DEFAULT_LISTENER);
+		}
+		return acceptor;
+	}
+
+	private DispatchSocketAcceptor createAcceptor(){
+		DispatchSocketAcceptor acceptor = new DispatchSocketAcceptor(handler());
+		ReactiveSocketProperties.RateLimits rateLimit = properties.getRateLimit();
+		if(rateLimit.isEnabled()){
+			acceptor.setRateLimitPolicy(new RateLimitPolicy(rateLimit, rateLimit.getClients(), rateLimit.getRoutes()));
+		}
+		if(properties.getLease().isEnabled()){
+			acceptor.setLeaseGranter(leaseGranter());
+		}
+		if(properties.getShutdown().isGraceful()){
+			acceptor.setDrainGate(drainGate());
+		}
+		if(properties.getConnections().isEnabled()){
+			acceptor.setConnectionRegistry(connectionRegistry());
+		}
+		if(properties.getOutbound().isFair()){
+			acceptor.setOutboundScheduling(properties.getOutbound().getQuantum(), properties.getOutbound().getWeights());
+		}
+		return acceptor;
 	}
 
 	@Bean
 	public DispatcherHandler handler(){
-		return new DispatcherHandler();
+		DispatcherHandler handler = new DispatcherHandler();
+		handler.setIngestionCapacity(properties.getIngestion().getCapacity());
+		handler.setOverflowPolicy(properties.getIngestion().getPolicy());
+		handler.setOverflowSampleRate(properties.getIngestion().getSampleRate());
+		handler.setIngestionWorkers(properties.getIngestion().getWorkers());
+		handler.setOffloadWorkers(properties.getOffload().getWorkers());
+		handler.setOffloadCapacity(properties.getOffload().getCapacity());
+		handler.setMaxPayloadSize(properties.getTransport().getMaxPayloadSize());
+		handler.setChunkSize(properties.getTransport().getChunkSize());
+		ReactiveSocketProperties.Limiter limiter = properties.getLimiter();
+		if(limiter.getAlgorithm() != LimiterAlgorithm.NONE){
+			handler.setConcurrencyLimiterFactory(() -> limiter.getAlgorithm().create(limiter.getInitialLimit(), limiter.getMinLimit(), limiter.getMaxLimit()));
+		}
+		ReactiveSocketProperties.Resume resume = properties.getResume();
+		if(resume.isEnabled()){
+			handler.setResumeSessions(new ResumeSessions(resume.getSessionTimeout(), resume.getBufferSize(), resume.isOffHeap(), resume.getMaxSessions()));
+		}
+		handler.setMeterRegistry(meterRegistry);
+		handler.setEndpointMetricsEnabled(properties.getMetrics().isEnabled());
+		handler.setLatencyPercentiles(properties.getMetrics().getPercentiles(), properties.getMetrics().isHistogram());
+		handler.setStageSampleRate(properties.getMetrics().getStageSampleRate());
+		handler.setFlightRecorderEnabled(properties.getMetrics().isFlightRecorder());
+		return handler;
+	}
+
+	/**
+	 * Releases the event loops of the named listeners, the servers are stopped by then.
+	 */
+	@Override
+	public void destroy() {
+		listenerFactories.forEach(TcpTransportFactory::destroy);
 	}
 
 }
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.rsocket.transport.ServerTransport;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.ipc.netty.options.ServerOptions;
+import reactor.ipc.netty.resources.LoopResources;
+import reactor.ipc.netty.tcp.TcpServer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Builds TCP server transports from {@link ReactiveSocketProperties.Transport}: native epoll, event loop sizes, socket
+ * options and buffer allocator. All the transports built by one factory share the same event loops, released when the
+ * factory is destroyed. The native transport is optional, it is only used when its classes are on the class path.
+ *
+ * @author Vinicius Carvalho
+ */
+public class TcpTransportFactory implements DisposableBean {
+
+	private static final boolean EPOLL_PRESENT = ClassUtils.isPresent("io.netty.channel.epoll.Epoll", TcpTransportFactory.class.getClassLoader());
+
+	private final ReactiveSocketProperties.Transport properties;
+
+	private final LoopResources loopResources;
+
+	private final ByteBufAllocator allocator;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	public TcpTransportFactory(ReactiveSocketProperties.Transport properties) {
+		this(null, properties);
+	}
+
+	/**
+	 * @param name prefix of the event loop threads. A named factory always creates its own event loops, isolating the
+	 * traffic of its transports from any other listener. Without a name the Netty default event loops are used unless
+	 * thread counts are set.
+	 * @param properties settings of the transports
+	 */
+	public TcpTransportFactory(String name, ReactiveSocketProperties.Transport properties) {
+		this.properties = properties;
+		this.loopResources = (name != null || properties.getSelectThreads() > 0 || properties.getWorkerThreads() > 0)
+				? LoopResources.create((name != null) ? name : "reactive-socket",
+						positiveOr(properties.getSelectThreads(), 1),
+						positiveOr(properties.getWorkerThreads(), LoopResources.DEFAULT_IO_WORKER_COUNT), true)
+				: null;
+		this.allocator = (properties.getAllocator() == ReactiveSocketProperties.Transport.Allocator.POOLED)
+				? new PooledByteBufAllocator(properties.isDirectBuffers())
+				: new UnpooledByteBufAllocator(properties.isDirectBuffers());
+		if(properties.isReusePort() && !isReusePortAvailable()){
+			logger.warn("SO_REUSEPORT needs the native epoll transport, binding a single acceptor");
+		}
+	}
+
+	/**
+	 * @return one transport per acceptor when SO_REUSEPORT is available, a single transport otherwise
+	 */
+	public List<ServerTransport> createServers(String host, int port) {
+		int acceptors = isReusePortAvailable() ? Math.max(1, properties.getAcceptors()) : 1;
+		List<ServerTransport> transports = new ArrayList<>(acceptors);
+		for(int i = 0; i < acceptors; i++){
+			transports.add(createServer(host, port));
+		}
+		return transports;
+	}
+
+	public TcpServerTransport createServer(String host, int port) {
+		return TcpServerTransport.create(TcpServer.create(options -> configure(options.host(host).port(port))));
+	}
+
+	public boolean isNativeAvailable() {
+		return properties.isPreferNative() && EPOLL_PRESENT && Epoll.isAvailable();
+	}
+
+	/**
+	 * Shuts down the event loops created by this factory, the Netty default ones are left alone.
+	 */
+	@Override
+	public void destroy() {
+		if(loopResources != null){
+			loopResources.dispose();
+		}
+	}
+
+	private boolean isReusePortAvailable() {
+		return properties.isReusePort() && isNativeAvailable();
+	}
+
+	/**
+	 * Selector options apply to the listening socket, the other ones to every accepted connection.
+	 */
+	private void configure(ServerOptions.Builder options) {
+		options.preferNative(properties.isPreferNative());
+		if(loopResources != null){
+			options.loopResources(loopResources);
+		}
+		if(isReusePortAvailable()){
+			options.selectorOption(EpollChannelOption.SO_REUSEPORT, true);
+		}
+		options.selectorOption(ChannelOption.ALLOCATOR, allocator);
+		options.option(ChannelOption.ALLOCATOR, allocator);
+		options.option(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay());
+		if(properties.getSendBufferSize() > 0){
+			options.option(ChannelOption.SO_SNDBUF, properties.getSendBufferSize());
+		}
+		if(properties.getReceiveBufferSize() > 0){
+			options.option(ChannelOption.SO_RCVBUF, properties.getReceiveBufferSize());
+		}
+	}
+
+	private static int positiveOr(int value, int fallback) {
+		return (value > 0) ? value : fallback;
+	}
+}
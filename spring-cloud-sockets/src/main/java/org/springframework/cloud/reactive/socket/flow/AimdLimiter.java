@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+
+/**
+ * Additive increase, multiplicative decrease: the limit grows by one while the endpoint is busy and requests complete
+ * in time, and is cut by the backoff ratio when a request is dropped or slower than the timeout.
+ *
+ * @author Vinicius Carvalho
+ */
+public class AimdLimiter extends ConcurrencyLimiter {
+
+	private final long timeout;
+
+	private final double backoffRatio;
+
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit) {
+		this(initialLimit, minLimit, maxLimit, Duration.ofSeconds(1), 0.9);
+	}
+
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit, Duration timeout, double backoffRatio) {
+		super(initialLimit, minLimit, maxLimit);
+		this.timeout = timeout.toNanos();
+		this.backoffRatio = backoffRatio;
+	}
+
+	@Override
+	protected int nextLimit(int limit, long rttNanos, int inFlight, boolean dropped) {
+		if(dropped || rttNanos > timeout){
+			return (int) (limit * backoffRatio);
+		}
+		if(inFlight * 2 >= limit){
+			return limit + 1;
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free bounded ring buffer, based on Dmitry Vyukov's bounded queue. Every slot carries a sequence number that
+ * tells producers and consumers whether it is free to be written or ready to be read, so any number of threads can
+ * offer and poll concurrently. The capacity is rounded up to the next power of two.
+ *
+ * @author Vinicius Carvalho
+ */
+public class BoundedRingBuffer<E> {
+
+	private final int mask;
+
+	private final AtomicReferenceArray<E> elements;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicLong tail = new AtomicLong();
+
+	public BoundedRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = size - 1;
+		this.elements = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for(int i=0; i<size; i++){
+			this.sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @param element the element to add
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(E element) {
+		long position = tail.get();
+		for(;;){
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - position;
+			if(difference == 0){
+				if(tail.compareAndSet(position, position + 1)){
+					elements.lazySet(index, element);
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+			}else if(difference < 0){
+				return false;
+			}
+			position = tail.get();
+		}
+	}
+
+	/**
+	 * @return the oldest element, or null if the buffer is empty
+	 */
+	public E poll() {
+		long position = head.get();
+		for(;;){
+			int index = (int) (position & mask);
+			long difference = sequences.get(index) - (position + 1);
+			if(difference == 0){
+				if(head.compareAndSet(position, position + 1)){
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.lazySet(index, position + mask + 1);
+					return element;
+				}
+			}else if(difference < 0){
+				return null;
+			}
+			position = head.get();
+		}
+	}
+
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free circuit breaker over a sliding time window. The window is split in buckets, each one packed in a single
+ * long (epoch, calls, failures and slow calls, 16 bits each) updated with compare and set, so recording a call never
+ * allocates nor locks. Once the window holds enough calls and the failure or slow call rate crosses its threshold the
+ * breaker opens and calls fail fast; after the open duration a few probe calls are let through and the breaker closes
+ * again once they all succeed.
+ *
+ * @author Vinicius Carvalho
+ */
+public class CircuitBreaker {
+
+	public enum State {
+
+		CLOSED,
+
+		OPEN,
+
+		HALF_OPEN
+	}
+
+	private static final int BUCKETS = 10;
+
+	private static final long FIELD = 0xFFFF;
+
+	private static final int CALLS = 32;
+
+	private static final int FAILURES = 16;
+
+	private static final int SLOW = 0;
+
+	private final long bucketNanos;
+
+	private final int minCalls;
+
+	private final double failureRateThreshold;
+
+	private final double slowCallRateThreshold;
+
+	private final long slowCallNanos;
+
+	private final long openNanos;
+
+	private final int halfOpenCalls;
+
+	private final long origin = System.nanoTime();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+	private final AtomicLong openedAt = new AtomicLong();
+
+	private final AtomicInteger probes = new AtomicInteger();
+
+	private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * @param window length of the sliding window
+	 * @param minCalls calls the window must hold before the rates are considered
+	 * @param failureRateThreshold share of failed calls that opens the breaker
+	 * @param slowCallRateThreshold share of slow calls that opens the breaker
+	 * @param slowCallDuration calls taking longer are slow
+	 * @param openDuration how long the breaker stays open before probing
+	 * @param halfOpenCalls number of probe calls
+	 */
+	public CircuitBreaker(Duration window, int minCalls, double failureRateThreshold, double slowCallRateThreshold,
+			Duration slowCallDuration, Duration openDuration, int halfOpenCalls) {
+		this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+		this.minCalls = minCalls;
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.slowCallNanos = slowCallDuration.toNanos();
+		this.openNanos = openDuration.toNanos();
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * @return true if the call may proceed, its outcome must then be reported with {@link #onResult(boolean, long)}
+	 * or {@link #onCancel()}
+	 */
+	public boolean tryAcquire() {
+		State current = state.get();
+		if(current == State.CLOSED){
+			return true;
+		}
+		if(current == State.OPEN){
+			if(System.nanoTime() - openedAt.get() < openNanos){
+				rejected.increment();
+				return false;
+			}
+			if(state.compareAndSet(State.OPEN, State.HALF_OPEN)){
+				probeSuccesses.set(0);
+				probes.set(halfOpenCalls);
+			}
+		}
+		if(probes.getAndDecrement() > 0){
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * @param failed whether the call failed
+	 * @param nanos duration of the call
+	 */
+	public void onResult(boolean failed, long nanos) {
+		boolean slow = nanos >= slowCallNanos;
+		State current = state.get();
+		if(current == State.HALF_OPEN){
+			if(failed || slow){
+				trip(State.HALF_OPEN);
+			}else if(probeSuccesses.incrementAndGet() >= halfOpenCalls && state.compareAndSet(State.HALF_OPEN, State.CLOSED)){
+				for(int i = 0; i < BUCKETS; i++){
+					buckets.set(i, 0);
+				}
+			}
+		}else if(current == State.CLOSED){
+			record(failed, slow);
+			if(shouldTrip()){
+				trip(State.CLOSED);
+			}
+		}
+	}
+
+	/**
+	 * A cancelled call says nothing about the endpoint, only its probe permit is given back.
+	 */
+	public void onCancel() {
+		if(state.get() == State.HALF_OPEN){
+			probes.incrementAndGet();
+		}
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public double getFailureRate() {
+		long[] totals = totals();
+		return (totals[0] == 0) ? 0.0 : (double) totals[1] / totals[0];
+	}
+
+	public double getSlowCallRate() {
+		long[] totals = totals();
+		return (totals[0] == 0) ? 0.0 : (double) totals[2] / totals[0];
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	private void trip(State from) {
+		openedAt.set(System.nanoTime());
+		state.compareAndSet(from, State.OPEN);
+	}
+
+	private boolean shouldTrip() {
+		long[] totals = totals();
+		if(totals[0] < minCalls){
+			return false;
+		}
+		return (double) totals[1] / totals[0] >= failureRateThreshold || (double) totals[2] / totals[0] >= slowCallRateThreshold;
+	}
+
+	private void record(boolean failed, boolean slow) {
+		long epoch = epoch();
+		int index = (int) (epoch % BUCKETS);
+		long tag = epoch & FIELD;
+		long current;
+		long next;
+		do{
+			current = buckets.get(index);
+			long base = (field(current, 48) == tag) ? current : (tag << 48);
+			next = increment(base, CALLS);
+			if(failed){
+				next = increment(next, FAILURES);
+			}
+			if(slow){
+				next = increment(next, SLOW);
+			}
+		}while(!buckets.compareAndSet(index, current, next));
+	}
+
+	/**
+	 * @return calls, failures and slow calls of the buckets still in the window
+	 */
+	private long[] totals() {
+		long epoch = epoch();
+		long[] totals = new long[3];
+		for(int i = 0; i < BUCKETS; i++){
+			long bucket = buckets.get(i);
+			if(((epoch - field(bucket, 48)) & FIELD) < BUCKETS){
+				totals[0] += field(bucket, CALLS);
+				totals[1] += field(bucket, FAILURES);
+				totals[2] += field(bucket, SLOW);
+			}
+		}
+		return totals;
+	}
+
+	private long epoch() {
+		return (System.nanoTime() - origin) / bucketNanos;
+	}
+
+	private static long field(long bucket, int shift) {
+		return (bucket >>> shift) & FIELD;
+	}
+
+	/**
+	 * Counters saturate instead of overflowing into the next field.
+	 */
+	private static long increment(long bucket, int shift) {
+		return (field(bucket, shift) < FIELD) ? bucket + (1L << shift) : bucket;
+	}
+}
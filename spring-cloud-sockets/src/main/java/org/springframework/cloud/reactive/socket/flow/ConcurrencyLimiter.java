@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of concurrent requests of an endpoint. The limit is not fixed, after every request the observed
+ * latency is fed to {@link #nextLimit(int, long, int, boolean)} so subclasses can grow or shrink it.
+ *
+ * All state is kept in atomics, acquiring and releasing a permit never blocks.
+ *
+ * @author Vinicius Carvalho
+ */
+public abstract class ConcurrencyLimiter {
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final AtomicInteger limit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final LongAdder rejected = new LongAdder();
+
+	protected ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = new AtomicInteger(initialLimit);
+	}
+
+	/**
+	 * @return true if a permit was acquired, false if the endpoint is at its limit
+	 */
+	public boolean tryAcquire() {
+		for(;;){
+			int current = inFlight.get();
+			if(current >= limit.get()){
+				rejected.increment();
+				return false;
+			}
+			if(inFlight.compareAndSet(current, current + 1)){
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases a permit and adjusts the limit.
+	 * @param rttNanos time taken by the request
+	 * @param dropped true if the request was abandoned, usually a sign of overload
+	 */
+	public void release(long rttNanos, boolean dropped) {
+		int current = inFlight.getAndDecrement();
+		onSample(rttNanos, dropped);
+		int previousLimit;
+		int nextLimit;
+		do{
+			previousLimit = limit.get();
+			nextLimit = Math.max(minLimit, Math.min(maxLimit, nextLimit(previousLimit, rttNanos, current, dropped)));
+		}while(previousLimit != nextLimit && !limit.compareAndSet(previousLimit, nextLimit));
+	}
+
+	/**
+	 * Called once per completed request, before the limit is recalculated.
+	 * @param rttNanos time taken by the request
+	 * @param dropped true if the request was abandoned
+	 */
+	protected void onSample(long rttNanos, boolean dropped) {
+	}
+
+	/**
+	 * Calculates the new limit, may be called more than once per sample if other threads update the limit concurrently.
+	 * @param limit the current limit
+	 * @param rttNanos time taken by the request
+	 * @param inFlight requests in flight when this one completed, itself included
+	 * @param dropped true if the request was abandoned
+	 * @return the new limit
+	 */
+	protected abstract int nextLimit(int limit, long rttNanos, int inFlight, boolean dropped);
+
+	public int getLimit() {
+		return limit.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets of a single connection. Route buckets are created the first time the route is requested. A request
+ * refused by one bucket gives back the tokens it took from the others, so refused requests cost nothing.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ConnectionRateLimiter {
+
+	private final Buckets connection;
+
+	private final Map<String, RateLimit> routeLimits;
+
+	private final Map<String, Buckets> routes = new ConcurrentHashMap<>();
+
+	ConnectionRateLimiter(RateLimit connectionLimit, Map<String, RateLimit> routeLimits) {
+		this.connection = new Buckets(connectionLimit);
+		this.routeLimits = routeLimits;
+	}
+
+	/**
+	 * @param path the route requested, may be null when unknown
+	 * @param bytes size of the request, data and metadata
+	 * @return true if the request is within the connection and route limits
+	 */
+	public boolean tryAcquire(String path, int bytes) {
+		RateLimit routeLimit = (path != null) ? routeLimits.get(path) : null;
+		Buckets route = (routeLimit != null) ? routes.computeIfAbsent(path, p -> new Buckets(routeLimit)) : null;
+		if(route != null && !route.tryAcquire(bytes)){
+			return false;
+		}
+		if(!connection.tryAcquire(bytes)){
+			if(route != null){
+				route.refund(bytes);
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private static class Buckets {
+
+		private final TokenBucket requests;
+
+		private final TokenBucket bytes;
+
+		Buckets(RateLimit limit) {
+			this.requests = limit.requestBucket();
+			this.bytes = limit.byteBucket();
+		}
+
+		boolean tryAcquire(int size) {
+			if(requests != null && !requests.tryAcquire(1)){
+				return false;
+			}
+			if(bytes != null && !bytes.tryAcquire(size)){
+				if(requests != null){
+					requests.refund(1);
+				}
+				return false;
+			}
+			return true;
+		}
+
+		void refund(int size) {
+			if(requests != null){
+				requests.refund(1);
+			}
+			if(bytes != null){
+				bytes.refund(size);
+			}
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Point in time after which the result of a request is of no use to the caller. Deadlines travel between client and
+ * server as the remaining budget in milliseconds, on the {@code TIMEOUT} metadata entry, so clocks do not need to be
+ * in sync. Each side turns the budget back into a deadline on its own monotonic clock.
+ *
+ * @author Vinicius Carvalho
+ */
+public final class Deadline {
+
+	public static final Deadline NONE = new Deadline(false, 0);
+
+	private final boolean bounded;
+
+	private final long expiresAt;
+
+	private Deadline(boolean bounded, long expiresAt) {
+		this.bounded = bounded;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @param budget time left to complete the request
+	 * @return a deadline expiring after the budget
+	 */
+	public static Deadline after(Duration budget) {
+		return new Deadline(true, System.nanoTime() + budget.toNanos());
+	}
+
+	public boolean isBounded() {
+		return bounded;
+	}
+
+	public boolean isExpired() {
+		return bounded && System.nanoTime() - expiresAt >= 0;
+	}
+
+	/**
+	 * @return the time left, never negative
+	 */
+	public Duration remaining() {
+		return Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime()));
+	}
+
+	/**
+	 * Subscribes to the source only if the deadline has not passed, and cancels it when the deadline is reached.
+	 * @param source the request
+	 * @param onExpired error signalled when the deadline passes
+	 * @return the bounded request
+	 */
+	public <T> Mono<T> bound(Mono<T> source, Supplier<? extends Throwable> onExpired) {
+		if(!bounded){
+			return source;
+		}
+		return Mono.defer(() -> isExpired()
+				? Mono.<T>error(onExpired.get())
+				: source.timeout(remaining(), Mono.defer(() -> Mono.<T>error(onExpired.get()))));
+	}
+
+	/**
+	 * Subscribes to the source only if the deadline has not passed, and cancels it when the deadline is reached.
+	 * @param source the stream
+	 * @param onExpired error signalled when the deadline passes
+	 * @return the bounded stream
+	 */
+	public <T> Flux<T> bound(Flux<T> source, Supplier<? extends Throwable> onExpired) {
+		if(!bounded){
+			return source;
+		}
+		return Flux.defer(() -> subscribeBounded(source, onExpired));
+	}
+
+	private <T> Flux<T> subscribeBounded(Flux<T> source, Supplier<? extends Throwable> onExpired) {
+		if(isExpired()){
+			return Flux.error(onExpired.get());
+		}
+		AtomicBoolean expired = new AtomicBoolean();
+		return source.takeUntilOther(Mono.delay(remaining()).doOnNext(tick -> expired.set(true)))
+				.concatWith(Mono.defer(() -> expired.get() ? Mono.<T>error(onExpired.get()) : Mono.<T>empty()));
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.rsocket.RSocket;
+import io.rsocket.util.PayloadImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Lets a server shut down without failing the work in flight. Once draining starts every connection is told to go
+ * away with a {@code metadataPush} frame of JSON metadata {@code {"GOAWAY":true}}, so clients send new requests to
+ * other replicas, and requests that still arrive are refused with a {@link Rejections#GOING_AWAY} rejection. Requests
+ * and streams in flight may complete until the drain timeout, then they are ended with a
+ * {@link Rejections#DRAIN_TIMEOUT} error and the connections are closed. The gate admits requests again once it is
+ * {@link #open() opened}, so a server can be stopped and started again.
+ *
+ * @author Vinicius Carvalho
+ */
+public class DrainGate {
+
+	private static final byte[] GOAWAY = "{\"GOAWAY\":true}".getBytes(StandardCharsets.UTF_8);
+
+	private static final Duration FLUSH_DELAY = Duration.ofMillis(100);
+
+	private final Set<RSocket> connections = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile MonoProcessor<Void> idle = MonoProcessor.create();
+
+	private volatile MonoProcessor<Void> closing = MonoProcessor.create();
+
+	private volatile boolean draining;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param sendingSocket the socket used to send frames to the client, closed once draining completes
+	 */
+	public void register(RSocket sendingSocket) {
+		connections.add(sendingSocket);
+		sendingSocket.onClose().doFinally(signal -> connections.remove(sendingSocket)).subscribe();
+		if(draining){
+			goAway(sendingSocket);
+		}
+	}
+
+	public <T> Mono<T> track(String path, Mono<T> request) {
+		return Mono.defer(() -> gated(path, request));
+	}
+
+	public <T> Flux<T> trackMany(String path, Flux<T> stream) {
+		return Flux.defer(() -> gatedMany(path, stream));
+	}
+
+	/**
+	 * Refuses new requests, tells clients to go away and waits for the requests in flight.
+	 * @param timeout how long requests in flight may take to complete
+	 * @return a Mono completing once the requests in flight completed or were ended, and the connections closed
+	 */
+	public Mono<Void> drain(Duration timeout) {
+		return Mono.defer(this::startDraining)
+				.timeout(timeout, Mono.empty())
+				.then(Mono.defer(this::endInFlight))
+				.then(Mono.fromRunnable(() -> connections.forEach(RSocket::dispose)));
+	}
+
+	/**
+	 * Admits requests again after a drain, called when the server starts.
+	 */
+	public void open() {
+		this.idle = MonoProcessor.create();
+		this.closing = MonoProcessor.create();
+		this.draining = false;
+	}
+
+	public boolean isDraining() {
+		return draining;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private <T> Mono<T> gated(String path, Mono<T> request) {
+		if(!enter()){
+			return Mono.error(Rejections.goingAway(path));
+		}
+		MonoProcessor<Void> closing = this.closing;
+		return Mono.first(request, closing.then(Mono.<T>error(Rejections.drainTimeout(path)))).doFinally(signal -> exit());
+	}
+
+	private <T> Flux<T> gatedMany(String path, Flux<T> stream) {
+		if(!enter()){
+			return Flux.error(Rejections.goingAway(path));
+		}
+		MonoProcessor<Void> closing = this.closing;
+		return stream.takeUntilOther(closing)
+				.concatWith(Flux.defer(() -> closing.isTerminated() ? Flux.<T>error(Rejections.drainTimeout(path)) : Flux.<T>empty()))
+				.doFinally(signal -> exit());
+	}
+
+	/**
+	 * Counted before the check, so a request racing with the start of the drain is either refused or waited for.
+	 */
+	private boolean enter() {
+		inFlight.incrementAndGet();
+		if(draining){
+			exit();
+			return false;
+		}
+		return true;
+	}
+
+	private void exit() {
+		if(inFlight.decrementAndGet() == 0 && draining){
+			idle.onComplete();
+		}
+	}
+
+	private Mono<Void> startDraining() {
+		this.draining = true;
+		logger.info("Draining {} requests on {} connections", inFlight.get(), connections.size());
+		connections.forEach(this::goAway);
+		if(inFlight.get() == 0){
+			idle.onComplete();
+		}
+		return idle;
+	}
+
+	/**
+	 * Gives the error frames of the requests ended a moment to be written before the connections are closed.
+	 */
+	private Mono<Void> endInFlight() {
+		int remaining = inFlight.get();
+		if(remaining == 0){
+			return Mono.empty();
+		}
+		logger.warn("Drain timeout elapsed, ending {} requests in flight", remaining);
+		closing.onComplete();
+		return Mono.delay(FLUSH_DELAY).then();
+	}
+
+	private void goAway(RSocket socket) {
+		socket.metadataPush(new PayloadImpl(new byte[0], GOAWAY))
+				.subscribe(null, throwable -> logger.debug("Could not send go away", throwable));
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free exponentially weighted moving average. The first sample sets the average.
+ *
+ * @author Vinicius Carvalho
+ */
+public class Ewma {
+
+	private final double weight;
+
+	private final AtomicLong value = new AtomicLong(Double.doubleToLongBits(0));
+
+	/**
+	 * @param weight weight of each new sample, between 0 and 1
+	 */
+	public Ewma(double weight) {
+		this.weight = weight;
+	}
+
+	public void update(double sample) {
+		long current;
+		long next;
+		do{
+			current = value.get();
+			double average = Double.longBitsToDouble(current);
+			double updated = (average == 0) ? sample : average + weight * (sample - average);
+			next = Double.doubleToLongBits(updated);
+		}while(!value.compareAndSet(current, next));
+	}
+
+	public double get() {
+		return Double.longBitsToDouble(value.get());
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.rsocket.Payload;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Interleaves the payloads of the streams open on a connection with deficit round robin, so a stream with a large
+ * backlog can not starve the others. Every turn a stream may send up to {@code quantum * weight} bytes, weights are
+ * set per endpoint and default to 1. Each stream prefetches a few payloads from its source and sends them as soon as
+ * its turn comes and the client asked for them.
+ *
+ * Interleaving only happens within the demand of the client: payloads handed over are queued by RSocket for the
+ * transport without a bound, and nothing here follows the writability of the channel. A client requesting an
+ * unbounded number of payloads receives a stream in arrival order, with its whole backlog ahead of the streams opened
+ * after it. {@link org.springframework.cloud.reactive.socket.client.ReactiveSocketClient} requests streams in bounded
+ * windows for that reason, other clients should do the same, for instance with {@code limitRate}.
+ *
+ * One instance serves a single connection.
+ *
+ * @author Vinicius Carvalho
+ */
+public class FairOutboundScheduler {
+
+	private static final int PREFETCH = 32;
+
+	private final int quantum;
+
+	private final Map<String, Integer> weights;
+
+	private final Queue<Lane> lanes = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger wip = new AtomicInteger();
+
+	/**
+	 * @param quantum bytes a stream of weight 1 may send per turn
+	 * @param weights weight of each endpoint path
+	 */
+	public FairOutboundScheduler(int quantum, Map<String, Integer> weights) {
+		this.quantum = quantum;
+		this.weights = new HashMap<>(weights);
+	}
+
+	/**
+	 * @param path endpoint of the stream, may be null when unknown
+	 * @param source payloads produced by the endpoint
+	 * @return the payloads, emitted when the stream gets its turn
+	 */
+	public Flux<Payload> schedule(String path, Flux<Payload> source) {
+		int weight = Math.max(1, (path != null) ? weights.getOrDefault(path, 1) : 1);
+		return Flux.create(sink -> {
+			Lane lane = new Lane(weight, sink);
+			lanes.offer(lane);
+			sink.onRequest(n -> drain());
+			sink.onDispose(lane::cancel);
+			source.subscribe(lane);
+		});
+	}
+
+	/**
+	 * @return the number of streams currently scheduled
+	 */
+	public int getActiveStreams() {
+		return lanes.size();
+	}
+
+	private void drain() {
+		if(wip.getAndIncrement() != 0){
+			return;
+		}
+		int missed = 1;
+		do{
+			boolean eligible = true;
+			while(eligible){
+				eligible = false;
+				for(Iterator<Lane> iterator = lanes.iterator(); iterator.hasNext();){
+					Lane lane = iterator.next();
+					if(lane.serve()){
+						eligible = true;
+					}
+					if(lane.isFinished()){
+						iterator.remove();
+					}
+				}
+			}
+			missed = wip.addAndGet(-missed);
+		}while(missed != 0);
+	}
+
+	private static int sizeOf(Payload payload) {
+		return payload.getData().remaining() + payload.getMetadata().remaining();
+	}
+
+	private class Lane extends BaseSubscriber<Payload> {
+
+		private final int weight;
+
+		private final FluxSink<Payload> sink;
+
+		private final Queue<Payload> queue = new ConcurrentLinkedQueue<>();
+
+		private long deficit;
+
+		private volatile boolean done;
+
+		private volatile boolean cancelled;
+
+		private volatile boolean finished;
+
+		private Throwable error;
+
+		Lane(int weight, FluxSink<Payload> sink) {
+			this.weight = weight;
+			this.sink = sink;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			subscription.request(PREFETCH);
+		}
+
+		@Override
+		protected void hookOnNext(Payload payload) {
+			queue.offer(payload);
+			drain();
+		}
+
+		@Override
+		protected void hookOnComplete() {
+			done = true;
+			drain();
+		}
+
+		@Override
+		protected void hookOnError(Throwable throwable) {
+			error = throwable;
+			done = true;
+			drain();
+		}
+
+		/**
+		 * Gives the stream its turn.
+		 * @return true if the stream still has payloads the client asked for
+		 */
+		boolean serve() {
+			if(cancelled || finished){
+				queue.clear();
+				return false;
+			}
+			Payload head = queue.peek();
+			if(head != null && sink.requestedFromDownstream() > 0){
+				deficit += (long) quantum * weight;
+				while(head != null && sink.requestedFromDownstream() > 0 && sizeOf(head) <= deficit){
+					queue.poll();
+					deficit -= sizeOf(head);
+					sink.next(head);
+					request(1);
+					head = queue.peek();
+				}
+			}
+			if(head == null){
+				deficit = 0;
+				if(done){
+					finish();
+				}
+				return false;
+			}
+			return sink.requestedFromDownstream() > 0;
+		}
+
+		boolean isFinished() {
+			return finished || cancelled;
+		}
+
+		void cancel() {
+			cancelled = true;
+			dispose();
+			drain();
+		}
+
+		private void finish() {
+			finished = true;
+			if(error != null){
+				sink.error(error);
+			}else{
+				sink.complete();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gradient limiter: compares each latency sample with a long term exponentially weighted average. The ratio between
+ * them (capped to [0.5, 1]) scales the limit down as latency rises, a queue allowance of {@code sqrt(limit)} lets it
+ * grow while latency stays flat. Changes are smoothed to avoid oscillation.
+ *
+ * @author Vinicius Carvalho
+ */
+public class GradientLimiter extends ConcurrencyLimiter {
+
+	private static final double LONG_TERM_WEIGHT = 0.01;
+
+	private static final double SMOOTHING = 0.2;
+
+	private final AtomicLong longTermRtt = new AtomicLong(Double.doubleToLongBits(0));
+
+	public GradientLimiter(int initialLimit, int minLimit, int maxLimit) {
+		super(initialLimit, minLimit, maxLimit);
+	}
+
+	@Override
+	protected void onSample(long rttNanos, boolean dropped) {
+		long current;
+		long next;
+		do{
+			current = longTermRtt.get();
+			double average = Double.longBitsToDouble(current);
+			double updated = (average == 0) ? rttNanos : average + LONG_TERM_WEIGHT * (rttNanos - average);
+			next = Double.doubleToLongBits(updated);
+		}while(!longTermRtt.compareAndSet(current, next));
+	}
+
+	@Override
+	protected int nextLimit(int limit, long rttNanos, int inFlight, boolean dropped) {
+		double longTerm = Double.longBitsToDouble(longTermRtt.get());
+		if(rttNanos <= 0 || longTerm == 0){
+			return limit;
+		}
+		double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, longTerm / rttNanos));
+		double target = limit * gradient + Math.sqrt(limit);
+		int next = (int) (limit * (1 - SMOOTHING) + target * SMOOTHING);
+		if(next > limit && inFlight * 2 < limit){
+			return limit;
+		}
+		return next;
+	}
+}
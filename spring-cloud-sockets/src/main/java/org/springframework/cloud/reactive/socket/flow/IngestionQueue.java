@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Bounded ingestion stage for a one way endpoint. Producers (the transport threads) offer invocations to a
+ * {@link BoundedRingBuffer}, a single worker at a time drains it. When the buffer is full the {@link OverflowPolicy}
+ * decides which message is lost, every dropped message is counted.
+ *
+ * @author Vinicius Carvalho
+ */
+public class IngestionQueue {
+
+	private final String path;
+
+	private final BoundedRingBuffer<Runnable> buffer;
+
+	private final OverflowPolicy policy;
+
+	private final int sampleRate;
+
+	private final Scheduler.Worker worker;
+
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private final AtomicLong overflows = new AtomicLong();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder expired = new LongAdder();
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	public IngestionQueue(String path, int capacity, OverflowPolicy policy, int sampleRate, Scheduler scheduler) {
+		this.path = path;
+		this.buffer = new BoundedRingBuffer<>(capacity);
+		this.policy = policy;
+		this.sampleRate = Math.max(1, sampleRate);
+		this.worker = scheduler.createWorker();
+	}
+
+	/**
+	 * Enqueues an invocation, applying the overflow policy if the buffer is full.
+	 * @param invocation the invocation
+	 * @return true if the invocation was queued
+	 */
+	public boolean offer(Runnable invocation) {
+		boolean queued = buffer.offer(invocation);
+		if(!queued){
+			switch (policy){
+				case DROP_OLDEST:
+					queued = displaceOldest(invocation);
+					break;
+				case SAMPLE:
+					if(overflows.incrementAndGet() % sampleRate == 0){
+						queued = displaceOldest(invocation);
+					}else{
+						dropped.increment();
+					}
+					break;
+				default:
+					dropped.increment();
+					break;
+			}
+		}
+		if(queued){
+			scheduleDrain();
+		}
+		return queued;
+	}
+
+	/**
+	 * Enqueues an invocation that is skipped, and counted as expired, if its deadline passes while it waits.
+	 * @param invocation the invocation
+	 * @param deadline the deadline of the caller
+	 * @return true if the invocation was queued
+	 */
+	public boolean offer(Runnable invocation, Deadline deadline) {
+		if(!deadline.isBounded()){
+			return offer(invocation);
+		}
+		if(deadline.isExpired()){
+			expired.increment();
+			return false;
+		}
+		return offer(() -> runBefore(invocation, deadline));
+	}
+
+	private void runBefore(Runnable invocation, Deadline deadline) {
+		if(deadline.isExpired()){
+			expired.increment();
+		}else{
+			invocation.run();
+		}
+	}
+
+	private boolean displaceOldest(Runnable invocation) {
+		do{
+			if(buffer.poll() != null){
+				dropped.increment();
+			}
+		}while(!buffer.offer(invocation));
+		return true;
+	}
+
+	private void scheduleDrain() {
+		if(wip.getAndIncrement() == 0){
+			worker.schedule(this::drain);
+		}
+	}
+
+	private void drain() {
+		int missed = 1;
+		do{
+			Runnable invocation;
+			while((invocation = buffer.poll()) != null){
+				try{
+					invocation.run();
+				}catch (Exception e){
+					logger.warn("One way invocation on path {} failed", path, e);
+				}
+			}
+			missed = wip.addAndGet(-missed);
+		}while(missed != 0);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int size() {
+		return buffer.size();
+	}
+
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	public long getExpiredCount() {
+		return expired.sum();
+	}
+
+	public void dispose() {
+		worker.dispose();
+	}
+}
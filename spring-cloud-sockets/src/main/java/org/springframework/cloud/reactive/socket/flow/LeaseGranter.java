@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.rsocket.RSocket;
+import io.rsocket.util.PayloadImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Periodically grants every connection a lease: the number of requests it may send and for how long the grant is
+ * valid. The grant is sized with Little's law from the free capacity of the server (capacity minus requests in flight
+ * and queued) and the average latency, then split evenly among connections.
+ *
+ * Leases are pushed as a {@code metadataPush} frame with a JSON metadata of the form
+ * {@code {"LEASE_PERMITS":10,"LEASE_TTL":2000}}, the time to live being in milliseconds.
+ *
+ * @author Vinicius Carvalho
+ */
+public class LeaseGranter {
+
+	private final Duration window;
+
+	private final int capacity;
+
+	private final int minPermits;
+
+	private final ServerLoad load;
+
+	private final Set<RSocket> connections = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean revoked;
+
+	private Disposable ticker;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param window how often leases are granted, each lease is valid for twice this time to cover delivery delays
+	 * @param capacity number of concurrent requests the server is willing to process
+	 * @param minPermits permits granted to every connection even when the server is saturated, may be 0
+	 * @param load the load of the server
+	 */
+	public LeaseGranter(Duration window, int capacity, int minPermits, ServerLoad load) {
+		this.window = window;
+		this.capacity = capacity;
+		this.minPermits = minPermits;
+		this.load = load;
+	}
+
+	public synchronized void start() {
+		if(ticker == null){
+			this.revoked = false;
+			this.ticker = Flux.interval(window).subscribe(tick -> grantAll());
+		}
+	}
+
+	public synchronized void stop() {
+		if(ticker != null){
+			ticker.dispose();
+			ticker = null;
+		}
+	}
+
+	/**
+	 * Registers a new connection and sends its first lease.
+	 * @param sendingSocket the socket used to send frames to the client
+	 */
+	public void register(RSocket sendingSocket) {
+		connections.add(sendingSocket);
+		sendingSocket.onClose().doFinally(signal -> connections.remove(sendingSocket)).subscribe();
+		grant(sendingSocket, permits());
+	}
+
+	/**
+	 * Grants zero permits to every connection and stops granting new ones until restarted.
+	 */
+	public void revokeAll() {
+		this.revoked = true;
+		connections.forEach(socket -> grant(socket, 0));
+	}
+
+	/**
+	 * @return the number of permits each connection gets on the next grant
+	 */
+	public int permits() {
+		if(revoked){
+			return 0;
+		}
+		int free = Math.max(0, capacity - load.getInFlight() - load.getQueueDepth());
+		double latency = Math.max(1d, load.getLatencyMillis());
+		double perWindow = free * (window.toMillis() / latency);
+		long perConnection = (long) (perWindow / Math.max(1, connections.size()));
+		return (int) Math.max(minPermits, Math.min(Integer.MAX_VALUE, perConnection));
+	}
+
+	public ServerLoad getLoad() {
+		return load;
+	}
+
+	private void grantAll() {
+		int permits = permits();
+		connections.forEach(socket -> grant(socket, permits));
+	}
+
+	private void grant(RSocket socket, int permits) {
+		String lease = "{\"LEASE_PERMITS\":" + permits + ",\"LEASE_TTL\":" + window.multipliedBy(2).toMillis() + "}";
+		socket.metadataPush(new PayloadImpl(new byte[0], lease.getBytes(StandardCharsets.UTF_8)))
+				.subscribe(null, throwable -> {
+					logger.debug("Could not send lease, dropping connection", throwable);
+					connections.remove(socket);
+				});
+	}
+}
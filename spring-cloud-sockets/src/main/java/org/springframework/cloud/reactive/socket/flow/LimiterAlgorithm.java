@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+/**
+ * The available {@link ConcurrencyLimiter} implementations.
+ *
+ * @author Vinicius Carvalho
+ */
+public enum LimiterAlgorithm {
+	NONE,
+	AIMD,
+	VEGAS,
+	GRADIENT;
+
+	public ConcurrencyLimiter create(int initialLimit, int minLimit, int maxLimit) {
+		switch (this){
+			case AIMD:
+				return new AimdLimiter(initialLimit, minLimit, maxLimit);
+			case VEGAS:
+				return new VegasLimiter(initialLimit, minLimit, maxLimit);
+			case GRADIENT:
+				return new GradientLimiter(initialLimit, minLimit, maxLimit);
+			default:
+				throw new IllegalStateException("No limiter for algorithm " + this);
+		}
+	}
+}
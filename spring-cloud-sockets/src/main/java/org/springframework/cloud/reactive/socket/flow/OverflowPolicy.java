@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+/**
+ * What an {@link IngestionQueue} does with a message that arrives while it is full.
+ *
+ * @author Vinicius Carvalho
+ */
+public enum OverflowPolicy {
+	/**
+	 * Drop the incoming message.
+	 */
+	DROP_NEWEST,
+	/**
+	 * Drop the oldest queued message to make room for the incoming one.
+	 */
+	DROP_OLDEST,
+	/**
+	 * Keep one in every N overflowing messages, dropping the oldest queued message to make room for it.
+	 */
+	SAMPLE;
+}
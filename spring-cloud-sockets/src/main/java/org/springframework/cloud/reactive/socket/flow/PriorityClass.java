@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+/**
+ * Priority classes, from the most to the least important. Each class may only fill a share of the offload queue,
+ * leaving room for more important work, and less important work is shed first.
+ *
+ * @author Vinicius Carvalho
+ */
+public enum PriorityClass {
+
+	INTERACTIVE(1.0),
+
+	NORMAL(0.8),
+
+	BATCH(0.5);
+
+	private final double share;
+
+	PriorityClass(double share) {
+		this.share = share;
+	}
+
+	/**
+	 * @param capacity capacity of the queue
+	 * @return the number of queued tasks above which requests of this class are not admitted unless they can evict
+	 * less important ones
+	 */
+	int admissionLimit(int capacity) {
+		return Math.max(1, (int) (capacity * share));
+	}
+}
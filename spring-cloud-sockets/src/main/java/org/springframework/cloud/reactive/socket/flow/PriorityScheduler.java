@@ -0,0 +1,216 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Offloads requests from the transport threads to a pool of workers that always run the most important queued work
+ * first. The queue is bounded: each {@link PriorityClass} may only fill its share of it, and once that share is used a
+ * request can only get in by evicting a queued request of a less important class. Evicted and refused requests are
+ * shed with a {@link Rejections#SHED} rejection, requests still queued when the scheduler is disposed fail with a
+ * {@link Rejections#GOING_AWAY} rejection.
+ *
+ * @author Vinicius Carvalho
+ */
+public class PriorityScheduler {
+
+	private static final PriorityClass[] CLASSES = PriorityClass.values();
+
+	private final int capacity;
+
+	private final Queue<Task>[] queues;
+
+	private final LongAdder[] shed;
+
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final Semaphore available = new Semaphore(0);
+
+	private final ExecutorService workers;
+
+	private volatile boolean disposed;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	@SuppressWarnings("unchecked")
+	public PriorityScheduler(int workers, int capacity) {
+		this.capacity = capacity;
+		this.queues = new Queue[CLASSES.length];
+		this.shed = new LongAdder[CLASSES.length];
+		for(int i = 0; i < CLASSES.length; i++){
+			this.queues[i] = new ConcurrentLinkedQueue<>();
+			this.shed[i] = new LongAdder();
+		}
+		this.workers = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("reactive-socket-offload-"));
+		for(int i = 0; i < workers; i++){
+			this.workers.execute(this::work);
+		}
+	}
+
+	/**
+	 * @param priority class of the request
+	 * @param path route of the request, used in the rejection message
+	 * @return a Mono that completes on a worker thread once the request is scheduled, or fails if it is shed
+	 */
+	public Mono<Void> admit(PriorityClass priority, String path) {
+		return Mono.create(sink -> {
+			Task task = new Task(priority, path, sink);
+			sink.onCancel(() -> task.cancelled = true);
+			enqueue(task);
+		});
+	}
+
+	private void enqueue(Task task) {
+		if(disposed){
+			task.reject();
+			return;
+		}
+		int index = task.priority.ordinal();
+		if(queued.incrementAndGet() <= task.priority.admissionLimit(capacity)){
+			offer(index, task);
+			return;
+		}
+		queued.decrementAndGet();
+		Task victim = pollLessImportantThan(index);
+		if(victim == null){
+			task.shed();
+			return;
+		}
+		// the victim's slot now belongs to the new task, its permit is taken back unless a worker already holds it, in
+		// which case that worker finds no task and waits for the next permit
+		available.tryAcquire();
+		victim.shed();
+		offer(index, task);
+	}
+
+	private void offer(int index, Task task) {
+		queues[index].offer(task);
+		available.release();
+		if(disposed){
+			rejectQueued();
+		}
+	}
+
+	private void rejectQueued() {
+		Task task;
+		while((task = pollMostImportant()) != null){
+			queued.decrementAndGet();
+			task.reject();
+		}
+	}
+
+	private Task pollLessImportantThan(int index) {
+		for(int i = CLASSES.length - 1; i > index; i--){
+			Task victim = queues[i].poll();
+			if(victim != null){
+				return victim;
+			}
+		}
+		return null;
+	}
+
+	private Task pollMostImportant() {
+		for(Queue<Task> queue : queues){
+			Task task = queue.poll();
+			if(task != null){
+				return task;
+			}
+		}
+		return null;
+	}
+
+	private void work() {
+		while(!disposed){
+			try{
+				available.acquire();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				return;
+			}
+			Task task = pollMostImportant();
+			if(task == null){
+				continue;
+			}
+			queued.decrementAndGet();
+			if(!task.cancelled){
+				try{
+					task.sink.success();
+				}catch (Exception e){
+					logger.warn("Offloaded request on path {} failed", task.path, e);
+				}
+			}
+		}
+	}
+
+	public int getQueued() {
+		return queued.get();
+	}
+
+	public long getShedCount(PriorityClass priority) {
+		return shed[priority.ordinal()].sum();
+	}
+
+	/**
+	 * Stops the workers and fails the requests still queued.
+	 */
+	public void dispose() {
+		this.disposed = true;
+		this.workers.shutdownNow();
+		rejectQueued();
+	}
+
+	private class Task {
+
+		private final PriorityClass priority;
+
+		private final String path;
+
+		private final MonoSink<Void> sink;
+
+		private volatile boolean cancelled;
+
+		Task(PriorityClass priority, String path, MonoSink<Void> sink) {
+			this.priority = priority;
+			this.path = path;
+			this.sink = sink;
+		}
+
+		void shed() {
+			shed[priority.ordinal()].increment();
+			sink.error(Rejections.shed(path, priority));
+		}
+
+		void reject() {
+			sink.error(Rejections.goingAway(path));
+		}
+	}
+}
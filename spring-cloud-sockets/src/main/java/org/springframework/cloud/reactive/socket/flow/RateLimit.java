@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+
+/**
+ * Requests and bytes a connection may send per second, a value of 0 means unlimited.
+ *
+ * @author Vinicius Carvalho
+ */
+public class RateLimit {
+
+	private double requestsPerSecond = 0;
+
+	private long bytesPerSecond = 0;
+
+	/**
+	 * How many seconds worth of tokens a bucket holds.
+	 */
+	private Duration burst = Duration.ofSeconds(1);
+
+	public double getRequestsPerSecond() {
+		return requestsPerSecond;
+	}
+
+	public void setRequestsPerSecond(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	public void setBytesPerSecond(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	public Duration getBurst() {
+		return burst;
+	}
+
+	public void setBurst(Duration burst) {
+		this.burst = burst;
+	}
+
+	TokenBucket requestBucket() {
+		return (requestsPerSecond > 0) ? new TokenBucket(requestsPerSecond, burst) : null;
+	}
+
+	TokenBucket byteBucket() {
+		return (bytesPerSecond > 0) ? new TokenBucket(bytesPerSecond, burst) : null;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate limits applied to each connection: a connection wide limit, taken from the client identity sent on the setup
+ * payload or the default one, and optional limits for individual routes.
+ *
+ * @author Vinicius Carvalho
+ */
+public class RateLimitPolicy {
+
+	private final RateLimit defaultLimit;
+
+	private final Map<String, RateLimit> clients;
+
+	private final Map<String, RateLimit> routes;
+
+	public RateLimitPolicy(RateLimit defaultLimit, Map<String, RateLimit> clients, Map<String, RateLimit> routes) {
+		this.defaultLimit = defaultLimit;
+		this.clients = new HashMap<>(clients);
+		this.routes = new HashMap<>(routes);
+	}
+
+	/**
+	 * @param clientId identity of the client, may be null
+	 * @return the rate limiter of a new connection
+	 */
+	public ConnectionRateLimiter forClient(String clientId) {
+		RateLimit connectionLimit = (clientId != null) ? clients.getOrDefault(clientId, defaultLimit) : defaultLimit;
+		return new ConnectionRateLimiter(connectionLimit, routes);
+	}
+}
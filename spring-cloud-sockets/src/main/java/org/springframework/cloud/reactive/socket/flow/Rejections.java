@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+
+import io.rsocket.exceptions.ApplicationException;
+
+/**
+ * Errors sent when the server refuses to process a request. Only the message of an {@link ApplicationException} goes
+ * over the wire, so rejections are told apart from application failures by a well known message prefix, allowing
+ * clients to back off or retry on another server.
+ *
+ * @author Vinicius Carvalho
+ */
+public final class Rejections {
+
+	public static final String CONCURRENCY_LIMIT_EXCEEDED = "CONCURRENCY_LIMIT_EXCEEDED";
+
+	public static final String RATE_LIMITED = "RATE_LIMITED";
+
+	public static final String NO_LEASE = "NO_LEASE";
+
+	public static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+
+	public static final String SHED = "SHED";
+
+	public static final String RESUME_REJECTED = "RESUME_REJECTED";
+
+	public static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+
+	public static final String PAYLOAD_TOO_LARGE = "PAYLOAD_TOO_LARGE";
+
+	public static final String GOING_AWAY = "GOING_AWAY";
+
+	public static final String DRAIN_TIMEOUT = "DRAIN_TIMEOUT";
+
+	private static final String[] REASONS = {CONCURRENCY_LIMIT_EXCEEDED, RATE_LIMITED, NO_LEASE, DEADLINE_EXCEEDED, SHED,
+			RESUME_REJECTED, CIRCUIT_OPEN, PAYLOAD_TOO_LARGE, GOING_AWAY, DRAIN_TIMEOUT};
+
+	private Rejections() {
+	}
+
+	public static ApplicationException concurrencyLimitExceeded(String path, int limit) {
+		return reject(CONCURRENCY_LIMIT_EXCEEDED, "limit of " + limit + " concurrent requests reached on " + path);
+	}
+
+	public static ApplicationException rateLimited(String path, String clientId) {
+		return reject(RATE_LIMITED, "rate limit exceeded by client " + clientId + " on " + path);
+	}
+
+	public static ApplicationException deadlineExceeded(String path) {
+		return reject(DEADLINE_EXCEEDED, "deadline of the caller passed on " + path);
+	}
+
+	public static ApplicationException shed(String path, PriorityClass priority) {
+		return reject(SHED, priority + " request on " + path + " shed to make room for more important work");
+	}
+
+	public static ApplicationException payloadTooLarge(String path, int size, int maxSize) {
+		return reject(PAYLOAD_TOO_LARGE, "payload of " + size + " bytes on " + path + " exceeds the maximum of " + maxSize);
+	}
+
+	/**
+	 * Sent for requests received while the server drains, they were not processed.
+	 */
+	public static ApplicationException goingAway(String path) {
+		return reject(GOING_AWAY, "server shutting down, request on " + path + " not processed");
+	}
+
+	/**
+	 * Sent for requests and streams still running when the drain timeout of the server elapsed.
+	 */
+	public static ApplicationException drainTimeout(String path) {
+		return reject(DRAIN_TIMEOUT, "server shut down before the request on " + path + " completed");
+	}
+
+	/**
+	 * Sent when a stream can not be resumed: the session expired or the requested position is no longer buffered.
+	 */
+	public static ApplicationException resumeRejected(String token, long position) {
+		return reject(RESUME_REJECTED, "can not resume stream " + token + " at position " + position);
+	}
+
+	/**
+	 * Raised on the client when no lease permit became available in time, the request never left the client.
+	 */
+	public static ApplicationException noLease(Duration waited) {
+		return reject(NO_LEASE, "no lease permit available after " + waited.toMillis() + "ms");
+	}
+
+	/**
+	 * Raised on the client when the circuit breaker of the endpoint is open, the request never left the client.
+	 */
+	public static ApplicationException circuitOpen(String path) {
+		return reject(CIRCUIT_OPEN, "circuit breaker open on " + path);
+	}
+
+	/**
+	 * @param throwable the error received
+	 * @return true if the error is a rejection from the server, as opposed to a failure of the service
+	 */
+	public static boolean isRejection(Throwable throwable) {
+		return reasonOf(throwable) != null;
+	}
+
+	/**
+	 * @param throwable the error received
+	 * @return the rejection reason, or null if the error is not a rejection
+	 */
+	public static String reasonOf(Throwable throwable) {
+		if(!(throwable instanceof ApplicationException) || throwable.getMessage() == null){
+			return null;
+		}
+		for(String reason : REASONS){
+			if(throwable.getMessage().startsWith(reason + ":")){
+				return reason;
+			}
+		}
+		return null;
+	}
+
+	static ApplicationException reject(String reason, String detail) {
+		return new ApplicationException(reason + ": " + detail);
+	}
+}
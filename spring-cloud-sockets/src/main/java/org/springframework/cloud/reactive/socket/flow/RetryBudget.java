@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries to a share of the requests, so retries can not multiply the load of a server that is already failing.
+ * Every request credits {@code ratio} of a token and every retry costs a whole one; a small fixed rate of retries is
+ * always allowed so that low traffic clients can still retry.
+ *
+ * @author Vinicius Carvalho
+ */
+public class RetryBudget {
+
+	private static final long TOKEN = 1000;
+
+	private static final long MAX_BALANCE = 100 * TOKEN;
+
+	private final long deposit;
+
+	private final AtomicLong balance = new AtomicLong();
+
+	private final TokenBucket floor;
+
+	/**
+	 * @param ratio maximum retries per request, such as 0.1
+	 * @param minRetriesPerSecond retries allowed regardless of the traffic
+	 */
+	public RetryBudget(double ratio, double minRetriesPerSecond) {
+		this.deposit = (long) (ratio * TOKEN);
+		this.floor = (minRetriesPerSecond > 0) ? new TokenBucket(minRetriesPerSecond, Duration.ofSeconds(1)) : null;
+	}
+
+	/**
+	 * Credits the budget, called once per request, not per attempt.
+	 */
+	public void deposit() {
+		long current;
+		do{
+			current = balance.get();
+		}while(current < MAX_BALANCE && !balance.compareAndSet(current, Math.min(MAX_BALANCE, current + deposit)));
+	}
+
+	/**
+	 * @return true if a retry may be sent
+	 */
+	public boolean tryWithdraw() {
+		long current;
+		do{
+			current = balance.get();
+			if(current < TOKEN){
+				return floor != null && floor.tryAcquire(1);
+			}
+		}while(!balance.compareAndSet(current, current - TOKEN));
+		return true;
+	}
+}
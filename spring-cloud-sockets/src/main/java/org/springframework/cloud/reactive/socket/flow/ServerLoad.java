@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Server wide load: requests in flight, requests waiting in queues and an exponentially weighted moving average of
+ * the request latency.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ServerLoad {
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final Ewma latency = new Ewma(0.1);
+
+	private final IntSupplier queueDepth;
+
+	public ServerLoad(IntSupplier queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public void requestStarted() {
+		inFlight.incrementAndGet();
+	}
+
+	/**
+	 * Records the end of a request that does not contribute to the latency average.
+	 */
+	public void requestFinished() {
+		inFlight.decrementAndGet();
+	}
+
+	public void requestFinished(long latencyNanos) {
+		inFlight.decrementAndGet();
+		latency.update(latencyNanos);
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getQueueDepth() {
+		return queueDepth.getAsInt();
+	}
+
+	public double getLatencyMillis() {
+		return latency.get() / 1_000_000d;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket. Instead of counting tokens it keeps the time at which the bucket will be full again (the
+ * generic cell rate algorithm), so the whole state fits in a single {@link AtomicLong} updated with compare and set.
+ *
+ * A request bigger than the burst is only admitted when the bucket is full, leaving the bucket in debt.
+ *
+ * @author Vinicius Carvalho
+ */
+public class TokenBucket {
+
+	private final double nanosPerToken;
+
+	private final long burstNanos;
+
+	private final AtomicLong fullAt;
+
+	/**
+	 * @param tokensPerSecond refill rate
+	 * @param burst how long the bucket takes to fill up, the bucket holds {@code tokensPerSecond * burst} tokens
+	 */
+	public TokenBucket(double tokensPerSecond, Duration burst) {
+		this.nanosPerToken = 1_000_000_000d / tokensPerSecond;
+		this.burstNanos = burst.toNanos();
+		this.fullAt = new AtomicLong(System.nanoTime());
+	}
+
+	public boolean tryAcquire(long tokens) {
+		long now = System.nanoTime();
+		long cost = (long) (tokens * nanosPerToken);
+		for(;;){
+			long current = fullAt.get();
+			long base = (current - now > 0) ? current : now;
+			long next = base + cost;
+			if(base != now && next - now > burstNanos){
+				return false;
+			}
+			if(fullAt.compareAndSet(current, next)){
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Gives back tokens acquired for a request that was refused further on. A bucket that refilled in the meantime
+	 * stays full.
+	 */
+	public void refund(long tokens) {
+		fullAt.addAndGet(-(long) (tokens * nanosPerToken));
+	}
+}
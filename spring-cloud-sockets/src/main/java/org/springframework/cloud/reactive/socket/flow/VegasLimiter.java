@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TCP Vegas style limiter. The smallest latency seen is taken as the no load latency, the number of queued requests is
+ * estimated as {@code limit * (1 - noLoadRtt / rtt)}. The limit grows while the estimated queue is below alpha and
+ * shrinks when it goes above beta. The no load latency is reset periodically to follow changes in the service.
+ *
+ * @author Vinicius Carvalho
+ */
+public class VegasLimiter extends ConcurrencyLimiter {
+
+	private static final int ALPHA = 3;
+
+	private static final int BETA = 6;
+
+	private static final long PROBE_INTERVAL = 1000;
+
+	private final AtomicLong noLoadRtt = new AtomicLong(Long.MAX_VALUE);
+
+	private final AtomicLong samples = new AtomicLong();
+
+	public VegasLimiter(int initialLimit, int minLimit, int maxLimit) {
+		super(initialLimit, minLimit, maxLimit);
+	}
+
+	@Override
+	protected void onSample(long rttNanos, boolean dropped) {
+		if(samples.incrementAndGet() % PROBE_INTERVAL == 0){
+			noLoadRtt.set(rttNanos);
+		}else{
+			noLoadRtt.accumulateAndGet(rttNanos, Math::min);
+		}
+	}
+
+	@Override
+	protected int nextLimit(int limit, long rttNanos, int inFlight, boolean dropped) {
+		if(dropped){
+			return limit - BETA;
+		}
+		long noLoad = noLoadRtt.get();
+		if(rttNanos <= 0 || noLoad == Long.MAX_VALUE){
+			return limit;
+		}
+		int queue = (int) Math.ceil(limit * (1 - (double) noLoad / rttNanos));
+		if(queue < ALPHA && inFlight * 2 >= limit){
+			return limit + 1;
+		}
+		if(queue > BETA){
+			return limit - 1;
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+/**
+ * The flight recorder event of a single remote call made by a client. Started by
+ * {@link FlightRecorderEvents#startClientCall(String, String)}.
+ *
+ * @author Vinicius Carvalho
+ */
+public interface ClientCallRecording {
+
+	/**
+	 * Counts an element received by a request many or channel call.
+	 */
+	void received();
+
+	void failed(Throwable throwable);
+
+	/**
+	 * Ends the event, committed if the call took longer than the threshold of the recording.
+	 */
+	void finish();
+}
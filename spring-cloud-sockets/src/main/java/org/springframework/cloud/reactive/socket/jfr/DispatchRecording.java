@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+/**
+ * The flight recorder event of a single request, kept by the dispatcher while the request is processed. Started by
+ * {@link FlightRecorderEvents#startDispatch(String, String)}.
+ *
+ * @author Vinicius Carvalho
+ */
+public interface DispatchRecording {
+
+	/**
+	 * @param nanos time spent converting an inbound payload
+	 * @param bytes size of the payload
+	 */
+	void decoded(long nanos, int bytes);
+
+	/**
+	 * @param nanos time spent converting an outbound value
+	 * @param bytes size of the resulting payload
+	 */
+	void encoded(long nanos, int bytes);
+
+	void failed(Throwable throwable);
+
+	/**
+	 * Ends the event, committed if the request took longer than the threshold of the recording.
+	 */
+	void finish();
+}
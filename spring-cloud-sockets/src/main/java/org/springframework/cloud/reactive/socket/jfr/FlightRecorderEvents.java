@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Starts the Java Flight Recorder events of the server and the clients, so slow requests can be correlated with the
+ * GC pauses, lock contention or I/O of the same recording. The events are:
+ * <ul>
+ * <li>{@code org.springframework.cloud.reactive.socket.Dispatch}: a request dispatched by the server with its route,
+ * exchange mode, payload sizes and decode and encode durations</li>
+ * <li>{@code org.springframework.cloud.reactive.socket.ClientCall}: a call made by a client with its route, exchange
+ * mode and number of elements received</li>
+ * </ul>
+ * Both have a threshold of 20 ms, changed in the settings of the recording like the threshold of any other event.
+ * Events are only created when a recording enables them, otherwise requests are not touched at all.
+ *
+ * The events extend {@code jdk.jfr.Event}, which only exists from JDK 11, so they are compiled by the {@code jfr}
+ * profile of JDK 11+ builds and looked up when this class loads. Without them, or on a JVM without flight recorder,
+ * no event is ever started.
+ *
+ * @author Vinicius Carvalho
+ */
+public final class FlightRecorderEvents {
+
+	private static final String FACTORY_CLASS = "org.springframework.cloud.reactive.socket.jfr.JfrEventFactory";
+
+	private static final EventFactory FACTORY = loadFactory();
+
+	private FlightRecorderEvents() {
+	}
+
+	public static boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	/**
+	 * @param path route of the request
+	 * @param exchangeMode exchange mode of the endpoint
+	 * @return the started event, null when no recording enables it
+	 */
+	public static DispatchRecording startDispatch(String path, String exchangeMode) {
+		return (FACTORY != null) ? FACTORY.startDispatch(path, exchangeMode) : null;
+	}
+
+	/**
+	 * @param path route of the call
+	 * @param exchangeMode exchange mode of the endpoint
+	 * @return the started event, null when no recording enables it
+	 */
+	public static ClientCallRecording startClientCall(String path, String exchangeMode) {
+		return (FACTORY != null) ? FACTORY.startClientCall(path, exchangeMode) : null;
+	}
+
+	static String describe(Throwable throwable) {
+		String reason = Rejections.reasonOf(throwable);
+		return (reason != null) ? reason : throwable.getClass().getSimpleName();
+	}
+
+	private static EventFactory loadFactory() {
+		ClassLoader classLoader = FlightRecorderEvents.class.getClassLoader();
+		if(!ClassUtils.isPresent("jdk.jfr.Event", classLoader) || !ClassUtils.isPresent(FACTORY_CLASS, classLoader)){
+			return null;
+		}
+		try{
+			return (EventFactory) ClassUtils.forName(FACTORY_CLASS, classLoader).getDeclaredConstructor().newInstance();
+		}catch (ReflectiveOperationException | LinkageError e){
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the events, implemented next to them in the JDK 11 sources.
+	 */
+	interface EventFactory {
+
+		DispatchRecording startDispatch(String path, String exchangeMode);
+
+		ClientCallRecording startClientCall(String path, String exchangeMode);
+	}
+}
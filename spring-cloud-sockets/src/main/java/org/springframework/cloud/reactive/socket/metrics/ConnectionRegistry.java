@@ -0,0 +1,322 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Keeps track of the open connections of a server: identity of the client, listener, connect time, payloads and bytes
+ * exchanged, open streams, requests in flight and last activity. The registry can be queried to find hot clients or
+ * leaking streams, and closes connections that stay idle longer than the idle timeout while it is started.
+ *
+ * Bound to a {@link MeterRegistry} it publishes:
+ * <ul>
+ * <li>{@code reactive.socket.server.connections}: gauge of the open connections</li>
+ * <li>{@code reactive.socket.server.connections.streams}: gauge of the streams open on all connections</li>
+ * <li>{@code reactive.socket.server.connections.payload.bytes}: counter of the bytes of data and metadata of the
+ * payloads, tagged with the {@code direction}</li>
+ * <li>{@code reactive.socket.server.connections.payloads}: counter of the payloads, tagged with the
+ * {@code direction}</li>
+ * </ul>
+ * Traffic is counted in payloads rather than frames: a fragmented payload counts once, and frame headers and
+ * control frames are not counted.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ConnectionRegistry implements MeterBinder {
+
+	private final Map<Long, Connection> connections = new ConcurrentHashMap<>();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private final LongAdder bytesIn = new LongAdder();
+
+	private final LongAdder bytesOut = new LongAdder();
+
+	private final LongAdder payloadsIn = new LongAdder();
+
+	private final LongAdder payloadsOut = new LongAdder();
+
+	private final AtomicInteger activeStreams = new AtomicInteger();
+
+	private final Clock clock;
+
+	private Duration idleTimeout;
+
+	private Disposable sweeper;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	public ConnectionRegistry() {
+		this(Clock.systemUTC());
+	}
+
+	/**
+	 * @param clock source of the connect and activity times, idle connections are found against it
+	 */
+	ConnectionRegistry(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Connections without open streams, without requests in flight and without any request for longer than the timeout
+	 * are closed, checked every half timeout while the registry is started. Null (the default) keeps idle connections
+	 * open.
+	 * @param idleTimeout how long a connection may stay idle
+	 */
+	public void setIdleTimeout(Duration idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public synchronized void start() {
+		if(sweeper == null && idleTimeout != null){
+			this.sweeper = Flux.interval(idleTimeout.dividedBy(2)).subscribe(tick -> closeIdle(idleTimeout));
+		}
+	}
+
+	public synchronized void stop() {
+		if(sweeper != null){
+			sweeper.dispose();
+			sweeper = null;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("reactive.socket.server.connections", connections, Map::size)
+				.register(registry);
+		Gauge.builder("reactive.socket.server.connections.streams", activeStreams, AtomicInteger::get)
+				.register(registry);
+		FunctionCounter.builder("reactive.socket.server.connections.payload.bytes", bytesIn, LongAdder::doubleValue)
+				.tag("direction", "inbound")
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder("reactive.socket.server.connections.payload.bytes", bytesOut, LongAdder::doubleValue)
+				.tag("direction", "outbound")
+				.baseUnit("bytes")
+				.register(registry);
+		FunctionCounter.builder("reactive.socket.server.connections.payloads", payloadsIn, LongAdder::doubleValue)
+				.tag("direction", "inbound")
+				.register(registry);
+		FunctionCounter.builder("reactive.socket.server.connections.payloads", payloadsOut, LongAdder::doubleValue)
+				.tag("direction", "outbound")
+				.register(registry);
+	}
+
+	/**
+	 * Adds a connection, removed once its socket closes.
+	 * @param clientId identity of the client, may be null
+	 * @param listener listener that accepted the connection, may be null
+	 * @param sendingSocket the socket used to send frames to the client, closed when the connection is idle
+	 * @return the entry of the connection, to be updated with its traffic
+	 */
+	public Connection register(String clientId, String listener, RSocket sendingSocket) {
+		Connection connection = new Connection(ids.incrementAndGet(), clientId, listener, sendingSocket);
+		connections.put(connection.id, connection);
+		sendingSocket.onClose().doFinally(signal -> connections.remove(connection.id)).subscribe();
+		return connection;
+	}
+
+	public Collection<Connection> getConnections() {
+		return Collections.unmodifiableCollection(connections.values());
+	}
+
+	public List<Connection> getConnections(String clientId) {
+		return connections.values()
+				.stream()
+				.filter(connection -> clientId.equals(connection.clientId))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @param limit maximum number of connections returned
+	 * @return the connections that exchanged the most bytes, busiest first
+	 */
+	public List<Connection> getBusiest(int limit) {
+		List<Connection> busiest = new ArrayList<>(connections.values());
+		busiest.sort((a, b) -> Long.compare(b.getBytesIn() + b.getBytesOut(), a.getBytesIn() + a.getBytesOut()));
+		return busiest.subList(0, Math.min(limit, busiest.size()));
+	}
+
+	/**
+	 * @param idleTimeout how long a connection may stay idle
+	 * @return the number of connections closed
+	 */
+	public int closeIdle(Duration idleTimeout) {
+		long deadline = clock.millis() - idleTimeout.toMillis();
+		int closed = 0;
+		for(Connection connection : connections.values()){
+			if(connection.getActiveStreams() == 0 && connection.getInFlight() == 0 && connection.lastActivity < deadline){
+				logger.info("Closing connection {} from client {}, idle for more than {}ms", connection.id, connection.clientId, idleTimeout.toMillis());
+				connections.remove(connection.id);
+				connection.socket.dispose();
+				closed++;
+			}
+		}
+		return closed;
+	}
+
+	/**
+	 * A registered connection. Traffic is counted in payloads, fragmented payloads count once.
+	 */
+	public class Connection {
+
+		private final long id;
+
+		private final String clientId;
+
+		private final String listener;
+
+		private final RSocket socket;
+
+		private final Instant connectedAt = clock.instant();
+
+		private final AtomicLong bytesIn = new AtomicLong();
+
+		private final AtomicLong bytesOut = new AtomicLong();
+
+		private final AtomicLong payloadsIn = new AtomicLong();
+
+		private final AtomicLong payloadsOut = new AtomicLong();
+
+		private final AtomicInteger activeStreams = new AtomicInteger();
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private volatile long lastActivity = clock.millis();
+
+		Connection(long id, String clientId, String listener, RSocket socket) {
+			this.id = id;
+			this.clientId = clientId;
+			this.listener = listener;
+			this.socket = socket;
+		}
+
+		public void inbound(Payload payload) {
+			int size = sizeOf(payload);
+			bytesIn.addAndGet(size);
+			payloadsIn.incrementAndGet();
+			ConnectionRegistry.this.bytesIn.add(size);
+			ConnectionRegistry.this.payloadsIn.increment();
+			lastActivity = clock.millis();
+		}
+
+		public void outbound(Payload payload) {
+			int size = sizeOf(payload);
+			bytesOut.addAndGet(size);
+			payloadsOut.incrementAndGet();
+			ConnectionRegistry.this.bytesOut.add(size);
+			ConnectionRegistry.this.payloadsOut.increment();
+			lastActivity = clock.millis();
+		}
+
+		public void streamStarted() {
+			activeStreams.incrementAndGet();
+			ConnectionRegistry.this.activeStreams.incrementAndGet();
+		}
+
+		public void streamFinished() {
+			activeStreams.decrementAndGet();
+			ConnectionRegistry.this.activeStreams.decrementAndGet();
+			lastActivity = clock.millis();
+		}
+
+		/**
+		 * Request/response and fire and forget requests are in flight until they complete.
+		 */
+		public void requestStarted() {
+			inFlight.incrementAndGet();
+		}
+
+		public void requestFinished() {
+			inFlight.decrementAndGet();
+			lastActivity = clock.millis();
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public String getClientId() {
+			return clientId;
+		}
+
+		public String getListener() {
+			return listener;
+		}
+
+		public Instant getConnectedAt() {
+			return connectedAt;
+		}
+
+		public long getBytesIn() {
+			return bytesIn.get();
+		}
+
+		public long getBytesOut() {
+			return bytesOut.get();
+		}
+
+		public long getPayloadsIn() {
+			return payloadsIn.get();
+		}
+
+		public long getPayloadsOut() {
+			return payloadsOut.get();
+		}
+
+		public int getActiveStreams() {
+			return activeStreams.get();
+		}
+
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		public Instant getLastActivity() {
+			return Instant.ofEpochMilli(lastActivity);
+		}
+
+		private int sizeOf(Payload payload) {
+			return payload.getData().remaining() + payload.getMetadata().remaining();
+		}
+	}
+}
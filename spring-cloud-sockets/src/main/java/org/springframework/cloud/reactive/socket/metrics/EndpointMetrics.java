@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package org.springframework.cloud.reactive.socket.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.ExchangeMode;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+
+/**
+ * Meters of a single endpoint, tagged with its path and exchange mode. Every meter is registered up front, so
+ * recording a request neither looks up a meter nor builds tags:
+ * <ul>
+ * <li>{@code reactive.socket.server.requests}: timer of every request, its count gives the request rate. Streams are
+ * timed until they terminate</li>
+ * <li>{@code reactive.socket.server.inflight}: gauge of the requests being processed</li>
+ * <li>{@code reactive.socket.server.errors}: counter of failed requests, tagged with the rejection reason or the
+ * exception type</li>
+ * <li>{@code reactive.socket.server.stream.elements}: counter of the elements sent by streams</li>
+ * </ul>
+ *
+ * @author Vinicius Carvalho
+ */
+public class EndpointMetrics {
+
+	private final MeterRegistry registry;
+
+	private final Tags tags;
+
+	private final Timer latency;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final Counter elements;
+
+	private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+	/**
+	 * @param registry the registry meters are added to
+	 * @param path route of the endpoint
+	 * @param exchangeMode exchange mode of the endpoint
+	 * @param percentiles latency percentiles computed on the client side of the registry, may be empty
+	 * @param histogram publish the latency histogram buckets, for percentiles aggregated by the monitoring system
+	 */
+	public EndpointMetrics(MeterRegistry registry, String path, ExchangeMode exchangeMode, double[] percentiles, boolean histogram) {
+		this.registry = registry;
+		this.tags = Tags.of("path", path, "exchange", exchangeMode.name());
+		this.latency = Timer.builder("reactive.socket.server.requests")
+				.tags(tags)
+				.publishPercentiles(percentiles)
+				.publishPercentileHistogram(histogram)
+				.register(registry);
+		Gauge.builder("reactive.socket.server.inflight", inFlight, AtomicInteger::get)
+				.tags(tags)
+				.register(registry);
+		this.elements = Counter.builder("reactive.socket.server.stream.elements")
+				.tags(tags)
+				.register(registry);
+	}
+
+	/**
+	 * Times a one way call, run on the thread invoking the service.
+	 */
+	public Runnable recordOneWay(Runnable invocation) {
+		return () -> {
+			long start = start();
+			try{
+				invocation.run();
+			}catch (RuntimeException e){
+				error(e);
+				throw e;
+			}finally {
+				stop(start);
+			}
+		};
+	}
+
+	public <T> Mono<T> record(Mono<T> request) {
+		return Mono.defer(() -> {
+			long start = start();
+			return request.doOnError(this::error).doFinally(signal -> stop(start));
+		});
+	}
+
+	public <T> Flux<T> recordMany(Flux<T> stream) {
+		return Flux.defer(() -> {
+			long start = start();
+			return stream.doOnNext(element -> elements.increment())
+					.doOnError(this::error)
+					.doFinally(signal -> stop(start));
+		});
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private long start() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	private void stop(long start) {
+		latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		inFlight.decrementAndGet();
+	}
+
+	/**
+	 * Error counters are only created the first time an error of their type happens.
+	 */
+	private void error(Throwable throwable) {
+		String reason = Rejections.reasonOf(throwable);
+		String type = (reason != null) ? reason : throwable.getClass().getSimpleName();
+		Counter counter = errors.get(type);
+		if(counter == null){
+			counter = errors.computeIfAbsent(type, key -> Counter.builder("reactive.socket.server.errors")
+					.tags(tags)
+					.tag("error", key)
+					.register(registry));
+		}
+		counter.increment();
+	}
+}
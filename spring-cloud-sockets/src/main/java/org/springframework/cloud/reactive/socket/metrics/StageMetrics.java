@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package org.springframework.cloud.reactive.socket.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the stages of dispatching a request, for one request in every {@code sampleRate}:
+ * {@code reactive.socket.server.stage} timers tagged with the {@link Stage}, and with the path for the stages that run
+ * once the endpoint is known. Sampled requests also record their payload sizes in
+ * {@code reactive.socket.server.payload.size} summaries tagged with path and direction, with histogram buckets from
+ * 128 bytes to 4MB.
+ *
+ * Whether a request is sampled is decided once with {@link #sample()} when it is received, and that decision is passed
+ * to every stage, so a sampled request is timed through all its stages. A stage is started with
+ * {@link #start(boolean)}, which returns {@link #NOT_SAMPLED} for requests that are not sampled, and stopped with the
+ * returned value.
+ *
+ * @author Vinicius Carvalho
+ */
+public class StageMetrics {
+
+	public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+	/**
+	 * Path tag of the stages that run before the endpoint is known.
+	 */
+	private static final String NO_PATH = "none";
+
+	private static final long[] SIZE_BUCKETS = {128, 1024, 8 * 1024, 64 * 1024, 512 * 1024, 4 * 1024 * 1024};
+
+	/**
+	 * Stages that run before the endpoint is known, timed with the {@code none} path.
+	 */
+	private static final Stage[] UNROUTED_STAGES = {Stage.METADATA, Stage.ROUTE, Stage.CONVERTER};
+
+	/**
+	 * Stages that run once the endpoint is known, timed with its path.
+	 */
+	private static final Stage[] ROUTED_STAGES = {Stage.DECODE, Stage.INVOKE, Stage.ENCODE};
+
+	/**
+	 * Stages of the dispatch of a request, in order.
+	 */
+	public enum Stage {
+
+		METADATA,
+
+		ROUTE,
+
+		CONVERTER,
+
+		DECODE,
+
+		INVOKE,
+
+		ENCODE
+	}
+
+	private final MeterRegistry registry;
+
+	private final int sampleRate;
+
+	private final Timer[] timers = new Timer[Stage.values().length];
+
+	/**
+	 * @param registry the registry meters are added to
+	 * @param sampleRate one request in this many is timed, 1 times every request
+	 */
+	public StageMetrics(MeterRegistry registry, int sampleRate) {
+		this.registry = registry;
+		this.sampleRate = Math.max(1, sampleRate);
+		for(Stage stage : UNROUTED_STAGES){
+			this.timers[stage.ordinal()] = Timer.builder("reactive.socket.server.stage")
+					.tag("stage", stage.name())
+					.tag("path", NO_PATH)
+					.register(registry);
+		}
+	}
+
+	/**
+	 * @return true for one request in every {@code sampleRate}
+	 */
+	public boolean sample() {
+		return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+
+	/**
+	 * @param sampled the decision made for the request by {@link #sample()}
+	 * @return the start of the stage, {@link #NOT_SAMPLED} if the request is not sampled
+	 */
+	public long start(boolean sampled) {
+		return sampled ? System.nanoTime() : NOT_SAMPLED;
+	}
+
+	public void stop(Stage stage, long start) {
+		if(start != NOT_SAMPLED){
+			timers[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * @param path route of the endpoint
+	 * @return the meters of the stages that run once the endpoint is known
+	 */
+	public Endpoint forEndpoint(String path) {
+		return new Endpoint(path);
+	}
+
+	/**
+	 * Stage timers and payload sizes of a single endpoint.
+	 */
+	public class Endpoint {
+
+		private final Timer[] timers = new Timer[Stage.values().length];
+
+		private final DistributionSummary inbound;
+
+		private final DistributionSummary outbound;
+
+		Endpoint(String path) {
+			for(Stage stage : ROUTED_STAGES){
+				this.timers[stage.ordinal()] = Timer.builder("reactive.socket.server.stage")
+						.tag("stage", stage.name())
+						.tag("path", path)
+						.register(registry);
+			}
+			this.inbound = sizeSummary(path, "inbound");
+			this.outbound = sizeSummary(path, "outbound");
+		}
+
+		public long start(boolean sampled) {
+			return StageMetrics.this.start(sampled);
+		}
+
+		public void stop(Stage stage, long start) {
+			if(start != NOT_SAMPLED){
+				timers[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		/**
+		 * Stops the decode stage and records the size of the payload decoded.
+		 */
+		public void stopDecode(long start, int bytes) {
+			if(start != NOT_SAMPLED){
+				stop(Stage.DECODE, start);
+				inbound.record(bytes);
+			}
+		}
+
+		/**
+		 * Stops the encode stage and records the size of the payload encoded.
+		 */
+		public void stopEncode(long start, int bytes) {
+			if(start != NOT_SAMPLED){
+				stop(Stage.ENCODE, start);
+				outbound.record(bytes);
+			}
+		}
+
+		private DistributionSummary sizeSummary(String path, String direction) {
+			return DistributionSummary.builder("reactive.socket.server.payload.size")
+					.baseUnit("bytes")
+					.tag("path", path)
+					.tag("direction", direction)
+					.sla(SIZE_BUCKETS)
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.resume;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * The last payloads of a stream, indexed by their position and bounded in bytes. Only payloads that were already
+ * emitted are evicted, so a detached stream never loses what it has not sent yet; the stream stops requesting its
+ * source instead while the payloads not emitted yet fill the bound, see {@link #hasRoom()}. Payloads can be copied
+ * to pooled direct buffers to keep large buffers off the heap, they are copied back to the heap when read.
+ *
+ * @author Vinicius Carvalho
+ */
+class ReplayBuffer {
+
+	private final long maxBytes;
+
+	private final boolean offHeap;
+
+	private final Map<Long, ByteBuffer> entries = new HashMap<>();
+
+	private final Map<Long, ByteBuf> direct = new HashMap<>();
+
+	private long first;
+
+	private long next;
+
+	private long emitted;
+
+	private long bytes;
+
+	private long unemittedBytes;
+
+	ReplayBuffer(long maxBytes, boolean offHeap) {
+		this.maxBytes = maxBytes;
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * @param data the payload data
+	 * @return the position of the payload
+	 */
+	synchronized long append(ByteBuffer data) {
+		int size = data.remaining();
+		if(offHeap){
+			ByteBuf stored = PooledByteBufAllocator.DEFAULT.directBuffer(size);
+			stored.writeBytes(data.duplicate());
+			direct.put(next, stored);
+		}else{
+			entries.put(next, data);
+		}
+		bytes += size;
+		unemittedBytes += size;
+		return next++;
+	}
+
+	/**
+	 * @param position position of the payload
+	 * @return the payload data, or null if it was evicted or not produced yet
+	 */
+	synchronized ByteBuffer get(long position) {
+		if(offHeap){
+			ByteBuf stored = direct.get(position);
+			if(stored == null){
+				return null;
+			}
+			ByteBuffer copy = ByteBuffer.allocate(stored.readableBytes());
+			stored.getBytes(stored.readerIndex(), copy);
+			copy.flip();
+			return copy;
+		}
+		ByteBuffer data = entries.get(position);
+		return (data != null) ? data.duplicate() : null;
+	}
+
+	/**
+	 * Marks the payloads before the given position as emitted, then evicts the oldest payloads until the buffer fits
+	 * its bound, never going past that position.
+	 * @param emitted position of the first payload not emitted yet
+	 */
+	synchronized void trim(long emitted) {
+		for(long position = Math.max(this.emitted, first); position < emitted; position++){
+			unemittedBytes -= sizeOf(position);
+		}
+		this.emitted = Math.max(this.emitted, emitted);
+		while(bytes > maxBytes && first < this.emitted){
+			bytes -= sizeOf(first);
+			evict(first++);
+		}
+	}
+
+	/**
+	 * @return true while the payloads not emitted yet take less than the bound
+	 */
+	synchronized boolean hasRoom() {
+		return unemittedBytes < maxBytes;
+	}
+
+	/**
+	 * Releases every payload still held.
+	 */
+	synchronized void clear() {
+		while(first < next){
+			evict(first++);
+		}
+		bytes = 0;
+		unemittedBytes = 0;
+	}
+
+	synchronized long getFirstPosition() {
+		return first;
+	}
+
+	synchronized long getNextPosition() {
+		return next;
+	}
+
+	synchronized long getBytes() {
+		return bytes;
+	}
+
+	private int sizeOf(long position) {
+		if(offHeap){
+			return direct.get(position).readableBytes();
+		}
+		return entries.get(position).remaining();
+	}
+
+	private void evict(long position) {
+		if(offHeap){
+			direct.remove(position).release();
+		}else{
+			entries.remove(position);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.resume;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.rsocket.Payload;
+import io.rsocket.util.PayloadImpl;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+
+/**
+ * A stream kept across connections. A single drain loop attaches and detaches subscribers, emits buffered payloads to
+ * whichever subscriber is attached, starting from the position it resumed at, and requests the source. The source is
+ * only requested while a subscriber is attached and asks for payloads, at most {@link #PREFETCH} payloads ahead and
+ * only while the payloads not emitted yet fit the replay buffer. A detached stream therefore pauses, holding at most
+ * the bound of its buffer plus the payloads already requested.
+ *
+ * @author Vinicius Carvalho
+ */
+class ResumableStream extends BaseSubscriber<Payload> {
+
+	static final int PREFETCH = 32;
+
+	private final String token;
+
+	private final ReplayBuffer buffer;
+
+	private final ResumeSessions sessions;
+
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private final AtomicLong outstanding = new AtomicLong();
+
+	private final Queue<FluxSink<Payload>> detached = new ConcurrentLinkedQueue<>();
+
+	private volatile Attachment pending;
+
+	private volatile boolean expired;
+
+	private volatile boolean done;
+
+	private FluxSink<Payload> sink;
+
+	private long cursor;
+
+	private boolean finished;
+
+	private Throwable error;
+
+	private Disposable expiry;
+
+	ResumableStream(String token, ReplayBuffer buffer, ResumeSessions sessions) {
+		this.token = token;
+		this.buffer = buffer;
+		this.sessions = sessions;
+	}
+
+	Flux<Payload> attach(long position) {
+		return Flux.create(attached -> {
+			attached.onRequest(n -> drain());
+			attached.onDispose(() -> {
+				detached.offer(attached);
+				drain();
+			});
+			this.pending = new Attachment(attached, position);
+			drain();
+		});
+	}
+
+	@Override
+	protected void hookOnSubscribe(Subscription subscription) {
+		drain();
+	}
+
+	@Override
+	protected void hookOnNext(Payload payload) {
+		outstanding.decrementAndGet();
+		buffer.append(payload.getData());
+		drain();
+	}
+
+	@Override
+	protected void hookOnComplete() {
+		done = true;
+		drain();
+	}
+
+	@Override
+	protected void hookOnError(Throwable throwable) {
+		error = throwable;
+		done = true;
+		drain();
+	}
+
+	private void drain() {
+		if(wip.getAndIncrement() != 0){
+			return;
+		}
+		int missed = 1;
+		do{
+			FluxSink<Payload> gone;
+			while((gone = detached.poll()) != null){
+				detach(gone);
+			}
+			Attachment attachment = pending;
+			if(attachment != null){
+				pending = null;
+				switchTo(attachment);
+			}
+			if(expired){
+				expire();
+			}
+			FluxSink<Payload> current = sink;
+			if(current != null && !finished){
+				emit(current);
+				requestMore(current);
+			}
+			missed = wip.addAndGet(-missed);
+		}while(missed != 0);
+	}
+
+	private void switchTo(Attachment attachment) {
+		if(finished || attachment.position < buffer.getFirstPosition() || attachment.position > buffer.getNextPosition()){
+			attachment.sink.error(Rejections.resumeRejected(token, attachment.position));
+			return;
+		}
+		if(expiry != null){
+			expiry.dispose();
+			expiry = null;
+		}
+		FluxSink<Payload> previous = sink;
+		sink = attachment.sink;
+		cursor = attachment.position;
+		if(previous != null){
+			previous.complete();
+		}
+	}
+
+	private void emit(FluxSink<Payload> current) {
+		long position = cursor;
+		ByteBuffer data;
+		while(!current.isCancelled() && current.requestedFromDownstream() > 0 && (data = buffer.get(position)) != null){
+			current.next(new PayloadImpl(data, positionMetadata(position)));
+			position++;
+		}
+		cursor = position;
+		buffer.trim(position);
+		if(done && position == buffer.getNextPosition()){
+			finish();
+			if(error != null){
+				current.error(error);
+			}else{
+				current.complete();
+			}
+		}
+	}
+
+	/**
+	 * Tops up the payloads requested from the source to what the subscriber asked for, capped by the prefetch and
+	 * counting the payloads buffered but not emitted yet.
+	 */
+	private void requestMore(FluxSink<Payload> current) {
+		if(done || current.isCancelled() || !buffer.hasRoom()){
+			return;
+		}
+		long ahead = (buffer.getNextPosition() - cursor) + outstanding.get();
+		long wanted = Math.min(current.requestedFromDownstream(), PREFETCH) - ahead;
+		if(wanted > 0){
+			outstanding.addAndGet(wanted);
+			request(wanted);
+		}
+	}
+
+	private void detach(FluxSink<Payload> gone) {
+		if(sink != gone){
+			return;
+		}
+		sink = null;
+		if(!finished){
+			expired = false;
+			expiry = Mono.delay(sessions.getSessionTimeout()).subscribe(tick -> {
+				expired = true;
+				drain();
+			});
+		}
+	}
+
+	/**
+	 * A subscriber may have attached again since the timer fired, the stream only expires if it is still detached.
+	 */
+	private void expire() {
+		expired = false;
+		if(sink == null && !finished){
+			dispose();
+			finish();
+		}
+	}
+
+	private void finish() {
+		finished = true;
+		sessions.remove(token, this);
+		buffer.clear();
+	}
+
+	private static ByteBuffer positionMetadata(long position) {
+		return ByteBuffer.wrap(("{\"POSITION\":" + position + "}").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static class Attachment {
+
+		private final FluxSink<Payload> sink;
+
+		private final long position;
+
+		Attachment(FluxSink<Payload> sink, long position) {
+			this.sink = sink;
+			this.position = position;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.resume;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.rsocket.Payload;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+
+/**
+ * Streams that outlive the connection they were requested on. A client opts in by sending a {@code RESUME_TOKEN} with
+ * its request; every payload of the stream then carries its {@code POSITION} in the metadata and is kept in a bounded
+ * replay buffer. When the connection is lost the stream is paused and kept for the session timeout. Requesting the
+ * same token again, with the {@code RESUME_POSITION} of the first payload not received, replays the buffered payloads
+ * from there and carries on with the live stream. New streams are refused with a {@link Rejections#RESUME_REJECTED}
+ * rejection once the maximum number of sessions is kept.
+ *
+ * @author Vinicius Carvalho
+ */
+public class ResumeSessions {
+
+	private final Duration sessionTimeout;
+
+	private final long bufferBytes;
+
+	private final boolean offHeap;
+
+	private final int maxSessions;
+
+	private final Map<String, ResumableStream> streams = new ConcurrentHashMap<>();
+
+	/**
+	 * @param sessionTimeout how long a detached stream is kept
+	 * @param bufferBytes bound of the replay buffer of each stream
+	 * @param offHeap copy buffered payloads to direct buffers
+	 */
+	public ResumeSessions(Duration sessionTimeout, long bufferBytes, boolean offHeap) {
+		this(sessionTimeout, bufferBytes, offHeap, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param sessionTimeout how long a detached stream is kept
+	 * @param bufferBytes bound of the replay buffer of each stream
+	 * @param offHeap copy buffered payloads to direct buffers
+	 * @param maxSessions maximum number of streams kept, attached or not
+	 */
+	public ResumeSessions(Duration sessionTimeout, long bufferBytes, boolean offHeap, int maxSessions) {
+		this.sessionTimeout = sessionTimeout;
+		this.bufferBytes = bufferBytes;
+		this.offHeap = offHeap;
+		this.maxSessions = maxSessions;
+	}
+
+	/**
+	 * @param token identifies the stream across connections
+	 * @param position position of the first payload the client has not received
+	 * @param source the stream, only subscribed to when the token is new
+	 * @return the payloads of the stream from the given position
+	 */
+	public Flux<Payload> attach(String token, long position, Flux<Payload> source) {
+		return Flux.defer(() -> resume(token, position, source));
+	}
+
+	/**
+	 * @return the number of streams being kept, attached or not
+	 */
+	public int size() {
+		return streams.size();
+	}
+
+	private Flux<Payload> resume(String token, long position, Flux<Payload> source) {
+		ResumableStream existing = streams.get(token);
+		if(existing != null){
+			return existing.attach(position);
+		}
+		if(position > 0 || streams.size() >= maxSessions){
+			return Flux.error(Rejections.resumeRejected(token, position));
+		}
+		ResumableStream created = new ResumableStream(token, new ReplayBuffer(bufferBytes, offHeap), this);
+		ResumableStream raced = streams.putIfAbsent(token, created);
+		if(raced != null){
+			return raced.attach(position);
+		}
+		Flux<Payload> attached = created.attach(position);
+		source.subscribe(created);
+		return attached;
+	}
+
+	Duration getSessionTimeout() {
+		return sessionTimeout;
+	}
+
+	void remove(String token, ResumableStream stream) {
+		streams.remove(token, stream);
+	}
+}
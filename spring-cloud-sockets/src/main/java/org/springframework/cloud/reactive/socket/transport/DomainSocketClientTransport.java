@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.rsocket.DuplexConnection;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.netty.RSocketLengthCodec;
+import reactor.core.publisher.Mono;
+
+/**
+ * Connects to a server bound with {@link DomainSocketServerTransport}. Pass it to
+ * {@link org.springframework.cloud.reactive.socket.client.ReactiveSocketConnector#connect} like any other transport.
+ *
+ * @author Vinicius Carvalho
+ */
+public class DomainSocketClientTransport implements ClientTransport {
+
+	private final String path;
+
+	private final EventLoopGroup group;
+
+	/**
+	 * Connections share a single event loop thread.
+	 * @param path file system path of the socket
+	 */
+	public DomainSocketClientTransport(String path) {
+		this(path, SharedGroup.INSTANCE);
+	}
+
+	public DomainSocketClientTransport(String path, EventLoopGroup group) {
+		this.path = path;
+		this.group = group;
+	}
+
+	@Override
+	public Mono<DuplexConnection> connect() {
+		return Mono.create(sink -> {
+			Bootstrap bootstrap = new Bootstrap()
+					.group(group)
+					.channel(EpollDomainSocketChannel.class)
+					.handler(new ChannelInitializer<Channel>() {
+						@Override
+						protected void initChannel(Channel channel) {
+							channel.pipeline().addLast(new RSocketLengthCodec(), new DomainSocketConnection(channel));
+						}
+					});
+			bootstrap.connect(new DomainSocketAddress(path)).addListener((ChannelFuture future) -> {
+				if(future.isSuccess()){
+					sink.success(future.channel().pipeline().get(DomainSocketConnection.class));
+				}else{
+					sink.error(future.cause());
+				}
+			});
+		});
+	}
+
+	/**
+	 * Created on first use, so the native library is only loaded when domain sockets are used.
+	 */
+	private static class SharedGroup {
+
+		private static final EventLoopGroup INSTANCE = new EpollEventLoopGroup(1, new DefaultThreadFactory("reactive-socket-uds-client", true));
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.transport;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.rsocket.DuplexConnection;
+import io.rsocket.Frame;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.UnicastProcessor;
+
+/**
+ * A connection over a Unix domain socket channel. Frames keep their length prefix, as they do over TCP, so the
+ * pipeline only needs the length based decoder in front of this handler.
+ *
+ * Outbound frames are written without waiting for each other and flushed once per run of the event loop, and the
+ * next frame is only requested while the channel is writable. A failed write fails the send it belongs to and closes
+ * the connection, sends still running when the channel closes fail as well. Inbound, the channel is read as frames are requested
+ * rather than automatically, so a slow receiver holds back the peer instead of buffering without bound.
+ *
+ * @author Vinicius Carvalho
+ */
+class DomainSocketConnection extends ChannelInboundHandlerAdapter implements DuplexConnection {
+
+	private final Channel channel;
+
+	private final UnicastProcessor<Frame> inbound = UnicastProcessor.create();
+
+	private final MonoProcessor<Void> onClose = MonoProcessor.create();
+
+	private final AtomicLong demand = new AtomicLong();
+
+	private final AtomicBoolean flushPending = new AtomicBoolean();
+
+	private final Queue<FrameWriter> paused = new ConcurrentLinkedQueue<>();
+
+	private final Set<FrameWriter> writers = ConcurrentHashMap.newKeySet();
+
+	private final Runnable flush = this::flush;
+
+	DomainSocketConnection(Channel channel) {
+		this.channel = channel;
+		channel.config().setAutoRead(false);
+		channel.closeFuture().addListener(future -> {
+			inbound.onComplete();
+			for(FrameWriter writer : writers){
+				writer.fail(new ClosedChannelException());
+			}
+			onClose.onComplete();
+		});
+	}
+
+	@Override
+	public void channelActive(ChannelHandlerContext ctx) {
+		ctx.fireChannelActive();
+		if(demand.get() > 0){
+			ctx.read();
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) {
+		inbound.onNext(Frame.from((ByteBuf) msg));
+	}
+
+	/**
+	 * A read may decode more frames than requested, the extra ones wait in the inbound queue and the next read only
+	 * happens once they are consumed.
+	 */
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) {
+		if(demand.get() > 0){
+			ctx.read();
+		}
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+		if(channel.isWritable()){
+			resumeWriters();
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+		inbound.onError(cause);
+		ctx.close();
+	}
+
+	@Override
+	public Mono<Void> send(Publisher<Frame> frames) {
+		return Mono.create(sink -> {
+			FrameWriter writer = new FrameWriter(sink);
+			writers.add(writer);
+			sink.onDispose(() -> {
+				writers.remove(writer);
+				writer.dispose();
+			});
+			if(!channel.isOpen()){
+				writer.fail(new ClosedChannelException());
+				return;
+			}
+			frames.subscribe(writer);
+		});
+	}
+
+	@Override
+	public Flux<Frame> receive() {
+		return inbound.doOnNext(frame -> consumed()).doOnRequest(this::requested);
+	}
+
+	@Override
+	public Mono<Void> onClose() {
+		return onClose;
+	}
+
+	@Override
+	public void dispose() {
+		channel.close();
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return !channel.isOpen();
+	}
+
+	private void requested(long n) {
+		long current;
+		long next;
+		do{
+			current = demand.get();
+			next = (current + n < 0) ? Long.MAX_VALUE : current + n;
+		}while(!demand.compareAndSet(current, next));
+		if(current == 0){
+			channel.read();
+		}
+	}
+
+	private void consumed() {
+		long current;
+		do{
+			current = demand.get();
+		}while(current != Long.MAX_VALUE && !demand.compareAndSet(current, current - 1));
+	}
+
+	/**
+	 * Writes from other threads are queued on the event loop, the flush queued after them covers all of them.
+	 */
+	private void scheduleFlush() {
+		if(flushPending.compareAndSet(false, true)){
+			channel.eventLoop().execute(flush);
+		}
+	}
+
+	private void flush() {
+		flushPending.set(false);
+		channel.flush();
+	}
+
+	private void resumeWriters() {
+		FrameWriter writer;
+		while((writer = paused.poll()) != null){
+			writer.request(1);
+		}
+	}
+
+	private class FrameWriter extends BaseSubscriber<Frame> {
+
+		private final MonoSink<Void> sink;
+
+		private final AtomicBoolean terminated = new AtomicBoolean();
+
+		private final ChannelFutureListener onWrite = future -> {
+			if(!future.isSuccess()){
+				fail(future.cause());
+			}
+		};
+
+		FrameWriter(MonoSink<Void> sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			subscription.request(1);
+		}
+
+		@Override
+		protected void hookOnNext(Frame frame) {
+			channel.write(frame.content()).addListener(onWrite);
+			scheduleFlush();
+			if(channel.isWritable()){
+				request(1);
+			}else{
+				paused.offer(this);
+				// writability may have come back before this writer was queued
+				if(channel.isWritable()){
+					resumeWriters();
+				}
+			}
+		}
+
+		@Override
+		protected void hookOnComplete() {
+			scheduleFlush();
+			if(terminated.compareAndSet(false, true)){
+				sink.success();
+			}
+		}
+
+		@Override
+		protected void hookOnError(Throwable throwable) {
+			scheduleFlush();
+			if(terminated.compareAndSet(false, true)){
+				sink.error(throwable);
+			}
+		}
+
+		void fail(Throwable throwable) {
+			if(terminated.compareAndSet(false, true)){
+				dispose();
+				sink.error(throwable);
+			}
+			channel.close();
+		}
+	}
+}
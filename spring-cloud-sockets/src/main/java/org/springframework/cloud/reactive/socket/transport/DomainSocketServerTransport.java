@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.transport;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.rsocket.Closeable;
+import io.rsocket.transport.ServerTransport;
+import io.rsocket.transport.netty.RSocketLengthCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+/**
+ * Binds the server on a Unix domain socket, for clients on the same host such as sidecars. Skips the TCP stack
+ * entirely, needs the native epoll transport. A socket file left behind by a server that did not shut down cleanly is
+ * removed before binding, binding fails if another server still answers on it. The socket file is removed when the
+ * server closes.
+ *
+ * @author Vinicius Carvalho
+ */
+public class DomainSocketServerTransport implements ServerTransport<Closeable> {
+
+	private static final int S_IFMT = 0170000;
+
+	private static final int S_IFSOCK = 0140000;
+
+	private final String path;
+
+	private final int workerThreads;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * @param path file system path of the socket, may only exist as a stale socket file
+	 * @param workerThreads event loop threads serving connections, 0 for the Netty default
+	 */
+	public DomainSocketServerTransport(String path, int workerThreads) {
+		this.path = path;
+		this.workerThreads = workerThreads;
+	}
+
+	@Override
+	public Mono<Closeable> start(ConnectionAcceptor acceptor) {
+		return Mono.create(sink -> {
+			EventLoopGroup group = new EpollEventLoopGroup(workerThreads, new DefaultThreadFactory("reactive-socket-uds", true));
+			try{
+				deleteStaleSocket(group);
+			}catch (IOException e){
+				group.shutdownGracefully();
+				sink.error(e);
+				return;
+			}
+			ServerBootstrap bootstrap = new ServerBootstrap()
+					.group(group)
+					.channel(EpollServerDomainSocketChannel.class)
+					.childHandler(new ChannelInitializer<Channel>() {
+						@Override
+						protected void initChannel(Channel channel) {
+							DomainSocketConnection connection = new DomainSocketConnection(channel);
+							channel.pipeline().addLast(new RSocketLengthCodec(), connection);
+							Flux.from(acceptor.apply(connection)).subscribe(null, throwable -> {
+								logger.warn("Could not accept connection on {}", path, throwable);
+								connection.dispose();
+							});
+						}
+					});
+			bootstrap.bind(new DomainSocketAddress(path)).addListener((ChannelFuture future) -> {
+				if(future.isSuccess()){
+					sink.success(new BoundServer(future.channel(), group));
+				}else{
+					group.shutdownGracefully();
+					sink.error(future.cause());
+				}
+			});
+		});
+	}
+
+	/**
+	 * A socket file is only stale when connecting to it is refused. Files of any other type are left alone, binding
+	 * then fails on them.
+	 * @throws IOException if another server answers on the socket, or it could not be probed
+	 */
+	private void deleteStaleSocket(EventLoopGroup group) throws IOException {
+		Path socket = Paths.get(path);
+		if(!Files.exists(socket, LinkOption.NOFOLLOW_LINKS) || !isSocketFile(socket)){
+			return;
+		}
+		ChannelFuture probe = new Bootstrap()
+				.group(group)
+				.channel(EpollDomainSocketChannel.class)
+				.handler(new ChannelInboundHandlerAdapter())
+				.connect(new DomainSocketAddress(path))
+				.awaitUninterruptibly();
+		if(probe.isSuccess()){
+			probe.channel().close();
+			throw new IOException("Another server is listening on " + path);
+		}
+		if(!isRefused(probe.cause())){
+			throw new IOException("Could not probe socket file " + path, probe.cause());
+		}
+		logger.info("Deleting stale socket file {}", path);
+		Files.delete(socket);
+	}
+
+	private static boolean isSocketFile(Path socket) throws IOException {
+		try{
+			int mode = (Integer) Files.getAttribute(socket, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+			return (mode & S_IFMT) == S_IFSOCK;
+		}catch (UnsupportedOperationException e){
+			return false;
+		}
+	}
+
+	private static boolean isRefused(Throwable cause) {
+		return cause instanceof ConnectException && cause.getMessage() != null && cause.getMessage().contains("refused");
+	}
+
+	private class BoundServer implements Closeable {
+
+		private final Channel channel;
+
+		private final MonoProcessor<Void> onClose = MonoProcessor.create();
+
+		BoundServer(Channel channel, EventLoopGroup group) {
+			this.channel = channel;
+			channel.closeFuture().addListener(future -> {
+				deleteSocketFile();
+				group.shutdownGracefully();
+				onClose.onComplete();
+			});
+		}
+
+		private void deleteSocketFile() {
+			try{
+				Files.deleteIfExists(Paths.get(path));
+			}catch (IOException e){
+				logger.warn("Could not delete socket file {}", path, e);
+			}
+		}
+
+		@Override
+		public Mono<Void> onClose() {
+			return onClose;
+		}
+
+		@Override
+		public void dispose() {
+			channel.close();
+		}
+
+		@Override
+		public boolean isDisposed() {
+			return !channel.isOpen();
+		}
+	}
+}
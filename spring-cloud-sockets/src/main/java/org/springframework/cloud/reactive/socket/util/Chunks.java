@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+
+package org.springframework.cloud.reactive.socket.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Streams files and binary content as a sequence of raw chunks instead of a single converted payload. Content is
+ * read one chunk at a time into heap buffers, as the transport copies each payload into its own frame anyway, and
+ * blocking file access happens on the elastic scheduler rather than on the transport threads.
+ *
+ * @author Vinicius Carvalho
+ */
+public class Chunks {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private Chunks() {
+	}
+
+	/**
+	 * @return true if the value is sent as raw chunks rather than through a converter
+	 */
+	public static boolean isChunked(Object value){
+		return value instanceof Path || value instanceof Resource || value instanceof DataBuffer;
+	}
+
+	/**
+	 * @param value a {@link Path}, a {@link Resource} or a {@link DataBuffer}
+	 * @param chunkSize maximum size of each chunk
+	 * @return the content of the value, read lazily as it is requested
+	 */
+	public static Flux<ByteBuffer> read(Object value, int chunkSize){
+		if(value instanceof DataBuffer){
+			return split((DataBuffer) value, chunkSize);
+		}
+		if(value instanceof Path){
+			return read((Path) value, chunkSize);
+		}
+		Resource resource = (Resource) value;
+		if(resource.isFile()){
+			return Flux.defer(() -> readFile(resource, chunkSize));
+		}
+		return Flux.using(resource::readableChannel, channel -> Flux.generate(sink -> readChunk(channel, chunkSize, sink)), Chunks::close)
+				.subscribeOn(Schedulers.elastic());
+	}
+
+	/**
+	 * Reads the file one chunk at a time on the elastic scheduler.
+	 */
+	public static Flux<ByteBuffer> read(Path path, int chunkSize){
+		return Flux.using(() -> FileChannel.open(path, StandardOpenOption.READ),
+				channel -> Flux.generate(sink -> readChunk(channel, chunkSize, sink)),
+				Chunks::close)
+				.subscribeOn(Schedulers.elastic());
+	}
+
+	/**
+	 * Writes chunks to a file as they arrive, on the elastic scheduler. The file is created or truncated.
+	 * @param chunks the content, such as the result of a request many method returning {@code Flux<DataBuffer>}
+	 * @param path the file to write
+	 * @return the number of bytes written, once the last chunk is written
+	 */
+	public static Mono<Long> write(Publisher<DataBuffer> chunks, Path path){
+		return write(chunks, path, Schedulers.elastic());
+	}
+
+	/**
+	 * Writes chunks to a file as they arrive, each chunk being released once written. The file is created or truncated.
+	 * Chunks received but not written yet when the write fails or is cancelled are released as well.
+	 * @param chunks the content, such as the result of a request many method returning {@code Flux<DataBuffer>}
+	 * @param path the file to write
+	 * @param scheduler where the blocking writes run, never a transport thread
+	 * @return the number of bytes written, once the last chunk is written
+	 */
+	public static Mono<Long> write(Publisher<DataBuffer> chunks, Path path, Scheduler scheduler){
+		return Mono.defer(() -> {
+			Set<DataBuffer> pending = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+			return Mono.using(() -> FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
+					channel -> Flux.from(chunks)
+							.doOnNext(pending::add)
+							.publishOn(scheduler)
+							.map(chunk -> pending.remove(chunk) ? writeChunk(channel, chunk) : 0L)
+							.reduce(0L, Long::sum),
+					Chunks::close)
+					.doFinally(signal -> releaseAll(pending));
+		});
+	}
+
+	/**
+	 * Copies the buffer in chunks, releasing it once every chunk is copied or the stream is cancelled.
+	 */
+	private static Flux<ByteBuffer> split(DataBuffer buffer, int chunkSize){
+		return Flux.using(() -> buffer,
+				content -> Flux.generate(() -> content.asByteBuffer(), (ByteBuffer remaining, SynchronousSink<ByteBuffer> sink) -> {
+					if(!remaining.hasRemaining()){
+						sink.complete();
+					}else{
+						ByteBuffer slice = remaining.slice();
+						slice.limit(Math.min(chunkSize, slice.remaining()));
+						remaining.position(remaining.position() + slice.remaining());
+						ByteBuffer chunk = ByteBuffer.allocate(slice.remaining());
+						chunk.put(slice);
+						chunk.flip();
+						sink.next(chunk);
+					}
+					return remaining;
+				}),
+				DataBufferUtils::release);
+	}
+
+	private static Flux<ByteBuffer> readFile(Resource resource, int chunkSize){
+		try{
+			return read(resource.getFile().toPath(), chunkSize);
+		}catch (IOException e){
+			return Flux.error(e);
+		}
+	}
+
+	private static void readChunk(ReadableByteChannel channel, int chunkSize, SynchronousSink<ByteBuffer> sink){
+		try{
+			ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+			int read = 0;
+			while(chunk.hasRemaining() && read != -1){
+				read = channel.read(chunk);
+			}
+			chunk.flip();
+			if(chunk.hasRemaining()){
+				sink.next(chunk);
+			}
+			if(read == -1){
+				sink.complete();
+			}
+		}catch (IOException e){
+			sink.error(e);
+		}
+	}
+
+	private static long writeChunk(FileChannel channel, DataBuffer chunk){
+		try{
+			ByteBuffer content = chunk.asByteBuffer();
+			long written = 0;
+			while(content.hasRemaining()){
+				written += channel.write(content);
+			}
+			return written;
+		}catch (IOException e){
+			throw new IllegalStateException("Could not write chunk", e);
+		}finally{
+			DataBufferUtils.release(chunk);
+		}
+	}
+
+	/**
+	 * Whoever takes a chunk out of the pending set releases it, the writer or this cleanup, never both.
+	 */
+	private static void releaseAll(Set<DataBuffer> pending){
+		List<DataBuffer> remaining;
+		synchronized (pending){
+			remaining = new ArrayList<>(pending);
+			pending.clear();
+		}
+		remaining.forEach(DataBufferUtils::release);
+	}
+
+	private static void close(Channel channel){
+		try{
+			channel.close();
+		}catch (IOException e){
+			// nothing left to release
+		}
+	}
+}
@@ -18,7 +18,10 @@
 package org.springframework.cloud.reactive.socket.util;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
+import io.rsocket.exceptions.ApplicationException;
 import org.reactivestreams.Publisher;
 
 import org.springframework.core.ResolvableType;
@@ -34,6 +37,48 @@ public class ServiceUtils {
 		return bytes;
 	}
 
+	/**
+	 * Packs several encoded payloads into a single frame, each element prefixed by its length.
+	 * @param elements encoded payloads
+	 * @return the batch frame data
+	 */
+	public static byte[] encodeBatch(List<byte[]> elements){
+		int size = 0;
+		for(byte[] element : elements){
+			size += Integer.BYTES + element.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		for(byte[] element : elements){
+			buffer.putInt(element.length);
+			buffer.put(element);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Splits a frame built by {@link #encodeBatch(List)}. Lengths come from the network, so they are checked against
+	 * the bytes actually left before anything is allocated.
+	 * @param buffer the batch frame data
+	 * @return the encoded payloads
+	 * @throws ApplicationException if the frame is not a well formed batch
+	 */
+	public static List<byte[]> decodeBatch(ByteBuffer buffer){
+		List<byte[]> elements = new ArrayList<>();
+		while(buffer.hasRemaining()){
+			if(buffer.remaining() < Integer.BYTES){
+				throw new ApplicationException("Malformed batch: " + buffer.remaining() + " trailing bytes");
+			}
+			int length = buffer.getInt();
+			if(length < 0 || length > buffer.remaining()){
+				throw new ApplicationException("Malformed batch: element of " + length + " bytes with " + buffer.remaining() + " bytes left");
+			}
+			byte[] element = new byte[length];
+			buffer.get(element);
+			elements.add(element);
+		}
+		return elements;
+	}
+
 	public static Class<?> getActualType(ResolvableType type){
 		if(Publisher.class.isAssignableFrom(type.resolve())){
 			return type.getGeneric(0).resolve();
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A call made through a {@link org.springframework.cloud.reactive.socket.client.ReactiveSocketClient} proxy, until
+ * its response or its stream ends. Only calls slower than the threshold of the recording are recorded, 20 ms by
+ * default.
+ *
+ * @author Vinicius Carvalho
+ */
+@Name(ClientCallEvent.NAME)
+@Label("Client Call")
+@Category({"Reactive Socket", "Client"})
+@Description("A remote call made by a service client")
+@Threshold("20 ms")
+@StackTrace(false)
+class ClientCallEvent extends Event implements ClientCallRecording {
+
+	static final String NAME = "org.springframework.cloud.reactive.socket.ClientCall";
+
+	@Label("Path")
+	String path;
+
+	@Label("Exchange Mode")
+	String exchangeMode;
+
+	@Label("Elements")
+	long elements;
+
+	@Label("Error")
+	String error;
+
+	@Override
+	public void received() {
+		elements++;
+	}
+
+	@Override
+	public void failed(Throwable throwable) {
+		error = FlightRecorderEvents.describe(throwable);
+	}
+
+	@Override
+	public void finish() {
+		end();
+		if(shouldCommit()){
+			commit();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A request dispatched by the server, from the moment its route is resolved until its response or its stream ends.
+ * Only requests slower than the threshold of the recording are recorded, 20 ms by default.
+ *
+ * @author Vinicius Carvalho
+ */
+@Name(DispatchEvent.NAME)
+@Label("Dispatch")
+@Category({"Reactive Socket", "Server"})
+@Description("A request dispatched to a service method")
+@Threshold("20 ms")
+@StackTrace(false)
+class DispatchEvent extends Event implements DispatchRecording {
+
+	static final String NAME = "org.springframework.cloud.reactive.socket.Dispatch";
+
+	@Label("Path")
+	String path;
+
+	@Label("Exchange Mode")
+	String exchangeMode;
+
+	@Label("Inbound Bytes")
+	@DataAmount
+	long inboundBytes;
+
+	@Label("Outbound Bytes")
+	@DataAmount
+	long outboundBytes;
+
+	@Label("Decode Duration")
+	@Timespan
+	long decodeDuration;
+
+	@Label("Encode Duration")
+	@Timespan
+	long encodeDuration;
+
+	@Label("Error")
+	String error;
+
+	@Override
+	public void decoded(long nanos, int bytes) {
+		decodeDuration += nanos;
+		inboundBytes += bytes;
+	}
+
+	@Override
+	public void encoded(long nanos, int bytes) {
+		encodeDuration += nanos;
+		outboundBytes += bytes;
+	}
+
+	@Override
+	public void failed(Throwable throwable) {
+		error = FlightRecorderEvents.describe(throwable);
+	}
+
+	@Override
+	public void finish() {
+		end();
+		if(shouldCommit()){
+			commit();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * Checks whether a recording enables an event type before creating an event, so disabled events cost a field read.
+ *
+ * @author Vinicius Carvalho
+ */
+class JfrEventFactory implements FlightRecorderEvents.EventFactory {
+
+	private final EventType dispatchType = EventType.getEventType(DispatchEvent.class);
+
+	private final EventType clientCallType = EventType.getEventType(ClientCallEvent.class);
+
+	@Override
+	public DispatchRecording startDispatch(String path, String exchangeMode) {
+		if(!dispatchType.isEnabled()){
+			return null;
+		}
+		DispatchEvent event = new DispatchEvent();
+		event.path = path;
+		event.exchangeMode = exchangeMode;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public ClientCallRecording startClientCall(String path, String exchangeMode) {
+		if(!clientCallType.isEnabled()){
+			return null;
+		}
+		ClientCallEvent event = new ClientCallEvent();
+		event.path = path;
+		event.exchangeMode = exchangeMode;
+		event.begin();
+		return event;
+	}
+}
@@ -18,26 +18,66 @@
 package org.springframework.cloud.reactive.socket;
 
 
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.ApplicationException;
+import io.rsocket.transport.ServerTransport;
 import io.rsocket.util.PayloadImpl;
 import org.junit.Before;
 import org.junit.Test;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.reactive.socket.annotation.Listener;
 import org.springframework.cloud.reactive.socket.annotation.OneWayMapping;
 import org.springframework.cloud.reactive.socket.annotation.Payload;
 import org.springframework.cloud.reactive.socket.annotation.RequestManyMapping;
 import org.springframework.cloud.reactive.socket.annotation.RequestOneMapping;
 import org.springframework.cloud.reactive.socket.annotation.RequestStreamMapping;
+import org.springframework.cloud.reactive.socket.client.ReactiveSocketClient;
 import org.springframework.cloud.reactive.socket.common.User;
+import org.springframework.cloud.reactive.socket.config.ReactiveSocketsAutoConfiguration;
 import org.springframework.cloud.reactive.socket.converter.JacksonConverter;
 import org.springframework.cloud.reactive.socket.converter.SerializableConverter;
+import org.springframework.cloud.reactive.socket.flow.AimdLimiter;
+import org.springframework.cloud.reactive.socket.flow.ConnectionRateLimiter;
+import org.springframework.cloud.reactive.socket.flow.DrainGate;
+import org.springframework.cloud.reactive.socket.flow.LeaseGranter;
+import org.springframework.cloud.reactive.socket.flow.RateLimit;
+import org.springframework.cloud.reactive.socket.flow.RateLimitPolicy;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.cloud.reactive.socket.flow.ServerLoad;
+import org.springframework.cloud.reactive.socket.metrics.ConnectionRegistry;
+import org.springframework.cloud.reactive.socket.resume.ResumeSessions;
+import org.springframework.cloud.reactive.socket.util.Chunks;
+import org.springframework.cloud.reactive.socket.util.ServiceUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.util.MimeType;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -53,9 +93,11 @@ public class DispatchHandlerTests {
 
 	private ArrayBlockingQueue resultsQueue = new ArrayBlockingQueue(10);
 
+	private GenericApplicationContext context;
+
 	@Before
 	public void setup() throws Exception{
-		GenericApplicationContext context = new GenericApplicationContext();
+		this.context = new GenericApplicationContext();
 		context.getBeanFactory().registerSingleton("simpleService",new SimpleReactiveService());
 		context.refresh();
 		this.handler.setApplicationContext(context);
@@ -70,6 +112,33 @@ public class DispatchHandlerTests {
 		assertThat(output).isEqualTo(user);
 	}
 
+	@Test
+	public void oneWayIngestionQueue() throws Exception {
+		DispatcherHandler queuedHandler = new DispatcherHandler();
+		queuedHandler.setIngestionCapacity(4);
+		queuedHandler.setApplicationContext(this.context);
+		queuedHandler.afterPropertiesSet();
+		User user = new User("Mary", "blue");
+		queuedHandler.fireAndForget(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/oneway"))).block();
+		User output = (User) resultsQueue.poll(5, TimeUnit.SECONDS);
+		assertThat(output).isEqualTo(user);
+		assertThat(queuedHandler.getIngestionQueue("/oneway").getDroppedCount()).isEqualTo(0);
+		queuedHandler.destroy();
+	}
+
+	@Test
+	public void ingestionMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		DispatcherHandler queuedHandler = new DispatcherHandler();
+		queuedHandler.setIngestionCapacity(4);
+		queuedHandler.setMeterRegistry(registry);
+		queuedHandler.setApplicationContext(this.context);
+		queuedHandler.afterPropertiesSet();
+		assertThat(registry.find("reactive.socket.ingestion.dropped").tags("path", "/oneway").functionCounter().count()).isEqualTo(0.0);
+		assertThat(registry.find("reactive.socket.ingestion.size").tags("path", "/oneway").gauge()).isNotNull();
+		queuedHandler.destroy();
+	}
+
 	@Test
 	public void oneWaySerializable() throws Exception {
 		User user = new User("Mary", "blue");
@@ -87,6 +156,37 @@ public class DispatchHandlerTests {
 		assertThat(resultsQueue.poll()).isInstanceOf(Throwable.class);
 	}
 
+	@Test
+	public void oneWayBatch() throws Exception {
+		List<byte[]> batch = Arrays.asList(converter.write(new User("Mary", "blue")), converter.write(new User("John", "red")));
+		this.handler.fireAndForget(new PayloadImpl(ServiceUtils.encodeBatch(batch), getBatchMetadataBytes(MimeType.valueOf("application/json") ,"/oneway")));
+		assertThat(resultsQueue).hasSize(2);
+		assertThat(resultsQueue.poll()).isEqualTo(new User("Mary", "blue"));
+	}
+
+	@Test
+	public void oneWayBatchConsumer() throws Exception {
+		List<byte[]> batch = Arrays.asList(converter.write(new User("Mary", "blue")), converter.write(new User("John", "red")));
+		this.handler.fireAndForget(new PayloadImpl(ServiceUtils.encodeBatch(batch), getBatchMetadataBytes(MimeType.valueOf("application/json") ,"/onewaybatch")));
+		List<User> output = (List<User>) resultsQueue.poll();
+		assertThat(output).containsExactly(new User("Mary", "blue"), new User("John", "red"));
+	}
+
+	@Test
+	public void malformedOneWayBatch() throws Exception {
+		byte[][] frames = {
+				ByteBuffer.allocate(8).putInt(-1).putInt(0).array(),
+				ByteBuffer.allocate(6).putInt(Integer.MAX_VALUE).array(),
+				ByteBuffer.allocate(6).putInt(1).array()
+		};
+		for(byte[] frame : frames){
+			this.handler.fireAndForget(new PayloadImpl(frame, getBatchMetadataBytes(MimeType.valueOf("application/json") ,"/onewaybatch")))
+					.doOnError(throwable -> resultsQueue.offer(throwable))
+					.subscribe();
+			assertThat(resultsQueue.poll()).isInstanceOf(ApplicationException.class);
+		}
+	}
+
 	@Test
 	public void requestOneHandler() throws Exception {
 		User user = new User("Mary", "red");
@@ -108,6 +208,313 @@ public class DispatchHandlerTests {
 	}
 
 
+	@Test
+	public void requestOneConcurrencyLimit() throws Exception {
+		DispatcherHandler limitedHandler = new DispatcherHandler();
+		limitedHandler.setConcurrencyLimiterFactory(() -> new AimdLimiter(1, 1, 1));
+		limitedHandler.setApplicationContext(this.context);
+		limitedHandler.afterPropertiesSet();
+		User user = new User("Mary", "red");
+		Disposable pending = limitedHandler.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/pending"))).subscribe();
+		Mono<io.rsocket.Payload> rejected = limitedHandler.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/pending")));
+		rejected.doOnError(throwable -> resultsQueue.offer(throwable)).subscribe();
+		assertThat(Rejections.isRejection((Throwable) resultsQueue.poll())).isTrue();
+		pending.dispose();
+		assertThat(limitedHandler.getConcurrencyLimiter("/pending").getInFlight()).isEqualTo(0);
+	}
+
+
+	@Test
+	public void connectionRateLimit() throws Exception {
+		RateLimit limit = new RateLimit();
+		limit.setRequestsPerSecond(1);
+		RateLimitPolicy policy = new RateLimitPolicy(limit, Collections.emptyMap(), Collections.emptyMap());
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", policy.forClient("client"));
+		User user = new User("Mary", "red");
+		connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue"))).block();
+		connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue")))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll())).isEqualTo(Rejections.RATE_LIMITED);
+	}
+
+	@Test
+	public void payloadTooLarge() throws Exception {
+		this.handler.setMaxPayloadSize(16);
+		User user = new User("Mary", "red");
+		this.handler.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue")))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.PAYLOAD_TOO_LARGE);
+	}
+
+	@Test
+	public void payloadTooLargeIsRejectedBeforeParsingAndCharging() throws Exception {
+		this.handler.setMaxPayloadSize(16);
+		RateLimit limit = new RateLimit();
+		limit.setRequestsPerSecond(1);
+		ConnectionRateLimiter limiter = new RateLimitPolicy(limit, Collections.emptyMap(), Collections.emptyMap()).forClient("client");
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", limiter);
+		connection.requestResponse(new PayloadImpl("not a json document".getBytes(), "neither is this metadata".getBytes()))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.PAYLOAD_TOO_LARGE);
+		assertThat(limiter.tryAcquire(null, 0)).isTrue();
+	}
+
+	@Test
+	public void fileStreaming() throws Exception {
+		Path source = Files.createTempFile("chunks", ".bin");
+		Path target = Files.createTempFile("chunks", ".copy");
+		byte[] content = new byte[200 * 1024];
+		new Random(7).nextBytes(content);
+		Files.write(source, content);
+		this.handler.setChunkSize(64 * 1024);
+		DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+		Flux<DataBuffer> chunks = this.handler.requestStream(new PayloadImpl(converter.write(source.toString()), getMetadataBytes(MimeType.valueOf("application/json") ,"/file")))
+				.doOnNext(payload -> resultsQueue.offer(payload))
+				.map(payload -> factory.wrap(payload.getData()));
+		assertThat(Chunks.write(chunks, target).block()).isEqualTo((long) content.length);
+		assertThat(resultsQueue).hasSize(4);
+		assertThat(Files.readAllBytes(target)).isEqualTo(content);
+		Files.delete(source);
+		Files.delete(target);
+	}
+
+	@Test
+	public void listenerPartitioning() throws Exception {
+		User user = new User("Mary", "red");
+		ConnectionRSocket internal = new ConnectionRSocket(this.handler, "client", null);
+		internal.setListener("internal");
+		ConnectionRSocket external = new ConnectionRSocket(this.handler, "client", null);
+		external.setListener(ReactiveSocketServer.DEFAULT_LISTENER);
+		io.rsocket.Payload reply = internal.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/internal"))).block();
+		assertThat(converter.read(ServiceUtils.toByteArray(reply.getData()), User.class)).isEqualTo(user);
+		external.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/internal")))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat((Throwable) resultsQueue.poll(1, TimeUnit.SECONDS)).hasMessage("No handler found");
+		assertThat(external.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue"))).block()).isNotNull();
+	}
+
+	@Test
+	public void gracefulDrain() throws Exception {
+		DrainGate gate = new DrainGate();
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", null);
+		connection.setDrainGate(gate);
+		User user = new User("Mary", "red");
+		connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/pending")))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat(gate.getInFlight()).isEqualTo(1);
+		Mono<Void> drained = gate.drain(Duration.ofMillis(200)).cache();
+		drained.subscribe();
+		connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue")))
+				.doOnError(throwable -> resultsQueue.offer(throwable))
+				.subscribe();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll())).isEqualTo(Rejections.GOING_AWAY);
+		drained.block();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.DRAIN_TIMEOUT);
+		assertThat(gate.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void connectionRegistry() throws Exception {
+		ConnectionRegistry registry = new ConnectionRegistry();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		registry.bindTo(meterRegistry);
+		RSocket sendingSocket = new AbstractRSocket() { };
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", null);
+		connection.setConnection(registry.register("client", null, sendingSocket));
+		byte[] data = converter.write(new User("Mary", "red"));
+		byte[] metadata = getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue");
+		connection.requestResponse(new PayloadImpl(data, metadata)).block();
+		ConnectionRegistry.Connection entry = registry.getConnections("client").get(0);
+		assertThat(entry.getPayloadsIn()).isEqualTo(1);
+		assertThat(entry.getBytesIn()).isEqualTo(data.length + metadata.length);
+		assertThat(entry.getPayloadsOut()).isEqualTo(1);
+		assertThat(entry.getActiveStreams()).isEqualTo(0);
+		assertThat(meterRegistry.find("reactive.socket.server.connections").gauge().value()).isEqualTo(1.0);
+	}
+
+	@Test
+	public void connectionRegistryCountsRequestsInFlight() throws Exception {
+		ConnectionRegistry registry = new ConnectionRegistry();
+		RSocket sendingSocket = new AbstractRSocket() { };
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", null);
+		connection.setConnection(registry.register("client", null, sendingSocket));
+		byte[] data = converter.write(new User("Mary", "red"));
+		Disposable pending = connection.requestResponse(new PayloadImpl(data, getMetadataBytes(MimeType.valueOf("application/json") ,"/pending"))).subscribe();
+		ConnectionRegistry.Connection entry = registry.getConnections("client").get(0);
+		assertThat(entry.getInFlight()).isEqualTo(1);
+		pending.dispose();
+		assertThat(entry.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void endpointMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		DispatcherHandler meteredHandler = new DispatcherHandler();
+		meteredHandler.setMeterRegistry(registry);
+		meteredHandler.setApplicationContext(this.context);
+		meteredHandler.afterPropertiesSet();
+		User user = new User("Mary", "red");
+		meteredHandler.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue"))).block();
+		meteredHandler.requestStream(new PayloadImpl(converter.write(5), getMetadataBytes(MimeType.valueOf("application/json") ,"/requestMany"))).blockLast();
+		assertThat(registry.find("reactive.socket.server.requests").tags("path", "/redblue", "exchange", "REQUEST_ONE").timer().count()).isEqualTo(1);
+		assertThat(registry.find("reactive.socket.server.stream.elements").tags("path", "/requestMany").counter().count()).isEqualTo(5.0);
+		assertThat(meteredHandler.getEndpointMetrics("/redblue").getInFlight()).isEqualTo(0);
+
+		DispatcherHandler unmeteredHandler = new DispatcherHandler();
+		unmeteredHandler.setMeterRegistry(new SimpleMeterRegistry());
+		unmeteredHandler.setEndpointMetricsEnabled(false);
+		unmeteredHandler.setApplicationContext(this.context);
+		unmeteredHandler.afterPropertiesSet();
+		assertThat(unmeteredHandler.getEndpointMetrics("/redblue")).isNull();
+	}
+
+	@Test
+	public void stageMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		DispatcherHandler stagedHandler = new DispatcherHandler();
+		stagedHandler.setMeterRegistry(registry);
+		stagedHandler.setStageSampleRate(1);
+		stagedHandler.setApplicationContext(this.context);
+		stagedHandler.afterPropertiesSet();
+		byte[] data = converter.write(new User("Mary", "red"));
+		stagedHandler.requestResponse(new PayloadImpl(data, getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue"))).block();
+		assertThat(registry.find("reactive.socket.server.stage").tags("stage", "ROUTE", "path", "none").timer().count()).isEqualTo(1);
+		assertThat(registry.find("reactive.socket.server.stage").tags("stage", "DECODE", "path", "/redblue").timer().count()).isEqualTo(1);
+		assertThat(registry.find("reactive.socket.server.stage").tags("stage", "INVOKE", "path", "/redblue").timer().count()).isEqualTo(1);
+		assertThat(registry.find("reactive.socket.server.payload.size").tags("path", "/redblue", "direction", "inbound").summary().totalAmount()).isEqualTo(data.length);
+		assertThat(registry.find("reactive.socket.server.payload.size").tags("path", "/redblue", "direction", "outbound").summary().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void stageMetricsSampleWholeRequests() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		DispatcherHandler stagedHandler = new DispatcherHandler();
+		stagedHandler.setMeterRegistry(registry);
+		stagedHandler.setStageSampleRate(4);
+		stagedHandler.setApplicationContext(this.context);
+		stagedHandler.afterPropertiesSet();
+		byte[] data = converter.write(new User("Mary", "red"));
+		for(int i = 0; i < 200; i++){
+			stagedHandler.requestResponse(new PayloadImpl(data, getMetadataBytes(MimeType.valueOf("application/json") ,"/redblue"))).block();
+		}
+		long sampled = registry.find("reactive.socket.server.stage").tags("stage", "METADATA", "path", "none").timer().count();
+		assertThat(sampled).isBetween(1L, 199L);
+		for(String stage : new String[]{"ROUTE", "CONVERTER"}){
+			assertThat(registry.find("reactive.socket.server.stage").tags("stage", stage, "path", "none").timer().count()).isEqualTo(sampled);
+		}
+		for(String stage : new String[]{"DECODE", "INVOKE", "ENCODE"}){
+			assertThat(registry.find("reactive.socket.server.stage").tags("stage", stage, "path", "/redblue").timer().count()).isEqualTo(sampled);
+			assertThat(registry.find("reactive.socket.server.stage").tags("stage", stage, "path", "none").timer()).isNull();
+		}
+	}
+
+	@Test
+	public void requestOneDeadline() throws Exception {
+		User user = new User("Mary", "red");
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("PATH", "/pending");
+		metadata.put("MIME_TYPE", "application/json");
+		metadata.put("TIMEOUT", "50");
+		Mono<io.rsocket.Payload> result = this.handler.requestResponse(new PayloadImpl(converter.write(user), converter.write(metadata)));
+		result.doOnError(throwable -> resultsQueue.offer(throwable)).subscribe();
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.DEADLINE_EXCEEDED);
+	}
+
+	@Test
+	public void leaseFollowsLoad() throws Exception {
+		ServerLoad load = new ServerLoad(this.handler::getQueueDepth);
+		LeaseGranter granter = new LeaseGranter(Duration.ofSeconds(1), 2, 0, load);
+		granter.register(new AbstractRSocket() {
+			@Override
+			public Mono<Void> metadataPush(io.rsocket.Payload payload) {
+				resultsQueue.offer(converter.read(payload.getMetadataUtf8().getBytes(), JsonNode.class));
+				return Mono.empty();
+			}
+		});
+		assertThat(((JsonNode) resultsQueue.poll()).get("LEASE_PERMITS").asInt()).isGreaterThan(0);
+		ConnectionRSocket connection = new ConnectionRSocket(this.handler, "client", null, load);
+		User user = new User("Mary", "red");
+		Disposable first = connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/pending"))).subscribe();
+		Disposable second = connection.requestResponse(new PayloadImpl(converter.write(user), getMetadataBytes(MimeType.valueOf("application/json") ,"/pending"))).subscribe();
+		assertThat(load.getInFlight()).isEqualTo(2);
+		assertThat(granter.permits()).isEqualTo(0);
+		first.dispose();
+		second.dispose();
+		assertThat(granter.permits()).isGreaterThan(0);
+	}
+
+	@Test
+	public void resumeStream() throws Exception {
+		ResumeSessions sessions = new ResumeSessions(Duration.ofSeconds(30), 1, false);
+		Flux<io.rsocket.Payload> source = Flux.range(0, 10).map(i -> new PayloadImpl(String.valueOf(i)));
+		List<String> first = sessions.attach("token", 0, source).take(4).map(io.rsocket.Payload::getDataUtf8).collectList().block();
+		assertThat(first).containsExactly("0", "1", "2", "3");
+		assertThat(sessions.size()).isEqualTo(1);
+		sessions.attach("token", 1, Flux.empty()).subscribe(payload -> {}, resultsQueue::offer);
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll())).isEqualTo(Rejections.RESUME_REJECTED);
+		List<io.rsocket.Payload> rest = sessions.attach("token", 4, Flux.empty()).collectList().block();
+		assertThat(rest).extracting(io.rsocket.Payload::getDataUtf8).containsExactly("4", "5", "6", "7", "8", "9");
+		assertThat(converter.read(rest.get(0).getMetadataUtf8().getBytes(), JsonNode.class).get("POSITION").asLong()).isEqualTo(4);
+		assertThat(sessions.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void detachedStreamStopsRequesting() throws Exception {
+		ResumeSessions sessions = new ResumeSessions(Duration.ofSeconds(30), 1024, true, 1);
+		AtomicLong produced = new AtomicLong();
+		Flux<io.rsocket.Payload> source = Flux.range(0, 100000).map(i -> new PayloadImpl(String.valueOf(i))).doOnNext(payload -> produced.incrementAndGet());
+		assertThat(sessions.attach("token", 0, source).take(2).count().block()).isEqualTo(2);
+		assertThat(produced.get()).isLessThanOrEqualTo(64);
+		sessions.attach("other", 0, source).subscribe(payload -> {}, resultsQueue::offer);
+		assertThat(Rejections.reasonOf((Throwable) resultsQueue.poll())).isEqualTo(Rejections.RESUME_REJECTED);
+		assertThat(sessions.attach("token", 2, Flux.empty()).take(10).map(io.rsocket.Payload::getDataUtf8).collectList().block())
+				.containsExactly("2", "3", "4", "5", "6", "7", "8", "9", "10", "11");
+	}
+
+	@Test
+	public void localClient() throws Exception {
+		LocalService service = new ReactiveSocketClient(this.handler).create(LocalService.class);
+		User user = new User("Mary", "red");
+		assertThat(service.redOrBlue(user).block()).isSameAs(user);
+		assertThat(user.getFavoriteColor()).isEqualTo("blue");
+		assertThat(service.range(10).take(3).collectList().block()).containsExactly(0, 1, 2);
+		ReactiveSocketClient copying = new ReactiveSocketClient(this.handler);
+		copying.setDefensiveCopies(true);
+		User other = new User("John", "red");
+		User copy = copying.create(LocalService.class).redOrBlue(other).block();
+		assertThat(copy).isNotSameAs(other);
+		assertThat(copy.getFavoriteColor()).isEqualTo("blue");
+		assertThat(other.getFavoriteColor()).isEqualTo("red");
+	}
+
+	@Test
+	public void customTransportSkipsReusePortAcceptors() throws Exception {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(ReactiveSocketsAutoConfiguration.class))
+				.withUserConfiguration(CustomTransportConfiguration.class)
+				.withPropertyValues("reactive.socket.transport.reuse-port=true", "reactive.socket.transport.acceptors=4")
+				.run(context -> {
+					assertThat(context.getBeansOfType(ServerTransport.class)).hasSize(1);
+					assertThat(CustomTransportConfiguration.started.get()).isEqualTo(1);
+				});
+	}
+
+	@Test
+	public void listenerWithoutPortFailsNamingTheListener() throws Exception {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(ReactiveSocketsAutoConfiguration.class))
+				.withUserConfiguration(CustomTransportConfiguration.class)
+				.withPropertyValues("reactive.socket.listeners.internal.transport.worker-threads=2")
+				.run(context -> assertThat(context).getFailure()
+						.hasRootCauseInstanceOf(IllegalStateException.class)
+						.hasStackTraceContaining("Listener internal needs a port"));
+	}
+
 	@Test
 	public void requestMany() throws Exception {
 		Integer count = 10;
@@ -140,6 +547,23 @@ public class DispatchHandlerTests {
 		return converter.write(metadata);
 	}
 
+	private byte[] getBatchMetadataBytes(MimeType mimeType, String path) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("PATH", path);
+		metadata.put("MIME_TYPE", mimeType.toString());
+		metadata.put("BATCH", "true");
+		return converter.write(metadata);
+	}
+
+	interface LocalService {
+
+		@RequestOneMapping(value = "/redblue", mimeType = "application/json")
+		Mono<User> redOrBlue(User user);
+
+		@RequestManyMapping(value = "/requestMany", mimeType = "application/json")
+		Flux<Integer> range(Integer count);
+	}
+
 	class SimpleReactiveService {
 
 		@OneWayMapping(value = "/oneway", mimeType = "application/json")
@@ -147,6 +571,11 @@ public class DispatchHandlerTests {
 			DispatchHandlerTests.this.resultsQueue.offer(user);
 		}
 
+		@OneWayMapping(value = "/onewaybatch", mimeType = "application/json")
+		public void oneWayBatch(List<User> users){
+			DispatchHandlerTests.this.resultsQueue.offer(users);
+		}
+
 		@OneWayMapping("/onewaybinary")
 		public void oneWayBinary(User user){
 			DispatchHandlerTests.this.resultsQueue.offer(user);
@@ -158,15 +587,45 @@ public class DispatchHandlerTests {
 			return user;
 		}
 
+		@Listener("internal")
+		@RequestOneMapping(value = "/internal", mimeType = "application/json")
+		public User internal(User user){
+			return user;
+		}
+
+		@RequestOneMapping(value = "/pending", mimeType = "application/json")
+		public Mono<User> pending(User user){
+			return Mono.never();
+		}
+
 		@RequestManyMapping(value = "/requestMany", mimeType = "application/json")
 		public Flux<Integer> range(Integer count){
 			return Flux.range(0, count);
 		}
 
+		@RequestManyMapping(value = "/file", mimeType = "application/json")
+		public Flux<Path> file(String name){
+			return Flux.just(Paths.get(name));
+		}
+
 		@RequestStreamMapping(value = "/requestStream", mimeType = "application/json")
 		public Flux<Integer> adder(Flux<Integer> input){
 			return input.map(integer -> integer+1);
 		}
 	}
 
+	@Configuration
+	static class CustomTransportConfiguration {
+
+		static final AtomicInteger started = new AtomicInteger();
+
+		@Bean
+		public ServerTransport<Closeable> customTransport(){
+			return acceptor -> {
+				started.incrementAndGet();
+				return Mono.never();
+			};
+		}
+	}
+
 }
@@ -18,7 +18,22 @@
 package org.springframework.cloud.reactive.socket;
 
 
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import com.fasterxml.jackson.databind.JsonNode;
+import io.rsocket.AbstractRSocket;
 import io.rsocket.Payload;
 import io.rsocket.RSocket;
 import io.rsocket.util.PayloadImpl;
@@ -28,18 +43,33 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 
+import org.springframework.cloud.reactive.socket.annotation.Idempotent;
 import org.springframework.cloud.reactive.socket.annotation.OneWayMapping;
+import org.springframework.cloud.reactive.socket.annotation.RequestManyMapping;
 import org.springframework.cloud.reactive.socket.annotation.RequestOneMapping;
+import org.springframework.cloud.reactive.socket.client.ClientLease;
+import org.springframework.cloud.reactive.socket.client.HedgePolicy;
+import org.springframework.cloud.reactive.socket.client.LoadBalancedRSocket;
+import org.springframework.cloud.reactive.socket.client.NearCache;
+import org.springframework.cloud.reactive.socket.client.PooledRSocket;
 import org.springframework.cloud.reactive.socket.client.ReactiveSocketClient;
+import org.springframework.cloud.reactive.socket.client.ResiliencePolicy;
 import org.springframework.cloud.reactive.socket.common.User;
 import org.springframework.cloud.reactive.socket.converter.Converter;
 import org.springframework.cloud.reactive.socket.converter.JacksonConverter;
+import org.springframework.cloud.reactive.socket.flow.CircuitBreaker;
+import org.springframework.cloud.reactive.socket.flow.PriorityClass;
+import org.springframework.cloud.reactive.socket.flow.Rejections;
+import org.springframework.cloud.reactive.socket.flow.RetryBudget;
+import org.springframework.cloud.reactive.socket.util.ServiceUtils;
 
 
 
@@ -61,7 +91,10 @@ public class ReactiveSocketClientTests {
 		SampleClient client = socketClient.create(SampleClient.class);
 		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
 		User user = new User("Alice","blue");
-		client.oneWay(user);
+		when(mockSocket.fireAndForget(Mockito.any(Payload.class))).thenReturn(Mono.empty());
+		Mono<Void> call = client.oneWay(user);
+		verify(mockSocket, never()).fireAndForget(Mockito.any(Payload.class));
+		call.block();
 		byte[] converted = converter.write(user);
 		verify(mockSocket, times(1)).fireAndForget(captor.capture());
 
@@ -74,6 +107,182 @@ public class ReactiveSocketClientTests {
 	}
 
 
+	@Test
+	public void oneWayBatchingClientTests() throws Exception {
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.enableOneWayBatching(3, 1024, Duration.ofMinutes(1));
+		SampleClient client = socketClient.create(SampleClient.class);
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		when(mockSocket.fireAndForget(Mockito.any(Payload.class))).thenReturn(Mono.empty());
+		client.oneWay(new User("Alice","blue")).block();
+		client.oneWay(new User("Bob","red")).block();
+		verify(mockSocket, never()).fireAndForget(Mockito.any(Payload.class));
+		client.oneWay(new User("Carol","green")).block();
+		verify(mockSocket, times(1)).fireAndForget(captor.capture());
+
+		Payload payload = captor.getValue();
+		JsonNode metadata = (JsonNode) converter.read(payload.getMetadataUtf8().getBytes(), JsonNode.class);
+		assertThat(ServiceUtils.decodeBatch(payload.getData())).hasSize(3);
+		assertThat("true").isEqualTo(metadata.get("BATCH").textValue());
+	}
+
+	@Test
+	public void oneWayBatchingWaitsForSubscriptionAndFlushesOnDispose() throws Exception {
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.enableOneWayBatching(3, 1024, Duration.ofMinutes(1));
+		SampleClient client = socketClient.create(SampleClient.class);
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		when(mockSocket.fireAndForget(Mockito.any(Payload.class))).thenReturn(Mono.empty());
+		client.oneWay(new User("Alice","blue"));
+		client.oneWay(new User("Bob","red"));
+		client.oneWay(new User("Carol","green"));
+		client.oneWay(new User("Dave","yellow")).block();
+		verify(mockSocket, never()).fireAndForget(Mockito.any(Payload.class));
+		socketClient.dispose();
+		verify(mockSocket, times(1)).fireAndForget(captor.capture());
+		assertThat(ServiceUtils.decodeBatch(captor.getValue().getData())).hasSize(1);
+	}
+
+
+	@Test
+	public void requestManyAsksForWindowsUnderUnboundedDemand() throws Exception {
+		List<Long> requested = new ArrayList<>();
+		when(mockSocket.requestStream(Mockito.any(Payload.class))).thenReturn(Flux.range(0, 200)
+				.map(i -> (Payload) new PayloadImpl(converter.write(i)))
+				.doOnRequest(requested::add));
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setStreamWindow(16);
+		List<Integer> received = socketClient.create(SampleClient.class).range(200).collectList().block();
+		assertThat(received).hasSize(200);
+		assertThat(requested).isNotEmpty().allMatch(n -> n <= 16);
+	}
+
+
+	@Test
+	public void leaseClientTests() throws Exception {
+		ClientLease lease = new ClientLease(Duration.ofMillis(50));
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(lease.wrap(mockSocket));
+		SampleClient client = socketClient.create(SampleClient.class);
+		when(mockSocket.fireAndForget(Mockito.any(Payload.class))).thenReturn(Mono.empty());
+		lease.grant(1, Duration.ofMinutes(1));
+		client.oneWay(new User("Alice","blue")).block();
+		assertThat(lease.getAvailablePermits()).isEqualTo(0);
+		assertThatThrownBy(() -> client.oneWay(new User("Bob","red")).block())
+				.hasMessageStartingWith(Rejections.NO_LEASE);
+		verify(mockSocket, times(1)).fireAndForget(Mockito.any(Payload.class));
+	}
+
+
+	@Test
+	public void pooledClientTests() throws Exception {
+		RSocket otherSocket = Mockito.mock(RSocket.class);
+		Iterator<RSocket> sockets = Arrays.asList(mockSocket, otherSocket).iterator();
+		byte[] converted = converter.write(new User("Alice","blue"));
+		for(RSocket socket : Arrays.asList(mockSocket, otherSocket)){
+			when(socket.onClose()).thenReturn(Mono.never());
+			when(socket.availability()).thenReturn(1.0);
+			when(socket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl(converted)));
+		}
+		PooledRSocket pool = new PooledRSocket(() -> Mono.just(sockets.next()), 2, PooledRSocket.Selection.ROUND_ROBIN).start().block();
+		SampleClient client = new ReactiveSocketClient(pool).create(SampleClient.class);
+		client.create(new User("Alice","blue")).block();
+		client.create(new User("Bob","red")).block();
+		verify(mockSocket, times(1)).requestResponse(Mockito.any(Payload.class));
+		verify(otherSocket, times(1)).requestResponse(Mockito.any(Payload.class));
+		assertThat(pool.getInFlight()).containsExactly(0, 0);
+	}
+
+	@Test
+	public void pooledClientDisposesOpenConnectionsWhenStartFails() throws Exception {
+		Iterator<Mono<RSocket>> connections = Arrays.asList(Mono.just(mockSocket), Mono.<RSocket>error(new IllegalStateException("refused"))).iterator();
+		when(mockSocket.onClose()).thenReturn(Mono.never());
+		PooledRSocket pool = new PooledRSocket(() -> connections.next(), 2, PooledRSocket.Selection.ROUND_ROBIN);
+		assertThatThrownBy(() -> pool.start().block()).hasMessageContaining("refused");
+		verify(mockSocket, times(1)).dispose();
+	}
+
+	@Test
+	public void pooledClientReplacesUnhealthyConnections() throws Exception {
+		RSocket otherSocket = Mockito.mock(RSocket.class);
+		Iterator<RSocket> sockets = Arrays.asList(mockSocket, otherSocket).iterator();
+		byte[] converted = converter.write(new User("Alice","blue"));
+		when(mockSocket.onClose()).thenReturn(Mono.never());
+		when(mockSocket.availability()).thenReturn(0.0);
+		when(otherSocket.onClose()).thenReturn(Mono.never());
+		when(otherSocket.availability()).thenReturn(1.0);
+		when(otherSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl(converted)));
+		PooledRSocket pool = new PooledRSocket(() -> Mono.just(sockets.next()), 1, PooledRSocket.Selection.ROUND_ROBIN);
+		pool.setReconnectDelay(Duration.ofMillis(20));
+		pool.setUnhealthyTimeout(Duration.ZERO);
+		pool.start().block();
+		verify(mockSocket, timeout(1000).times(1)).dispose();
+		assertThat(pool.availability()).isEqualTo(1.0);
+		new ReactiveSocketClient(pool).create(SampleClient.class).create(new User("Alice","blue")).block();
+		verify(otherSocket, times(1)).requestResponse(Mockito.any(Payload.class));
+	}
+
+
+	@Test
+	public void loadBalancedClientTests() throws Exception {
+		RSocket otherSocket = Mockito.mock(RSocket.class);
+		InetSocketAddress first = InetSocketAddress.createUnresolved("first", 5000);
+		InetSocketAddress second = InetSocketAddress.createUnresolved("second", 5000);
+		byte[] converted = converter.write(new User("Alice","blue"));
+		for(RSocket socket : Arrays.asList(mockSocket, otherSocket)){
+			when(socket.onClose()).thenReturn(Mono.never());
+			when(socket.availability()).thenReturn(1.0);
+			when(socket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl(converted)));
+		}
+		LoadBalancedRSocket balancer = new LoadBalancedRSocket(address -> Mono.just(address.equals(first) ? mockSocket : otherSocket));
+		balancer.setAddresses(Arrays.asList(first, second));
+		SampleClient client = new ReactiveSocketClient(balancer).create(SampleClient.class);
+		for(int i = 0; i < 10; i++){
+			client.create(new User("Alice","blue")).block();
+		}
+		balancer.setAddresses(Collections.singletonList(second));
+		assertThat(balancer.getActiveAddresses()).containsExactly(second);
+		verify(mockSocket, times(1)).dispose();
+		client.create(new User("Bob","red")).block();
+		verify(otherSocket, atLeast(1)).requestResponse(Mockito.any(Payload.class));
+	}
+
+	@Test
+	public void loadBalancedNewInstanceIsNotFlooded() throws Exception {
+		RSocket otherSocket = Mockito.mock(RSocket.class);
+		AtomicInteger newInstanceCalls = new AtomicInteger();
+		RSocket newSocket = new AbstractRSocket() {
+			@Override
+			public Mono<Payload> requestResponse(Payload payload) {
+				newInstanceCalls.incrementAndGet();
+				return Mono.never();
+			}
+		};
+		InetSocketAddress first = InetSocketAddress.createUnresolved("first", 5000);
+		InetSocketAddress second = InetSocketAddress.createUnresolved("second", 5000);
+		InetSocketAddress third = InetSocketAddress.createUnresolved("third", 5000);
+		for(RSocket socket : Arrays.asList(mockSocket, otherSocket)){
+			when(socket.onClose()).thenReturn(Mono.never());
+			when(socket.availability()).thenReturn(1.0);
+		}
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl("ok")));
+		when(otherSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl("ok")));
+		Map<InetSocketAddress, RSocket> sockets = new HashMap<>();
+		sockets.put(first, mockSocket);
+		sockets.put(second, otherSocket);
+		sockets.put(third, newSocket);
+		LoadBalancedRSocket balancer = new LoadBalancedRSocket(address -> Mono.just(sockets.get(address)));
+		balancer.setAddresses(Arrays.asList(first, second));
+		for(int i = 0; i < 10; i++){
+			balancer.requestResponse(new PayloadImpl("warm")).block();
+		}
+		balancer.setAddresses(Arrays.asList(first, second, third));
+		for(int i = 0; i < 20; i++){
+			balancer.requestResponse(new PayloadImpl("call")).subscribe();
+		}
+		assertThat(newInstanceCalls.get()).isLessThanOrEqualTo(1);
+	}
+
+
 	@Test
 	public void requestOneClientTests() throws Exception {
 		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
@@ -92,6 +301,160 @@ public class ReactiveSocketClientTests {
 	}
 
 
+	@Test
+	public void requestOneTimeoutTests() throws Exception {
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setRequestTimeout(Duration.ofMillis(50));
+		SampleClient client = socketClient.create(SampleClient.class);
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.never());
+		assertThatThrownBy(() -> client.create(new User("Alice","blue")).block())
+				.hasCauseInstanceOf(TimeoutException.class);
+		verify(mockSocket, times(1)).requestResponse(captor.capture());
+		JsonNode metadata = (JsonNode) converter.read(captor.getValue().getMetadataUtf8().getBytes(), JsonNode.class);
+		assertThat(metadata.get("TIMEOUT").asLong()).isBetween(1L, 50L);
+	}
+
+	@Test
+	public void requestOneDeadlineStartsOnSubscribe() throws Exception {
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setRequestTimeout(Duration.ofMillis(100));
+		SampleClient client = socketClient.create(SampleClient.class);
+		ArgumentCaptor<Payload> captor = ArgumentCaptor.forClass(Payload.class);
+		User user = new User("Alice","blue");
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl(converter.write(user))));
+		Mono<User> late = client.create(user);
+		Thread.sleep(150);
+		assertThat(late.block()).isEqualTo(user);
+		verify(mockSocket, times(1)).requestResponse(captor.capture());
+		JsonNode metadata = (JsonNode) converter.read(captor.getValue().getMetadataUtf8().getBytes(), JsonNode.class);
+		assertThat(metadata.get("TIMEOUT").asLong()).isBetween(1L, 100L);
+	}
+
+
+	@Test
+	public void requestOneNearCacheTests() throws Exception {
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setNearCache(new NearCache(Duration.ofMinutes(1), 10, 1024));
+		SampleClient client = socketClient.create(SampleClient.class);
+		User user = new User("Alice","blue");
+		byte[] converted = converter.write(user);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.fromCallable(() -> new PayloadImpl(converted)));
+		User first = client.find(user).block();
+		User second = client.find(user).block();
+		verify(mockSocket, times(1)).requestResponse(Mockito.any(Payload.class));
+		assertThat(first).isEqualTo(user);
+		assertThat(second).isEqualTo(user);
+		assertThat(second).isNotSameAs(first);
+	}
+
+	@Test
+	public void nearCacheExpiry() throws Exception {
+		NearCache cache = new NearCache(Duration.ofMillis(20), 10, 1024);
+		AtomicInteger loads = new AtomicInteger();
+		Supplier<Mono<byte[]>> loader = () -> Mono.fromCallable(() -> new byte[] { (byte) loads.incrementAndGet() });
+		cache.get("/find", new byte[] { 1 }, loader).block();
+		cache.get("/find", new byte[] { 1 }, loader).block();
+		assertThat(loads.get()).isEqualTo(1);
+		Thread.sleep(30);
+		cache.get("/find", new byte[] { 1 }, loader).block();
+		assertThat(loads.get()).isEqualTo(2);
+		Thread.sleep(30);
+		cache.get("/find", new byte[] { 2 }, loader).block();
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.sizeInBytes()).isEqualTo(2);
+	}
+
+	@Test
+	public void nearCacheEviction() throws Exception {
+		NearCache cache = new NearCache(Duration.ofMinutes(1), 2, 1024);
+		Supplier<Mono<byte[]>> loader = () -> Mono.just(new byte[4]);
+		cache.get("/find", new byte[] { 1 }, loader).block();
+		cache.get("/find", new byte[] { 2 }, loader).block();
+		cache.get("/find", new byte[] { 1 }, () -> Mono.error(new IllegalStateException())).block();
+		cache.get("/find", new byte[] { 3 }, loader).block();
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.sizeInBytes()).isEqualTo(10);
+		assertThat(cache.get("/find", new byte[] { 1 }, () -> Mono.error(new IllegalStateException())).block()).hasSize(4);
+		for(int i = 0; i < 1000; i++){
+			cache.get("/find", new byte[] { 1 }, loader).block();
+			cache.invalidate("/find");
+		}
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(cache.sizeInBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void nearCacheInvalidationDuringLoad() throws Exception {
+		NearCache cache = new NearCache(Duration.ofMinutes(1), 10, 1024);
+		MonoProcessor<byte[]> response = MonoProcessor.create();
+		Mono<byte[]> pending = cache.get("/find", new byte[] { 1 }, () -> response).cache();
+		pending.subscribe();
+		cache.invalidate("/find");
+		response.onNext(new byte[] { 42 });
+		assertThat(pending.block()).containsExactly(42);
+		assertThat(cache.size()).isEqualTo(0);
+		cache.get("/find", new byte[] { 1 }, () -> Mono.just(new byte[] { 43 })).block();
+		cache.invalidateAll();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void requestOneHedgingTests() throws Exception {
+		HedgePolicy policy = new HedgePolicy(0.95, 0.05, Duration.ofMillis(10));
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setHedgePolicy(policy);
+		SampleClient client = socketClient.create(SampleClient.class);
+		User user = new User("Alice","blue");
+		byte[] converted = converter.write(user);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.just(new PayloadImpl(converted)));
+		for(int i = 0; i < 40; i++){
+			client.find(user).block();
+		}
+		assertThat(policy.getDelay("/find")).isEqualTo(Duration.ofMillis(10));
+		assertThat(policy.getHedgeCount()).isEqualTo(0);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.never(), Mono.just(new PayloadImpl(converted)));
+		assertThat(client.find(user).block(Duration.ofSeconds(1))).isEqualTo(user);
+		assertThat(policy.getHedgeCount()).isEqualTo(1);
+		assertThat(policy.getWinCount()).isEqualTo(1);
+		verify(mockSocket, times(42)).requestResponse(Mockito.any(Payload.class));
+	}
+
+	@Test
+	public void hedgingSamplesFailedRequests() throws Exception {
+		HedgePolicy policy = new HedgePolicy(0.95, 0.05, Duration.ofMillis(1));
+		AtomicInteger calls = new AtomicInteger();
+		Supplier<Mono<Integer>> request = () -> (calls.incrementAndGet() <= 32) ? Mono.just(1)
+				: Mono.delay(Duration.ofMillis(10)).then(Mono.<Integer>error(new IllegalStateException("slow failure")));
+		for(int i = 0; i < 128; i++){
+			policy.hedge("/find", request).onErrorResume(throwable -> Mono.empty()).block();
+		}
+		assertThat(policy.getDelay("/find")).isGreaterThanOrEqualTo(Duration.ofMillis(10));
+	}
+
+	@Test
+	public void requestOneResilienceTests() throws Exception {
+		ResiliencePolicy policy = new ResiliencePolicy(2, Duration.ofMillis(1), Duration.ofMillis(10), new RetryBudget(0.1, 10));
+		policy.setCircuitBreakerFactory(() -> new CircuitBreaker(Duration.ofSeconds(10), 4, 0.5, 1.0, Duration.ofSeconds(10), Duration.ofMinutes(1), 1));
+		ReactiveSocketClient socketClient = new ReactiveSocketClient(mockSocket);
+		socketClient.setResiliencePolicy(policy);
+		SampleClient client = socketClient.create(SampleClient.class);
+		User user = new User("Alice","blue");
+		byte[] converted = converter.write(user);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class)))
+				.thenReturn(Mono.error(Rejections.shed("/requestOne", PriorityClass.NORMAL)), Mono.just(new PayloadImpl(converted)));
+		assertThat(client.create(user).block()).isEqualTo(user);
+		assertThat(policy.getRetryCount()).isEqualTo(1);
+		when(mockSocket.requestResponse(Mockito.any(Payload.class))).thenReturn(Mono.error(new ClosedChannelException()));
+		for(int i = 0; i < 2; i++){
+			assertThatThrownBy(() -> client.create(user).block()).hasCauseInstanceOf(ClosedChannelException.class);
+		}
+		assertThat(policy.getCircuitBreaker("/requestOne").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> client.create(user).block()).hasMessageStartingWith(Rejections.CIRCUIT_OPEN);
+		verify(mockSocket, times(4)).requestResponse(Mockito.any(Payload.class));
+	}
+
+
 	interface SampleClient {
 
 		@OneWayMapping(value="/oneway", mimeType = "application/json")
@@ -99,6 +462,13 @@ public class ReactiveSocketClientTests {
 
 		@RequestOneMapping(value="/requestOne", mimeType = "application/json")
 		Mono<User> create(User user);
+
+		@Idempotent
+		@RequestOneMapping(value="/find", mimeType = "application/json")
+		Mono<User> find(User user);
+
+		@RequestManyMapping(value="/range", mimeType = "application/json")
+		Flux<Integer> range(Integer count);
 	}
 
 }
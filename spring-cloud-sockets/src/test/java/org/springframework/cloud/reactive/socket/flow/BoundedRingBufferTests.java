@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class BoundedRingBufferTests {
+
+	@Test
+	public void capacityIsRoundedToPowerOfTwo() throws Exception {
+		BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(3);
+		assertThat(buffer.capacity()).isEqualTo(4);
+		for(int i = 0; i < 4; i++){
+			assertThat(buffer.offer(i)).isTrue();
+		}
+		assertThat(buffer.offer(4)).isFalse();
+		assertThat(buffer.size()).isEqualTo(4);
+		assertThat(buffer.poll()).isEqualTo(0);
+		assertThat(buffer.offer(4)).isTrue();
+		for(int i = 1; i <= 4; i++){
+			assertThat(buffer.poll()).isEqualTo(i);
+		}
+		assertThat(buffer.poll()).isNull();
+	}
+}
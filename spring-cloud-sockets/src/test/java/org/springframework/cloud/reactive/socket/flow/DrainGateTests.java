@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.time.Duration;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class DrainGateTests {
+
+	private DrainGate gate = new DrainGate();
+
+	@Test
+	public void idleGateDrainsWithoutWaiting() throws Exception {
+		assertThat(gate.drain(Duration.ofMinutes(1)).block(Duration.ofSeconds(5))).isNull();
+		assertThat(gate.isDraining()).isTrue();
+		assertThat(gate.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void drainingGateRefusesRequests() throws Exception {
+		gate.drain(Duration.ofMinutes(1)).block(Duration.ofSeconds(5));
+		assertThat(Rejections.reasonOf(catchThrowable(() -> gate.track("/redblue", Mono.just("blue")).block())))
+				.isEqualTo(Rejections.GOING_AWAY);
+		assertThat(Rejections.reasonOf(catchThrowable(() -> gate.trackMany("/redblue", Mono.just("blue").flux()).blockLast())))
+				.isEqualTo(Rejections.GOING_AWAY);
+		assertThat(gate.getInFlight()).isEqualTo(0);
+	}
+
+	@Test
+	public void gateReopens() throws Exception {
+		gate.drain(Duration.ofMinutes(1)).block(Duration.ofSeconds(5));
+		gate.open();
+		assertThat(gate.isDraining()).isFalse();
+		assertThat(gate.track("/redblue", Mono.just("blue")).block()).isEqualTo("blue");
+		gate.drain(Duration.ofMinutes(1)).block(Duration.ofSeconds(5));
+		assertThat(Rejections.reasonOf(catchThrowable(() -> gate.track("/redblue", Mono.just("blue")).block())))
+				.isEqualTo(Rejections.GOING_AWAY);
+	}
+
+	@Test
+	public void drainWaitsForRequestsInFlight() throws Exception {
+		MonoProcessor<String> reply = MonoProcessor.create();
+		MonoProcessor<String> tracked = gate.track("/pending", reply).toProcessor();
+		assertThat(gate.getInFlight()).isEqualTo(1);
+		MonoProcessor<Void> drained = gate.drain(Duration.ofMinutes(1)).toProcessor();
+		assertThat(drained.isTerminated()).isFalse();
+		reply.onNext("blue");
+		assertThat(tracked.block(Duration.ofSeconds(5))).isEqualTo("blue");
+		drained.block(Duration.ofSeconds(5));
+		assertThat(gate.getInFlight()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.Collections;
+
+import io.rsocket.Payload;
+import io.rsocket.util.PayloadImpl;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class FairOutboundSchedulerTests {
+
+	@Test
+	public void interleavesStreams() throws Exception {
+		FairOutboundScheduler scheduler = new FairOutboundScheduler(1024, Collections.singletonMap("/heavy", 3));
+		StringBuilder order = new StringBuilder();
+		BaseSubscriber<Payload> light = new BaseSubscriber<Payload>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+			}
+
+			@Override
+			protected void hookOnNext(Payload value) {
+				order.append("L");
+			}
+		};
+		BaseSubscriber<Payload> heavy = new BaseSubscriber<Payload>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+			}
+
+			@Override
+			protected void hookOnNext(Payload value) {
+				order.append("H");
+				light.request(Long.MAX_VALUE);
+			}
+		};
+		scheduler.schedule("/heavy", payloads(9)).subscribe(heavy);
+		scheduler.schedule("/light", payloads(3)).subscribe(light);
+		heavy.request(Long.MAX_VALUE);
+		assertThat(order.toString()).isEqualTo("HHHLHHHLHHHL");
+		assertThat(scheduler.getActiveStreams()).isEqualTo(0);
+	}
+
+	/**
+	 * With unbounded demand nothing is held back, so payloads leave in arrival order whatever the weights.
+	 */
+	@Test
+	public void followsArrivalOrderUnderUnboundedDemand() throws Exception {
+		FairOutboundScheduler scheduler = new FairOutboundScheduler(1024, Collections.singletonMap("/light", 3));
+		StringBuilder order = new StringBuilder();
+		scheduler.schedule("/heavy", payloads(9)).subscribe(payload -> order.append("H"));
+		scheduler.schedule("/light", payloads(3)).subscribe(payload -> order.append("L"));
+		assertThat(order.toString()).isEqualTo("HHHHHHHHHLLL");
+		assertThat(scheduler.getActiveStreams()).isEqualTo(0);
+	}
+
+	private Flux<Payload> payloads(int count) {
+		return Flux.range(0, count).map(i -> new PayloadImpl(new byte[1024], new byte[0]));
+	}
+}
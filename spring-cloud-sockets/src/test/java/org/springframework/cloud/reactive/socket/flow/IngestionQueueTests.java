@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class IngestionQueueTests {
+
+	private List<Runnable> drains = new ArrayList<>();
+
+	private List<String> ran = new ArrayList<>();
+
+	@Test
+	public void dropNewest() throws Exception {
+		IngestionQueue queue = new IngestionQueue("/oneway", 2, OverflowPolicy.DROP_NEWEST, 1, Schedulers.fromExecutor(drains::add));
+		assertThat(queue.offer(() -> ran.add("a"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("b"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("c"))).isFalse();
+		assertThat(queue.getDroppedCount()).isEqualTo(1);
+		drains.forEach(Runnable::run);
+		assertThat(ran).containsExactly("a", "b");
+	}
+
+	@Test
+	public void dropOldest() throws Exception {
+		IngestionQueue queue = new IngestionQueue("/oneway", 2, OverflowPolicy.DROP_OLDEST, 1, Schedulers.fromExecutor(drains::add));
+		assertThat(queue.offer(() -> ran.add("a"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("b"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("c"))).isTrue();
+		assertThat(queue.getDroppedCount()).isEqualTo(1);
+		drains.forEach(Runnable::run);
+		assertThat(ran).containsExactly("b", "c");
+	}
+
+	@Test
+	public void sample() throws Exception {
+		IngestionQueue queue = new IngestionQueue("/oneway", 2, OverflowPolicy.SAMPLE, 2, Schedulers.fromExecutor(drains::add));
+		assertThat(queue.offer(() -> ran.add("a"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("b"))).isTrue();
+		assertThat(queue.offer(() -> ran.add("c"))).isFalse();
+		assertThat(queue.offer(() -> ran.add("d"))).isTrue();
+		assertThat(queue.getDroppedCount()).isEqualTo(2);
+		drains.forEach(Runnable::run);
+		assertThat(ran).containsExactly("b", "d");
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class PrioritySchedulerTests {
+
+	private PriorityScheduler scheduler = new PriorityScheduler(1, 2);
+
+	private BlockingQueue<Throwable> errors = new ArrayBlockingQueue<>(10);
+
+	private CountDownLatch busy = new CountDownLatch(1);
+
+	@After
+	public void release() {
+		busy.countDown();
+		scheduler.dispose();
+	}
+
+	@Test
+	public void batchIsShedForInteractive() throws Exception {
+		occupyWorker();
+		CountDownLatch interactive = new CountDownLatch(2);
+		scheduler.admit(PriorityClass.BATCH, "/batch").subscribe(null, errors::offer);
+		scheduler.admit(PriorityClass.BATCH, "/batch").subscribe(null, errors::offer);
+		scheduler.admit(PriorityClass.INTERACTIVE, "/interactive").subscribe(null, errors::offer, interactive::countDown);
+		scheduler.admit(PriorityClass.INTERACTIVE, "/interactive").subscribe(null, errors::offer, interactive::countDown);
+		assertThat(Rejections.reasonOf(errors.poll())).isEqualTo(Rejections.SHED);
+		assertThat(Rejections.reasonOf(errors.poll())).isEqualTo(Rejections.SHED);
+		assertThat(scheduler.getShedCount(PriorityClass.BATCH)).isEqualTo(2);
+		assertThat(scheduler.getShedCount(PriorityClass.INTERACTIVE)).isEqualTo(0);
+		busy.countDown();
+		assertThat(interactive.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(errors).isEmpty();
+	}
+
+	@Test
+	public void disposeFailsQueued() throws Exception {
+		occupyWorker();
+		scheduler.admit(PriorityClass.BATCH, "/queued").subscribe(null, errors::offer);
+		scheduler.dispose();
+		assertThat(Rejections.reasonOf(errors.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.GOING_AWAY);
+		scheduler.admit(PriorityClass.BATCH, "/late").subscribe(null, errors::offer);
+		assertThat(Rejections.reasonOf(errors.poll(1, TimeUnit.SECONDS))).isEqualTo(Rejections.GOING_AWAY);
+		assertThat(scheduler.getQueued()).isEqualTo(0);
+	}
+
+	/**
+	 * Holds the only worker until the test releases it, the queue is empty once the worker picked the request up.
+	 */
+	private void occupyWorker() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		scheduler.admit(PriorityClass.INTERACTIVE, "/busy")
+				.then(Mono.fromRunnable(() -> {
+					started.countDown();
+					await(busy);
+				}))
+				.subscribe();
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.getQueued()).isEqualTo(0);
+	}
+
+	private void await(CountDownLatch latch) {
+		try{
+			latch.await(5, TimeUnit.SECONDS);
+		}catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.flow;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class RateLimitPolicyTests {
+
+	@Test
+	public void refusedRequestsAreNotCharged() throws Exception {
+		RateLimit connectionLimit = new RateLimit();
+		connectionLimit.setBytesPerSecond(100);
+		RateLimit routeLimit = new RateLimit();
+		routeLimit.setRequestsPerSecond(1);
+		RateLimitPolicy policy = new RateLimitPolicy(connectionLimit, Collections.emptyMap(), Collections.singletonMap("/search", routeLimit));
+		ConnectionRateLimiter limiter = policy.forClient("client");
+		assertThat(limiter.tryAcquire(null, 100)).isTrue();
+		assertThat(limiter.tryAcquire("/search", 50)).isFalse();
+		assertThat(limiter.tryAcquire("/search", 0)).isTrue();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.RSocket;
+import io.rsocket.util.PayloadImpl;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class ConnectionRegistryTests {
+
+	private MutableClock clock = new MutableClock();
+
+	private ConnectionRegistry registry = new ConnectionRegistry(clock);
+
+	@Test
+	public void countsPayloads() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		registry.bindTo(meterRegistry);
+		ConnectionRegistry.Connection connection = registry.register("client", "internal", new AbstractRSocket() { });
+		connection.inbound(new PayloadImpl(new byte[10], new byte[5]));
+		connection.outbound(new PayloadImpl(new byte[20], new byte[0]));
+		connection.outbound(new PayloadImpl(new byte[20], new byte[0]));
+		assertThat(registry.getConnections("client")).containsExactly(connection);
+		assertThat(connection.getListener()).isEqualTo("internal");
+		assertThat(connection.getPayloadsIn()).isEqualTo(1);
+		assertThat(connection.getBytesIn()).isEqualTo(15);
+		assertThat(connection.getPayloadsOut()).isEqualTo(2);
+		assertThat(connection.getBytesOut()).isEqualTo(40);
+		assertThat(meterRegistry.find("reactive.socket.server.connections").gauge().value()).isEqualTo(1.0);
+		assertThat(meterRegistry.find("reactive.socket.server.connections.payloads").tags("direction", "outbound").functionCounter().count()).isEqualTo(2.0);
+		assertThat(meterRegistry.find("reactive.socket.server.connections.payload.bytes").tags("direction", "inbound").functionCounter().count()).isEqualTo(15.0);
+	}
+
+	@Test
+	public void closesIdleConnections() throws Exception {
+		RSocket socket = new AbstractRSocket() { };
+		ConnectionRegistry.Connection connection = registry.register("client", null, socket);
+		clock.advance(Duration.ofSeconds(30));
+		connection.inbound(new PayloadImpl(new byte[1], new byte[0]));
+		clock.advance(Duration.ofSeconds(45));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(0);
+		assertThat(connection.getLastActivity()).isEqualTo(clock.instant().minusSeconds(45));
+		clock.advance(Duration.ofSeconds(30));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(1);
+		assertThat(registry.getConnections()).isEmpty();
+		assertThat(socket.onClose().toProcessor().isTerminated()).isTrue();
+	}
+
+	@Test
+	public void keepsConnectionsWithRequestsInFlight() throws Exception {
+		ConnectionRegistry.Connection connection = registry.register("client", null, new AbstractRSocket() { });
+		connection.requestStarted();
+		clock.advance(Duration.ofMinutes(2));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(0);
+		connection.requestFinished();
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(0);
+		clock.advance(Duration.ofMinutes(2));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(1);
+	}
+
+	@Test
+	public void keepsConnectionsWithOpenStreams() throws Exception {
+		ConnectionRegistry.Connection connection = registry.register("client", null, new AbstractRSocket() { });
+		connection.streamStarted();
+		clock.advance(Duration.ofMinutes(2));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(0);
+		connection.streamFinished();
+		clock.advance(Duration.ofMinutes(2));
+		assertThat(registry.closeIdle(Duration.ofMinutes(1))).isEqualTo(1);
+	}
+
+	private static class MutableClock extends Clock {
+
+		private volatile Instant now = Instant.parse("2017-06-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			this.now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
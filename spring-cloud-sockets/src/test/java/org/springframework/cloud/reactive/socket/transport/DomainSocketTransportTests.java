@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.transport;
+
+import java.io.File;
+import java.time.Duration;
+
+import io.netty.channel.epoll.Epoll;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.Closeable;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.util.PayloadImpl;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class DomainSocketTransportTests {
+
+	private File socketFile;
+
+	@Before
+	public void setup() throws Exception {
+		Assume.assumeTrue(Epoll.isAvailable());
+		this.socketFile = File.createTempFile("reactive-socket", ".sock");
+		this.socketFile.delete();
+	}
+
+	@Test
+	public void requestsOverDomainSocket() throws Exception {
+		Closeable server = start().block();
+		try{
+			RSocket socket = RSocketFactory.connect()
+					.transport(new DomainSocketClientTransport(socketFile.getAbsolutePath()))
+					.start()
+					.block();
+			assertThat(socket.requestResponse(new PayloadImpl("red")).block().getDataUtf8()).isEqualTo("red");
+			assertThat(socket.requestStream(new PayloadImpl("5")).map(Payload::getDataUtf8).collectList().block())
+					.containsExactly("0", "1", "2", "3", "4");
+			socket.dispose();
+		}finally{
+			server.dispose();
+		}
+	}
+
+	@Test
+	public void socketIsNotTakenOverAndIsRemovedOnClose() throws Exception {
+		Closeable server = start().block();
+		try{
+			assertThatThrownBy(() -> start().block()).hasMessageContaining("Another server is listening");
+			assertThat(socketFile).exists();
+		}finally{
+			server.dispose();
+		}
+		server.onClose().block(Duration.ofSeconds(5));
+		assertThat(socketFile).doesNotExist();
+	}
+
+	private Mono<Closeable> start() {
+		return RSocketFactory.receive()
+				.acceptor((setup, sendingSocket) -> Mono.just(new EchoRSocket()))
+				.transport(new DomainSocketServerTransport(socketFile.getAbsolutePath(), 1))
+				.start();
+	}
+
+	private static class EchoRSocket extends AbstractRSocket {
+
+		@Override
+		public Mono<Payload> requestResponse(Payload payload) {
+			return Mono.just(new PayloadImpl(payload.getDataUtf8()));
+		}
+
+		@Override
+		public Flux<Payload> requestStream(Payload payload) {
+			return Flux.range(0, Integer.parseInt(payload.getDataUtf8())).map(i -> new PayloadImpl(String.valueOf(i)));
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.util;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Vinicius Carvalho
+ */
+public class ChunksTests {
+
+	@Test
+	public void dataBufferIsChunked() throws Exception {
+		byte[] content = new byte[150 * 1024];
+		new Random(7).nextBytes(content);
+		DataBuffer buffer = new DefaultDataBufferFactory().wrap(content);
+		List<ByteBuffer> chunks = Chunks.read(buffer, 64 * 1024).collectList().block();
+		assertThat(chunks).extracting(ByteBuffer::remaining).containsExactly(64 * 1024, 64 * 1024, 22 * 1024);
+		ByteBuffer copy = ByteBuffer.allocate(content.length);
+		chunks.forEach(copy::put);
+		assertThat(copy.array()).isEqualTo(content);
+	}
+
+	@Test
+	public void queuedChunksAreReleasedOnCancel() throws Exception {
+		NettyDataBufferFactory factory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+		List<NettyDataBuffer> buffers = new ArrayList<>();
+		for(int i = 0; i < 3; i++){
+			NettyDataBuffer buffer = factory.allocateBuffer(16);
+			buffer.write(new byte[16]);
+			buffers.add(buffer);
+		}
+		Path target = Files.createTempFile("chunks", ".bin");
+		Scheduler scheduler = Schedulers.newSingle("chunk-writer");
+		CountDownLatch busy = new CountDownLatch(1);
+		scheduler.schedule(() -> {
+			try{
+				busy.await();
+			}catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		});
+		try{
+			Disposable write = Chunks.write(Flux.fromIterable(buffers).cast(DataBuffer.class).concatWith(Flux.never()), target, scheduler).subscribe();
+			write.dispose();
+			assertThat(buffers).allMatch(buffer -> buffer.getNativeBuffer().refCnt() == 0);
+		}finally{
+			busy.countDown();
+			scheduler.dispose();
+			Files.delete(target);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2017 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.springframework.cloud.reactive.socket.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Built by the {@code jfr} profile only, on JDK 11+.
+ *
+ * @author Vinicius Carvalho
+ */
+public class FlightRecorderEventsTests {
+
+	@Test
+	public void disabledEventsAreNotStarted() throws Exception {
+		assertThat(FlightRecorderEvents.isAvailable()).isTrue();
+		assertThat(FlightRecorderEvents.startDispatch("/redblue", "REQUEST_ONE")).isNull();
+		assertThat(FlightRecorderEvents.startClientCall("/redblue", "REQUEST_ONE")).isNull();
+	}
+
+	@Test
+	public void dispatchEvent() throws Exception {
+		Path dump = Files.createTempFile("dispatch", ".jfr");
+		try(Recording recording = new Recording()){
+			recording.enable(DispatchEvent.NAME).withThreshold(Duration.ZERO);
+			recording.start();
+			DispatchRecording event = FlightRecorderEvents.startDispatch("/redblue", "REQUEST_ONE");
+			event.decoded(1000, 42);
+			event.encoded(2000, 64);
+			event.finish();
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		Files.delete(dump);
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getString("path")).isEqualTo("/redblue");
+		assertThat(events.get(0).getString("exchangeMode")).isEqualTo("REQUEST_ONE");
+		assertThat(events.get(0).getLong("inboundBytes")).isEqualTo(42);
+		assertThat(events.get(0).getLong("outboundBytes")).isEqualTo(64);
+	}
+
+	@Test
+	public void fastCallsAreBelowThreshold() throws Exception {
+		Path dump = Files.createTempFile("client", ".jfr");
+		try(Recording recording = new Recording()){
+			recording.enable(ClientCallEvent.NAME).withThreshold(Duration.ofMinutes(1));
+			recording.start();
+			ClientCallRecording event = FlightRecorderEvents.startClientCall("/redblue", "REQUEST_ONE");
+			assertThat(event).isNotNull();
+			event.finish();
+			recording.stop();
+			recording.dump(dump);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		Files.delete(dump);
+		assertThat(events).isEmpty();
+	}
+}